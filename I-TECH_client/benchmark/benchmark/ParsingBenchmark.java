@@ -0,0 +1,111 @@
+package benchmark;
+
+import main.IT8906A_1200_240;
+import main.InstrumentConnection;
+import main.MeasurementSample;
+import main.SCPINumber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of answer parsing without network. The driver is connected to the connection which
+ * answers every query with the same measurement line, so only building of the query and parsing are measured
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    private static final String ANSWER = "1.017;10.052;10.223;0";
+
+    /**
+     * connection which gives the same answer to every query
+     */
+    private static final class FixedAnswerConnection implements InstrumentConnection {
+
+        private final ByteBuffer answer = ByteBuffer.wrap(ANSWER.getBytes(StandardCharsets.US_ASCII));
+
+        @Override
+        public void connect() {
+
+        }
+
+        @Override
+        public void disconnect() {
+
+        }
+
+        @Override
+        public void writeToSocket(String message) {
+
+        }
+
+        @Override
+        public String readFromSocket() {
+            return ANSWER;
+        }
+
+        @Override
+        public ByteBuffer readLine() {
+            answer.position(0);
+            return answer;
+        }
+
+        @Override
+        public void clearInput() {
+
+        }
+
+        @Override
+        public boolean isConnected() {
+            return true;
+        }
+    }
+
+    private final IT8906A_1200_240 load = new IT8906A_1200_240();
+    private final MeasurementSample sample = new MeasurementSample();
+    private final String number = "1199.995";
+
+    @Setup
+    public void setUp() {
+        load.setConnection(new FixedAnswerConnection());
+    }
+
+    @Benchmark
+    public MeasurementSample getMeasurement() {
+        load.getMeasurement(sample);
+        return sample;
+    }
+
+    @Benchmark
+    public String[] splitAnswer() {
+        return ANSWER.split(";");
+    }
+
+    @Benchmark
+    public double scpiNumber() {
+        return SCPINumber.parse(number, 0, number.length());
+    }
+
+    @Benchmark
+    public double parseDouble() {
+        return Double.parseDouble(number);
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import main.IT8906A_1200_240;
+import main.InstrumentConnection;
+import main.MeasurementSample;
+import main.NIOConnection;
+import main.TCPConnection;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of request and answer over loopback against the emulator for every transport.
+ * The emulator is started in the benchmark JVM on a free port, it serves one client
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoundTripBenchmark {
+
+    private static final String HOST = "127.0.0.1";
+    private static final int TIMEOUT = 1000;
+
+    @Param({"tcp", "nio"})
+    private String transport;
+
+    private final IT8906A_1200_240 load = new IT8906A_1200_240();
+    private final MeasurementSample sample = new MeasurementSample();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Class.forName("IT8906_1200_240_emulator")
+                .getMethod("main", String[].class)
+                .invoke(null, (Object) new String[]{String.valueOf(port)});
+        InstrumentConnection connection = transport.equals("nio")
+                ? new NIOConnection(HOST, port, TIMEOUT)
+                : new TCPConnection(HOST, port, TIMEOUT);
+        load.setConnection(connection);
+        IOException last = null;
+        for (int attempt = 0; attempt < 50; attempt++) {
+            try {
+                load.connect();
+                return;
+            } catch (IOException e) {
+                last = e;
+                Thread.sleep(20);
+            }
+        }
+        throw last;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        load.disconnect();
+    }
+
+    @Benchmark
+    public MeasurementSample snapshot() {
+        if (!load.getMeasurement(sample)) {
+            throw new IllegalStateException("No answer from the emulator");
+        }
+        return sample;
+    }
+
+    @Benchmark
+    public double singleQuery() {
+        return load.measureVoltage();
+    }
+}
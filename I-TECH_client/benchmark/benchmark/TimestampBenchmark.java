@@ -0,0 +1,57 @@
+package benchmark;
+
+import main.TimestampService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of time stamps. simpleDateFormat is the former DateFormatter implementation,
+ * it is kept as the baseline. Two threads share the service as the load thread and the sampling thread do
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(2)
+@Fork(1)
+public class TimestampBenchmark {
+
+    private final TimestampService timestamps = TimestampService.getDefault();
+    private final ThreadLocal<SimpleDateFormat> dateAndTime =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("dd.MM.yyyy-HH:mm:ss : "));
+
+    @Benchmark
+    public String getDateAndTime() {
+        return timestamps.getDateAndTime();
+    }
+
+    @Benchmark
+    public String simpleDateFormat() {
+        return dateAndTime.get().format(new Date());
+    }
+
+    @Benchmark
+    public long getSampleTime() {
+        return timestamps.getSampleTime();
+    }
+
+    @Benchmark
+    public long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
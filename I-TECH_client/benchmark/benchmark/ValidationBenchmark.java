@@ -0,0 +1,69 @@
+package benchmark;
+
+import main.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Benchmark of setpoint and connection parameters validation. regexVoltage is the former regex implementation,
+ * it is kept as the baseline
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidationBenchmark {
+
+    private static final Pattern VOLTAGE_PATTERN = Pattern.compile("[0-9]{1,4}(\\.[0-9]*)?");
+
+    private final Validation validation = new Validation();
+
+    @Param({"27", "1199.995", "1200.1", "a"})
+    private String voltage;
+
+    private final String ipAddress = "192.168.100.254";
+    private final String port = "30000";
+
+    @Benchmark
+    public double validateVoltage() {
+        return validation.validateVoltage(voltage).getValue();
+    }
+
+    @Benchmark
+    public boolean isVoltageValidate() {
+        return validation.isVoltageValidate(voltage);
+    }
+
+    @Benchmark
+    public boolean regexVoltage() {
+        if (VOLTAGE_PATTERN.matcher(voltage).matches()) {
+            return Double.parseDouble(voltage) <= 1200 && Double.parseDouble(voltage) >= 0.1;
+        }
+        return false;
+    }
+
+    @Benchmark
+    public boolean validateIP4() {
+        return validation.validateIP4(ipAddress).isValid();
+    }
+
+    @Benchmark
+    public int validatePort() {
+        return validation.validatePort(port).getIntValue();
+    }
+}
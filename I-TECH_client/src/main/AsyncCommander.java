@@ -0,0 +1,340 @@
+package main;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Class for sending SCPI queries without waiting for the answers.
+ * The load answers queries strictly in the order they were sent, so every query is put in FIFO order
+ * and the reader thread completes the oldest future with every line it reads.
+ * If the oldest query is not answered in time, its answer may still come and would complete the next future,
+ * so all queries in flight fail and the order is restored by SCPIFence before new queries are sent.
+ * Only the reader thread reads the connection, the fence included. While the fence is read, new queries
+ * and commands wait in the queue and the reader sends them when the order is restored.
+ * While queries are in flight, the connection should not be used for blocking queries
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class AsyncCommander {
+
+    /**
+     * query which waits for the answer, or command without answer if future is null.
+     * Time is when it is queued, and when it is sent after that
+     */
+    private static class PendingQuery {
+        private final String command;
+        private final CompletableFuture<String> future;
+        private long sentAt = System.nanoTime();
+
+        private PendingQuery(String command, CompletableFuture<String> future) {
+            this.command = command;
+            this.future = future;
+        }
+    }
+
+    private final InstrumentConnection connection;
+    private final ArrayDeque<PendingQuery> pending = new ArrayDeque<>();
+    private final ArrayDeque<PendingQuery> queued = new ArrayDeque<>();
+    private final Object lock = new Object();
+    private final SCPIFence fence = new SCPIFence();
+    private final long TIMEOUT;
+
+    private Thread reader;
+    private volatile boolean running;
+
+    /**
+     * the stream is out of order: new queries are queued until the fence is read
+     */
+    private boolean outOfOrder;
+
+    /**
+     * the reader thread should read the fence
+     */
+    private boolean resyncNeeded;
+
+    /**
+     * queries in flight were cancelled by stop(), their answers may still come
+     */
+    private boolean abandoned;
+
+    /**
+     * Class constructor
+     * @param connection - connected TCPConnection or NIOConnection
+     * @param timeout - time in ms the load has to answer a query. Example - "1000"
+     */
+    public AsyncCommander(InstrumentConnection connection, int timeout) {
+        this.connection = connection;
+        this.TIMEOUT = timeout * 1_000_000L;
+    }
+
+    /**
+     * Method that starts reader thread
+     */
+    public void start() {
+        if (running) {
+            return;
+        }
+        fence.reset();
+        synchronized (lock) {
+            outOfOrder = false;
+            resyncNeeded = false;
+            abandoned = false;
+        }
+        running = true;
+        reader = new Thread(this::readAnswers, "async-commander-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Method that stops reader thread. Queries which are still waiting are cancelled
+     */
+    public void stop() {
+        running = false;
+        synchronized (lock) {
+            abandoned |= !pending.isEmpty();
+            lock.notifyAll();
+        }
+        if (reader != null) {
+            reader.interrupt();
+        }
+        failAll(new CancellationException("Commander is stopped"));
+    }
+
+    /**
+     * Method that waits until the reader thread is finished. After stop() it may still wait for an answer up to timeout
+     * @throws InterruptedException - if waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        Thread t = reader;
+        if (t != null && t != Thread.currentThread()) {
+            t.join();
+        }
+    }
+
+    /**
+     * Method that restores query/answer order after stop() and join(), so the connection can be used for blocking
+     * queries. Late answers of cancelled queries and of an unanswered fence are skipped
+     * @return - true if the stream is in order, false if the fence is not answered in time or connection is lost
+     */
+    public boolean restoreOrder() {
+        synchronized (lock) {
+            if (running) {
+                throw new IllegalStateException("Commander is running");
+            }
+            if (!abandoned && !outOfOrder && !fence.isPending()) {
+                return true;
+            }
+        }
+        boolean restored = fence.resync(connection);
+        synchronized (lock) {
+            abandoned = !restored;
+            outOfOrder = !restored;
+        }
+        return restored;
+    }
+
+    /**
+     * Method that sends command which has no answer. Example - "CURR 10"
+     * @param command - SCPI command
+     */
+    public void send(String command) {
+        synchronized (lock) {
+            if (outOfOrder) {
+                // it is sent after the queries queued before it
+                queued.add(new PendingQuery(command, null));
+                resyncNeeded = true;
+                lock.notifyAll();
+                return;
+            }
+            connection.writeToSocket(command);
+        }
+    }
+
+    /**
+     * Method that sends query and returns immediately. While the fence is read, the query is queued
+     * and sent by the reader thread
+     * @param command - SCPI query. Example - "MEAS:VOLT?"
+     * @return - future which is completed with the answer, or exceptionally with TimeoutException
+     *           if this or an earlier query is not answered in time and IOException if connection is lost
+     */
+    public CompletableFuture<String> query(String command) {
+        PendingQuery query = new PendingQuery(command, new CompletableFuture<>());
+        synchronized (lock) {
+            if (!running) {
+                query.future.completeExceptionally(new CancellationException("Commander is not started"));
+                return query.future;
+            }
+            if (outOfOrder) {
+                queued.add(query);
+                resyncNeeded = true;
+            } else {
+                query.sentAt = System.nanoTime();
+                pending.add(query);
+                connection.writeToSocket(command);
+            }
+            lock.notifyAll();
+        }
+        return query.future;
+    }
+
+    /**
+     * Method that returns number of queries which wait for the answer
+     * @return - number of queries in flight and queued
+     */
+    public int getInFlight() {
+        synchronized (lock) {
+            int count = pending.size();
+            for (PendingQuery query : queued) {
+                if (query.future != null) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Method of reader thread. Reads only while there are queries in flight, so idle connection is not polled
+     */
+    private void readAnswers() {
+        while (running) {
+            boolean resync;
+            synchronized (lock) {
+                while (running && pending.isEmpty() && !resyncNeeded) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                resync = resyncNeeded;
+            }
+            if (!running) {
+                return;
+            }
+            if (resync) {
+                resync();
+                continue;
+            }
+            String answer = connection.readFromSocket();
+            if (answer == null) {
+                running = false;
+                failAll(new IOException("Connection is lost"));
+                return;
+            }
+            if (answer.equals("NO DATA")) {
+                expireOldest();
+                continue;
+            }
+            PendingQuery query;
+            synchronized (lock) {
+                query = pending.poll();
+            }
+            if (query == null) {
+                if (!running) {
+                    // the query was cancelled by stop(), restoreOrder() knows its answer may come
+                    return;
+                }
+                System.out.println("EXCEPTION - answer \"" + answer + "\" is received while no query was sent.");
+            } else {
+                query.future.complete(answer);
+            }
+        }
+    }
+
+    /**
+     * Method that fails all queries in flight if the oldest one waits longer than timeout and restores
+     * query/answer order. New queries are queued while the fence is read
+     */
+    private void expireOldest() {
+        ArrayDeque<PendingQuery> failed;
+        synchronized (lock) {
+            PendingQuery oldest = pending.peek();
+            if (oldest == null || System.nanoTime() - oldest.sentAt < TIMEOUT) {
+                return;
+            }
+            failed = new ArrayDeque<>(pending);
+            pending.clear();
+            outOfOrder = true;
+        }
+        resync();
+        TimeoutException cause = new TimeoutException("No answer to " + failed.peek().command);
+        for (PendingQuery query : failed) {
+            query.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Method of reader thread that restores query/answer order without holding the lock and then sends
+     * queued queries. If the fence is not answered in time, queries queued before it fail and the fence
+     * is read again for the queries queued meanwhile. Commands are sent when no query is queued before them
+     */
+    private void resync() {
+        long start = System.nanoTime();
+        boolean restored = fence.resync(connection);
+        ArrayDeque<PendingQuery> failed = new ArrayDeque<>();
+        synchronized (lock) {
+            outOfOrder = !restored;
+            if (!restored) {
+                Iterator<PendingQuery> iterator = queued.iterator();
+                while (iterator.hasNext()) {
+                    PendingQuery query = iterator.next();
+                    if (query.future != null && query.sentAt - start <= 0) {
+                        iterator.remove();
+                        failed.add(query);
+                    }
+                }
+            }
+            while (!queued.isEmpty() && (restored || queued.peek().future == null)) {
+                PendingQuery query = queued.poll();
+                if (query.future != null) {
+                    query.sentAt = System.nanoTime();
+                    pending.add(query);
+                }
+                connection.writeToSocket(query.command);
+            }
+            resyncNeeded = !queued.isEmpty();
+        }
+        Exception cause = new TimeoutException("No answer to " + SCPIFence.FENCE_QUERY);
+        if (!connection.isConnected()) {
+            running = false;
+            cause = new IOException("Connection is lost");
+            failAll(cause);
+        }
+        for (PendingQuery query : failed) {
+            query.future.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Method that shows if the reader thread is running. It stops by itself if connection is lost
+     * @return - true if running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that fails all queries in flight and queued
+     * @param cause - exception the futures are completed with
+     */
+    private void failAll(Throwable cause) {
+        ArrayDeque<PendingQuery> failed;
+        synchronized (lock) {
+            failed = new ArrayDeque<>(pending);
+            pending.clear();
+            failed.addAll(queued);
+            queued.clear();
+        }
+        for (PendingQuery query : failed) {
+            if (query.future != null) {
+                query.future.completeExceptionally(cause);
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class which appends lines to the file on its own thread. Lines are taken from the bounded queue in batches
+ * and the file is flushed once per batch. If the disk is slower than the lines come, new lines are dropped
+ * and counted, the caller never waits for the disk
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class AsyncFileAppender implements AutoCloseable {
+
+    /**
+     * the largest number of lines written by one batch
+     */
+    private static final int BATCH_SIZE = 256;
+
+    private final BlockingQueue<String> queue;
+    private final BufferedWriter writer;
+    private final Thread thread;
+
+    private volatile boolean running = true;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile long writtenCount;
+
+    /**
+     * Class constructor. The file is created if it does not exist, lines are added to its end
+     * @param file - log file. Example - "itech_client.log"
+     * @param capacity - number of lines waiting for the disk. Example - "4096"
+     * @throws IOException - if the file can not be opened
+     */
+    public AsyncFileAppender(Path file, int capacity) throws IOException {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE);
+        this.thread = new Thread(this::run, "log-appender");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Method that queues line for writing. It can be called by any thread
+     * @param line - text without line terminator
+     * @return - true if the line is queued, false if the queue is full or the appender is closed
+     */
+    public boolean append(String line) {
+        if (running && queue.offer(line)) {
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Method of the writing thread
+     */
+    private void run() {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (running || !queue.isEmpty()) {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        queue.drainTo(batch);
+        write(batch);
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - Failed to close log file");
+        }
+    }
+
+    /**
+     * Method that writes lines and flushes the file once
+     * @param batch - lines to write
+     */
+    private void write(List<String> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            for (String line : batch) {
+                writer.write(line);
+                writer.newLine();
+            }
+            writer.flush();
+            writtenCount += batch.size();
+        } catch (IOException e) {
+            droppedCount.addAndGet(batch.size());
+            System.out.println("EXCEPTION - Failed to write log file");
+        }
+    }
+
+    /**
+     * Method that stops accepting lines, writes queued ones and closes the file
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Method that returns number of lines which were not written
+     * @return - number of dropped lines
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Method that returns number of written lines
+     * @return - number of lines
+     */
+    public long getWrittenCount() {
+        return writtenCount;
+    }
+}
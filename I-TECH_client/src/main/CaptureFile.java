@@ -0,0 +1,794 @@
+package main;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Class of the compressed columnar file of samples for the archive of load tests.
+ * The file has 8 bytes header (magic and version) and chunks of up to CHUNK_SAMPLES samples. Every chunk has
+ * a header: number of samples, OR of all statuses, time of the first and the last sample, min and max of voltage,
+ * current and power, sizes of columns and CRC of columns. Columns follow the header:
+ * time - deltas of deltas with 1 bit for the regular sample rate,
+ * voltage, current and power - XOR of the previous value (Gorilla encoding), 1 bit for the same value,
+ * status - runs of the same value.
+ * Samples which change slowly take a few bytes instead of 36. The reader skips chunks by their headers
+ * and decodes selected chunks in parallel, samples are given in order of the file
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public final class CaptureFile {
+
+    /**
+     * layout of the file
+     */
+    public static final int CHUNK_SAMPLES = 4096;
+    private static final int MAGIC = 0x49544346;
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int CHUNK_HEADER_SIZE = 96;
+    private static final int COLUMNS = 5;
+
+    /**
+     * chunks decoded at once by the reader for every processor
+     */
+    private static final int WINDOW_PER_PROCESSOR = 2;
+
+    private static final Set<MeasurementSample.Channel> ALL = EnumSet.allOf(MeasurementSample.Channel.class);
+
+    private CaptureFile() {
+    }
+
+    /**
+     * Class which writes samples to the file. Samples are kept until the chunk is full,
+     * the last chunk is written by close()
+     */
+    public static final class Writer implements SampleConsumer, AutoCloseable {
+        private final OutputStream out;
+        private final long[] times = new long[CHUNK_SAMPLES];
+        private final double[][] values = new double[3][CHUNK_SAMPLES];
+        private final int[] statuses = new int[CHUNK_SAMPLES];
+        private final BitWriter bits = new BitWriter();
+        private final ByteBuffer header = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private int count;
+        private long sampleCount;
+        private long size = FILE_HEADER_SIZE;
+
+        /**
+         * Class constructor. The file is created or replaced
+         * @param file - file of samples. Example - "Paths.get("discharge.cap")"
+         * @throws IOException - if the file can not be written
+         */
+        public Writer(Path file) throws IOException {
+            this.out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16);
+            ByteBuffer start = ByteBuffer.allocate(FILE_HEADER_SIZE);
+            start.putInt(MAGIC).putInt(VERSION);
+            out.write(start.array());
+        }
+
+        /**
+         * Method that adds one sample, the chunk is written when it is full
+         * @throws UncheckedIOException - if the file can not be written
+         */
+        @Override
+        public void accept(long time, double voltage, double current, double power, int status) {
+            times[count] = time;
+            values[0][count] = voltage;
+            values[1][count] = current;
+            values[2][count] = power;
+            statuses[count] = status;
+            if (++count == CHUNK_SAMPLES) {
+                try {
+                    writeChunk();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        /**
+         * Method that returns number of written samples
+         * @return - number of samples
+         */
+        public long getSampleCount() {
+            return sampleCount + count;
+        }
+
+        /**
+         * Method that returns size of the file with written chunks
+         * @return - size in bytes
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Method that writes the last chunk and closes the file
+         * @throws IOException - if the file can not be written
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeChunk();
+            } finally {
+                out.close();
+            }
+        }
+
+        private void writeChunk() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            int[] sizes = new int[COLUMNS];
+            bits.reset();
+            encodeTimes();
+            sizes[0] = bits.align();
+            for (int c = 0; c < 3; c++) {
+                encodeValues(values[c]);
+                sizes[c + 1] = bits.align() - sum(sizes, c + 1);
+            }
+            encodeStatuses();
+            sizes[4] = bits.align() - sum(sizes, 4);
+            crc.reset();
+            crc.update(bits.data, 0, bits.size);
+
+            int mask = 0;
+            for (int i = 0; i < count; i++) {
+                mask |= statuses[i];
+            }
+            header.clear();
+            header.putInt(count).putInt(mask).putLong(times[0]).putLong(times[count - 1]);
+            for (double[] column : values) {
+                double min = Double.NaN;
+                double max = Double.NaN;
+                for (int i = 0; i < count; i++) {
+                    double value = column[i];
+                    // NaN of the not measured channel is not a limit
+                    if (Double.isNaN(value)) {
+                        continue;
+                    }
+                    if (Double.isNaN(min) || value < min) {
+                        min = value;
+                    }
+                    if (Double.isNaN(max) || value > max) {
+                        max = value;
+                    }
+                }
+                header.putDouble(min).putDouble(max);
+            }
+            for (int s : sizes) {
+                header.putInt(s);
+            }
+            header.putInt((int) crc.getValue());
+            out.write(header.array());
+            out.write(bits.data, 0, bits.size);
+            size += CHUNK_HEADER_SIZE + bits.size;
+            sampleCount += count;
+            count = 0;
+        }
+
+        private static int sum(int[] sizes, int to) {
+            int sum = 0;
+            for (int i = 0; i < to; i++) {
+                sum += sizes[i];
+            }
+            return sum;
+        }
+
+        /**
+         * Method that encodes deltas of deltas of times after the first one:
+         * 0 - the same delta, 10 + 7 bits, 110 + 9 bits, 1110 + 12 bits, 1111 + 64 bits
+         */
+        private void encodeTimes() {
+            long previousDelta = 0;
+            for (int i = 1; i < count; i++) {
+                long delta = times[i] - times[i - 1];
+                long dod = delta - previousDelta;
+                previousDelta = delta;
+                if (dod == 0) {
+                    bits.write(0, 1);
+                } else if (dod >= -63 && dod <= 64) {
+                    bits.write(0b10, 2);
+                    bits.write(dod + 63, 7);
+                } else if (dod >= -255 && dod <= 256) {
+                    bits.write(0b110, 3);
+                    bits.write(dod + 255, 9);
+                } else if (dod >= -2047 && dod <= 2048) {
+                    bits.write(0b1110, 4);
+                    bits.write(dod + 2047, 12);
+                } else {
+                    bits.write(0b1111, 4);
+                    bits.write(dod, 64);
+                }
+            }
+        }
+
+        /**
+         * Method that encodes values by XOR with the previous one: 0 - the same value,
+         * 10 + meaningful bits in the previous window, 11 + 5 bits of leading zeros + 6 bits of length + meaningful bits
+         */
+        private void encodeValues(double[] column) {
+            long previous = Double.doubleToRawLongBits(column[0]);
+            bits.write(previous, 64);
+            int previousLeading = -1;
+            int previousTrailing = 0;
+            for (int i = 1; i < count; i++) {
+                long value = Double.doubleToRawLongBits(column[i]);
+                long xor = value ^ previous;
+                previous = value;
+                if (xor == 0) {
+                    bits.write(0, 1);
+                    continue;
+                }
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+                    bits.write(0b10, 2);
+                    bits.write(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+                } else {
+                    int meaningful = 64 - leading - trailing;
+                    bits.write(0b11, 2);
+                    bits.write(leading, 5);
+                    bits.write(meaningful - 1, 6);
+                    bits.write(xor >>> trailing, meaningful);
+                    previousLeading = leading;
+                    previousTrailing = trailing;
+                }
+            }
+        }
+
+        /**
+         * Method that encodes runs of statuses as pairs of varints: length of the run and status
+         */
+        private void encodeStatuses() {
+            int i = 0;
+            while (i < count) {
+                int status = statuses[i];
+                int run = 1;
+                while (i + run < count && statuses[i + run] == status) {
+                    run++;
+                }
+                bits.writeVarint(run);
+                bits.writeVarint(status);
+                i += run;
+            }
+        }
+    }
+
+    /**
+     * header of one chunk
+     */
+    public static final class Chunk {
+        private final long position;
+        private final int count;
+        private final int statusMask;
+        private final long firstTime;
+        private final long lastTime;
+        private final double[] limits;
+        private final int[] sizes;
+        private final int crc;
+
+        private Chunk(long position, ByteBuffer in) {
+            this.position = position;
+            this.count = in.getInt(0);
+            this.statusMask = in.getInt(4);
+            this.firstTime = in.getLong(8);
+            this.lastTime = in.getLong(16);
+            this.limits = new double[6];
+            for (int i = 0; i < limits.length; i++) {
+                limits[i] = in.getDouble(24 + i * 8);
+            }
+            this.sizes = new int[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                sizes[i] = in.getInt(72 + i * 4);
+            }
+            this.crc = in.getInt(92);
+        }
+
+        /**
+         * Method that returns number of samples
+         * @return - number of samples from 1 to CHUNK_SAMPLES
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * Method that returns OR of statuses of all samples
+         * @return - status bits, 0 if there was no error
+         */
+        public int getStatusMask() {
+            return statusMask;
+        }
+
+        /**
+         * Method that returns time of the first sample
+         * @return - time in ms since epoch
+         */
+        public long getFirstTime() {
+            return firstTime;
+        }
+
+        /**
+         * Method that returns time of the last sample
+         * @return - time in ms since epoch
+         */
+        public long getLastTime() {
+            return lastTime;
+        }
+
+        /**
+         * Method that returns the smallest value of the channel
+         * @param channel - VOLTAGE, CURRENT or POWER
+         * @return - value, NaN if the channel was not measured
+         */
+        public double getMin(MeasurementSample.Channel channel) {
+            return limits[column(channel) * 2];
+        }
+
+        /**
+         * Method that returns the largest value of the channel
+         * @param channel - VOLTAGE, CURRENT or POWER
+         * @return - value, NaN if the channel was not measured
+         */
+        public double getMax(MeasurementSample.Channel channel) {
+            return limits[column(channel) * 2 + 1];
+        }
+
+        private int length() {
+            int length = 0;
+            for (int s : sizes) {
+                length += s;
+            }
+            return length;
+        }
+
+        private static int column(MeasurementSample.Channel channel) {
+            switch (channel) {
+                case VOLTAGE:
+                    return 0;
+                case CURRENT:
+                    return 1;
+                case POWER:
+                    return 2;
+                default:
+                    throw new IllegalArgumentException("Chunk has no limits of " + channel);
+            }
+        }
+    }
+
+    /**
+     * Class which reads the file. Chunk headers are read when the file is opened
+     */
+    public static final class Reader implements AutoCloseable {
+        private final Path file;
+        private final FileChannel channel;
+        private final List<Chunk> chunks;
+
+        /**
+         * Class constructor
+         * @param file - file of samples. Example - "Paths.get("discharge.cap")"
+         * @throws IOException - if the file can not be read or it is not a file of samples
+         */
+        public Reader(Path file) throws IOException {
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                this.chunks = Collections.unmodifiableList(readHeaders());
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private List<Chunk> readHeaders() throws IOException {
+            ByteBuffer in = ByteBuffer.allocate(CHUNK_HEADER_SIZE);
+            readFully(in, 0, FILE_HEADER_SIZE);
+            if (in.getInt(0) != MAGIC || in.getInt(4) != VERSION) {
+                throw new IOException("Not a capture file - " + file);
+            }
+            List<Chunk> list = new ArrayList<>();
+            long size = channel.size();
+            long position = FILE_HEADER_SIZE;
+            while (position + CHUNK_HEADER_SIZE <= size) {
+                readFully(in, position, CHUNK_HEADER_SIZE);
+                Chunk chunk = new Chunk(position, in);
+                if (chunk.count < 1 || chunk.count > CHUNK_SAMPLES || position + CHUNK_HEADER_SIZE + chunk.length() > size) {
+                    // the file is not finished, the torn chunk is ignored
+                    break;
+                }
+                list.add(chunk);
+                position += CHUNK_HEADER_SIZE + chunk.length();
+            }
+            return list;
+        }
+
+        private void readFully(ByteBuffer in, long position, int length) throws IOException {
+            in.clear().limit(length);
+            while (in.hasRemaining()) {
+                if (channel.read(in, position + in.position()) < 0) {
+                    throw new IOException("Unexpected end of " + file);
+                }
+            }
+        }
+
+        /**
+         * Method that returns headers of all chunks
+         * @return - chunks in order of the file
+         */
+        public List<Chunk> getChunks() {
+            return chunks;
+        }
+
+        /**
+         * Method that reads all samples
+         * @param consumer - receiver of samples, it is called by the calling thread
+         * @return - number of samples
+         * @throws IOException - if the file can not be read or the chunk is damaged
+         */
+        public long read(SampleConsumer consumer) throws IOException {
+            return read(Long.MIN_VALUE, Long.MAX_VALUE, chunk -> true, ALL, consumer);
+        }
+
+        /**
+         * Method that reads samples of the time range. Chunks out of the range or rejected by the filter are not read.
+         * Selected chunks are decoded in parallel, samples are given in order of the file
+         * @param from - the first time in ms since epoch
+         * @param to - the last time in ms since epoch
+         * @param filter - filter of chunk headers. Example - "chunk -> chunk.getStatusMask() != 0"
+         * @param channels - decoded channels, others are given as NaN and status as 0. Example - "EnumSet.of(Channel.VOLTAGE)"
+         * @param consumer - receiver of samples, it is called by the calling thread
+         * @return - number of given samples
+         * @throws IOException - if the file can not be read or the chunk is damaged
+         */
+        public long read(long from, long to, Predicate<Chunk> filter, Set<MeasurementSample.Channel> channels,
+                         SampleConsumer consumer) throws IOException {
+            int window = WINDOW_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+            ArrayDeque<CompletableFuture<Columns>> decoding = new ArrayDeque<>(window);
+            long given = 0;
+            int next = 0;
+            while (true) {
+                while (decoding.size() < window && next < chunks.size()) {
+                    Chunk chunk = chunks.get(next++);
+                    if (chunk.lastTime < from || chunk.firstTime > to || !filter.test(chunk)) {
+                        continue;
+                    }
+                    decoding.add(CompletableFuture.supplyAsync(() -> decode(chunk, channels)));
+                }
+                CompletableFuture<Columns> head = decoding.poll();
+                if (head == null) {
+                    return given;
+                }
+                Columns columns;
+                try {
+                    columns = head.join();
+                } catch (CompletionException e) {
+                    for (CompletableFuture<Columns> other : decoding) {
+                        other.cancel(false);
+                    }
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw e;
+                }
+                for (int i = 0; i < columns.count; i++) {
+                    long time = columns.times[i];
+                    if (time >= from && time <= to) {
+                        consumer.accept(time, columns.values[0][i], columns.values[1][i], columns.values[2][i],
+                                columns.statuses[i]);
+                        given++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Method that reads and decodes one chunk, it is called by threads of the common pool
+         */
+        private Columns decode(Chunk chunk, Set<MeasurementSample.Channel> channels) {
+            try {
+                ByteBuffer in = ByteBuffer.allocate(chunk.length());
+                long position = chunk.position + CHUNK_HEADER_SIZE;
+                while (in.hasRemaining()) {
+                    if (channel.read(in, position + in.position()) < 0) {
+                        throw new IOException("Unexpected end of " + file);
+                    }
+                }
+                CRC32 crc = new CRC32();
+                crc.update(in.array(), 0, in.capacity());
+                if ((int) crc.getValue() != chunk.crc) {
+                    throw new IOException("Chunk at " + chunk.position + " is damaged - " + file);
+                }
+                Columns columns = new Columns(chunk.count);
+                int start = 0;
+                decodeTimes(new BitReader(in, start, chunk.sizes[0]), chunk.firstTime, columns.times, chunk.count);
+                start += chunk.sizes[0];
+                MeasurementSample.Channel[] order = {MeasurementSample.Channel.VOLTAGE, MeasurementSample.Channel.CURRENT,
+                        MeasurementSample.Channel.POWER};
+                for (int c = 0; c < 3; c++) {
+                    if (channels.contains(order[c])) {
+                        decodeValues(new BitReader(in, start, chunk.sizes[c + 1]), columns.values[c], chunk.count);
+                    } else {
+                        Arrays.fill(columns.values[c], Double.NaN);
+                    }
+                    start += chunk.sizes[c + 1];
+                }
+                if (channels.contains(MeasurementSample.Channel.STATUS)) {
+                    decodeStatuses(new BitReader(in, start, chunk.sizes[4]), columns.statuses, chunk.count);
+                }
+                return columns;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                throw new UncheckedIOException(new IOException("Chunk at " + chunk.position + " is damaged - " + file, e));
+            }
+        }
+
+        /**
+         * Method that closes the file
+         * @throws IOException - if the file can not be closed
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Method that converts files of the measurement recorder to one capture file
+     * @param directory - directory of the recorder. Example - "Paths.get("records")"
+     * @param file - capture file. Example - "Paths.get("discharge.cap")"
+     * @return - number of samples
+     * @throws IOException - if files can not be read or written
+     */
+    public static long convert(Path directory, Path file) throws IOException {
+        try (Writer writer = new Writer(file)) {
+            for (MeasurementRecorder.FileEntry entry : MeasurementRecorder.readIndex(directory)) {
+                MeasurementRecorder.readFile(directory.resolve(entry.getFileName()), writer);
+            }
+            return writer.getSampleCount();
+        }
+    }
+
+    /**
+     * Method that converts the directory of the recorder to the capture file
+     * @param args - "RECORD_DIR FILE". Example - "records discharge.cap"
+     */
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.out.println("Usage - java main.CaptureFile RECORD_DIR FILE");
+            return;
+        }
+        try {
+            long count = convert(Paths.get(args[0]), Paths.get(args[1]));
+            long size = Files.size(Paths.get(args[1]));
+            System.out.printf("Samples - %d, size - %d bytes, %.2f bytes per sample%n", count, size,
+                    count == 0 ? 0.0 : (double) size / count);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("EXCEPTION - " + e.getMessage());
+        }
+    }
+
+    private static void decodeTimes(BitReader in, long first, long[] times, int count) {
+        times[0] = first;
+        long delta = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.read(1) != 0) {
+                if (in.read(1) == 0) {
+                    delta += in.read(7) - 63;
+                } else if (in.read(1) == 0) {
+                    delta += in.read(9) - 255;
+                } else if (in.read(1) == 0) {
+                    delta += in.read(12) - 2047;
+                } else {
+                    delta += in.read(64);
+                }
+            }
+            times[i] = times[i - 1] + delta;
+        }
+    }
+
+    private static void decodeValues(BitReader in, double[] column, int count) {
+        long value = in.read(64);
+        column[0] = Double.longBitsToDouble(value);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.read(1) != 0) {
+                if (in.read(1) != 0) {
+                    leading = (int) in.read(5);
+                    trailing = 64 - leading - ((int) in.read(6) + 1);
+                }
+                value ^= in.read(64 - leading - trailing) << trailing;
+            }
+            column[i] = Double.longBitsToDouble(value);
+        }
+    }
+
+    private static void decodeStatuses(BitReader in, int[] statuses, int count) {
+        int i = 0;
+        while (i < count) {
+            int run = in.readVarint();
+            int status = in.readVarint();
+            if (run < 1 || run > count - i) {
+                throw new IllegalStateException("Wrong run of statuses");
+            }
+            Arrays.fill(statuses, i, i + run, status);
+            i += run;
+        }
+    }
+
+    /**
+     * decoded columns of one chunk
+     */
+    private static final class Columns {
+        private final int count;
+        private final long[] times;
+        private final double[][] values;
+        private final int[] statuses;
+
+        private Columns(int count) {
+            this.count = count;
+            this.times = new long[count];
+            this.values = new double[3][count];
+            this.statuses = new int[count];
+        }
+    }
+
+    /**
+     * writer of bits from the highest one, columns are aligned to bytes
+     */
+    private static final class BitWriter {
+        private byte[] data = new byte[1 << 16];
+        private int size;
+        private long buffer;
+        private int bufferBits;
+
+        private void reset() {
+            size = 0;
+            buffer = 0;
+            bufferBits = 0;
+        }
+
+        /**
+         * Method that writes low bits of the value
+         * @param value - value
+         * @param bits - number of bits from 1 to 64
+         */
+        private void write(long value, int bits) {
+            while (bits > 0) {
+                int n = Math.min(bits, 64 - bufferBits);
+                long part = n == bits ? value : value >>> (bits - n);
+                if (n == 64) {
+                    buffer = part;
+                } else {
+                    buffer = (buffer << n) | (part & ((1L << n) - 1));
+                }
+                bufferBits += n;
+                bits -= n;
+                if (bufferBits == 64) {
+                    put(buffer, 8);
+                    buffer = 0;
+                    bufferBits = 0;
+                }
+            }
+        }
+
+        private void writeVarint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80, 8);
+                value >>>= 7;
+            }
+            write(value, 8);
+        }
+
+        /**
+         * Method that writes the rest of bits padded by zeros
+         * @return - number of written bytes
+         */
+        private int align() {
+            if (bufferBits > 0) {
+                put(buffer << (64 - bufferBits), (bufferBits + 7) / 8);
+                buffer = 0;
+                bufferBits = 0;
+            }
+            return size;
+        }
+
+        private void put(long bits, int bytes) {
+            if (size + 8 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            for (int i = 0; i < bytes; i++) {
+                data[size++] = (byte) (bits >>> (56 - i * 8));
+            }
+        }
+    }
+
+    /**
+     * reader of bits from the highest one
+     */
+    private static final class BitReader {
+        private final ByteBuffer in;
+        private final int end;
+        private int position;
+        private long buffer;
+        private int bufferBits;
+
+        private BitReader(ByteBuffer in, int start, int length) {
+            this.in = in;
+            this.position = start;
+            this.end = start + length;
+        }
+
+        /**
+         * Method that reads bits
+         * @param bits - number of bits from 1 to 64
+         * @return - value in low bits
+         */
+        private long read(int bits) {
+            long result = 0;
+            while (bits > 0) {
+                if (bufferBits == 0) {
+                    fill();
+                }
+                int n = Math.min(bits, bufferBits);
+                long part = buffer >>> (64 - n);
+                buffer = n == 64 ? 0 : buffer << n;
+                bufferBits -= n;
+                result = n == 64 ? part : (result << n) | part;
+                bits -= n;
+            }
+            return result;
+        }
+
+        private int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = (int) read(8);
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Wrong varint");
+        }
+
+        private void fill() {
+            if (end - position >= 8) {
+                buffer = in.getLong(position);
+                position += 8;
+                bufferBits = 64;
+                return;
+            }
+            if (position >= end) {
+                throw new IllegalStateException("Column is truncated");
+            }
+            buffer = 0;
+            bufferBits = 0;
+            while (position < end) {
+                buffer |= (in.get(position++) & 0xFFL) << (56 - bufferBits);
+                bufferBits += 8;
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package main;
+
+import javax.management.ConstructorParameters;
+
+/**
+ * Class which holds statistics of one SCPI command type at one moment. It is shown by JMX clients
+ * as a composite value, so it has only getters
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class CommandStatistics {
+
+    private final String command;
+    private final long count;
+    private final long answerCount;
+    private final long timeoutCount;
+    private final long bytesOut;
+    private final long bytesIn;
+    private final double meanLatency;
+    private final double latencyP50;
+    private final double latencyP99;
+    private final double latencyP999;
+    private final double maxLatency;
+
+    /**
+     * Class constructor
+     * @param command - command header, compound queries are whole. Example - "CURR"
+     * @param count - number of sent commands
+     * @param answerCount - number of received answers
+     * @param timeoutCount - number of answers which were not received in time
+     * @param bytesOut - sent bytes with line terminators
+     * @param bytesIn - received bytes with line terminators
+     * @param meanLatency - average time from query to answer in µs
+     * @param latencyP50 - median time from query to answer in µs
+     * @param latencyP99 - 99th percentile of time from query to answer in µs
+     * @param latencyP999 - 99.9th percentile of time from query to answer in µs
+     * @param maxLatency - the longest time from query to answer in µs
+     */
+    @ConstructorParameters({"command", "count", "answerCount", "timeoutCount", "bytesOut", "bytesIn",
+            "meanLatency", "latencyP50", "latencyP99", "latencyP999", "maxLatency"})
+    public CommandStatistics(String command, long count, long answerCount, long timeoutCount, long bytesOut,
+                             long bytesIn, double meanLatency, double latencyP50, double latencyP99,
+                             double latencyP999, double maxLatency) {
+        this.command = command;
+        this.count = count;
+        this.answerCount = answerCount;
+        this.timeoutCount = timeoutCount;
+        this.bytesOut = bytesOut;
+        this.bytesIn = bytesIn;
+        this.meanLatency = meanLatency;
+        this.latencyP50 = latencyP50;
+        this.latencyP99 = latencyP99;
+        this.latencyP999 = latencyP999;
+        this.maxLatency = maxLatency;
+    }
+
+    /**
+     * Method that returns command header
+     * @return - command header. Example - "SOUR:CURR?"
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * Method that returns number of sent commands
+     * @return - number of commands
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Method that returns number of received answers
+     * @return - number of answers
+     */
+    public long getAnswerCount() {
+        return answerCount;
+    }
+
+    /**
+     * Method that returns number of answers which were not received in time
+     * @return - number of timeouts
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    /**
+     * Method that returns sent bytes
+     * @return - number of bytes
+     */
+    public long getBytesOut() {
+        return bytesOut;
+    }
+
+    /**
+     * Method that returns received bytes
+     * @return - number of bytes
+     */
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    /**
+     * Method that returns average time from query to answer
+     * @return - time in µs
+     */
+    public double getMeanLatency() {
+        return meanLatency;
+    }
+
+    /**
+     * Method that returns median time from query to answer
+     * @return - time in µs
+     */
+    public double getLatencyP50() {
+        return latencyP50;
+    }
+
+    /**
+     * Method that returns 99th percentile of time from query to answer
+     * @return - time in µs
+     */
+    public double getLatencyP99() {
+        return latencyP99;
+    }
+
+    /**
+     * Method that returns 99.9th percentile of time from query to answer
+     * @return - time in µs
+     */
+    public double getLatencyP999() {
+        return latencyP999;
+    }
+
+    /**
+     * Method that returns the longest time from query to answer
+     * @return - time in µs
+     */
+    public double getMaxLatency() {
+        return maxLatency;
+    }
+
+    @Override
+    public String toString() {
+        return command + ": count=" + count + ", answers=" + answerCount + ", timeouts=" + timeoutCount
+                + ", out=" + bytesOut + " B, in=" + bytesIn + " B, p50=" + latencyP50 + " us, p99=" + latencyP99
+                + " us, p99.9=" + latencyP999 + " us, max=" + maxLatency + " us";
+    }
+}
@@ -0,0 +1,172 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Class which keeps the last lines of the event log. The number of lines is fixed, the oldest line is removed
+ * when a new one comes. The message equal to the previous one does not make a new line, the previous line
+ * counts it instead: "Connection is lost (x 25)". Not more than maxPerSecond new lines are added per second,
+ * the rest are dropped and reported by one line. Added lines go to the file appender if it is set
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class EventLog {
+
+    private final int CAPACITY;
+    private final int MAX_PER_SECOND;
+
+    private final String[] prefixes;
+    private final String[] texts;
+    private final int[] counts;
+    private int first;
+    private int size;
+
+    private long second = Long.MIN_VALUE;
+    private int linesInSecond;
+    private long droppedInSecond;
+    private long droppedCount;
+
+    private volatile long version;
+    private AsyncFileAppender appender;
+
+    /**
+     * Class constructor
+     * @param capacity - number of kept lines. Example - "500"
+     * @param maxPerSecond - number of new lines allowed per second. Example - "50"
+     */
+    public EventLog(int capacity, int maxPerSecond) {
+        if (capacity <= 0 || maxPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and lines per second should be positive");
+        }
+        this.CAPACITY = capacity;
+        this.MAX_PER_SECOND = maxPerSecond;
+        prefixes = new String[capacity];
+        texts = new String[capacity];
+        counts = new int[capacity];
+    }
+
+    /**
+     * Method that adds message at the current time
+     * @param prefix - text before the message which is not compared with the previous message. Example - time
+     * @param text - message. Example - "Load is on."
+     */
+    public void add(String prefix, String text) {
+        add(System.currentTimeMillis(), prefix, text);
+    }
+
+    /**
+     * Method that adds message
+     * @param time - time of the message in ms since epoch, used for the lines per second limit
+     * @param prefix - text before the message which is not compared with the previous message. Example - time
+     * @param text - message. Example - "Load is on."
+     */
+    public synchronized void add(long time, String prefix, String text) {
+        int last = size == 0 ? -1 : (first + size - 1) % CAPACITY;
+        if (last >= 0 && texts[last].equals(text)) {
+            counts[last]++;
+            prefixes[last] = prefix;
+            version++;
+            return;
+        }
+        long now = Math.floorDiv(time, 1000);
+        if (now != second) {
+            second = now;
+            linesInSecond = 0;
+            if (droppedInSecond > 0) {
+                long dropped = droppedInSecond;
+                droppedInSecond = 0;
+                addLine(last, prefix, dropped + " messages dropped");
+                last = (first + size - 1) % CAPACITY;
+            }
+        }
+        if (linesInSecond >= MAX_PER_SECOND) {
+            droppedInSecond++;
+            droppedCount++;
+            return;
+        }
+        linesInSecond++;
+        addLine(last, prefix, text);
+    }
+
+    /**
+     * Method that adds new line. If the previous line has collapsed repeats, their number goes to the file
+     * @param last - index of the previous line, -1 if there is no one
+     * @param prefix - text before the message
+     * @param text - message
+     */
+    private void addLine(int last, String prefix, String text) {
+        if (appender != null && last >= 0 && counts[last] > 1) {
+            appender.append(prefixes[last] + "Previous message repeated " + counts[last] + " times");
+        }
+        int index;
+        if (size < CAPACITY) {
+            index = (first + size) % CAPACITY;
+            size++;
+        } else {
+            index = first;
+            first = (first + 1) % CAPACITY;
+        }
+        prefixes[index] = prefix;
+        texts[index] = text;
+        counts[index] = 1;
+        version++;
+        if (appender != null) {
+            appender.append(prefix + text);
+        }
+    }
+
+    /**
+     * Method that returns kept lines from the oldest one
+     * @return - lines, repeats are shown as " (x N)" at the end
+     */
+    public synchronized List<String> getLines() {
+        List<String> lines = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int index = (first + i) % CAPACITY;
+            lines.add(getLine(index));
+        }
+        return lines;
+    }
+
+    /**
+     * Method that returns kept lines as one text
+     * @return - lines from the oldest one, every line ends with "\n"
+     */
+    public synchronized String getText() {
+        StringBuilder text = new StringBuilder(size * 64);
+        for (int i = 0; i < size; i++) {
+            text.append(getLine((first + i) % CAPACITY)).append('\n');
+        }
+        return text.toString();
+    }
+
+    private String getLine(int index) {
+        return counts[index] > 1 ? prefixes[index] + texts[index] + " (x " + counts[index] + ")"
+                : prefixes[index] + texts[index];
+    }
+
+    /**
+     * Method that returns number which changes every time the log is changed
+     * @return - version of the log
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Method that returns number of messages dropped by the lines per second limit
+     * @return - number of dropped messages
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Method that sets appender for the file copy of the log
+     * @param appender - file appender, null to stop writing the file
+     */
+    public synchronized void setAppender(AsyncFileAppender appender) {
+        this.appender = appender;
+    }
+}
@@ -0,0 +1,80 @@
+package main;
+
+import javax.swing.Timer;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Class which applies UI changes on the Event Dispatch Thread at the fixed frame rate.
+ * Any thread can post changes, they are run together by the next frame. Frame tasks are run by every frame
+ * and show the latest state only, so the UI load does not depend on how often the state changes
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class FramePublisher {
+
+    private final Timer timer;
+    private final Queue<Runnable> posted = new ConcurrentLinkedQueue<>();
+    private final List<Runnable> frameTasks = new CopyOnWriteArrayList<>();
+
+    /**
+     * Class constructor
+     * @param frameRate - frames per second. Example - "30"
+     */
+    public FramePublisher(int frameRate) {
+        if (frameRate <= 0 || frameRate > 1000) {
+            throw new IllegalArgumentException("Frame rate should be from 1 to 1000");
+        }
+        timer = new Timer(1000 / frameRate, e -> runFrame());
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Method that starts frames
+     */
+    public void start() {
+        timer.start();
+    }
+
+    /**
+     * Method that stops frames. Posted changes which are not run yet stay in the queue
+     */
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Method that posts UI change. It can be called by any thread
+     * @param change - change which is run on the Event Dispatch Thread by the next frame
+     */
+    public void post(Runnable change) {
+        posted.add(change);
+    }
+
+    /**
+     * Method that adds task which is run on the Event Dispatch Thread by every frame
+     * @param task - frame task. It should be quick and should not wait for I/O
+     */
+    public void addFrameTask(Runnable task) {
+        frameTasks.add(task);
+    }
+
+    /**
+     * Method of one frame: posted changes in the order of posting, then frame tasks
+     */
+    private void runFrame() {
+        Runnable change;
+        while ((change = posted.poll()) != null) {
+            try {
+                change.run();
+            } catch (RuntimeException e) {
+                System.out.println("EXCEPTION - UI change failed: " + e);
+            }
+        }
+        for (Runnable task : frameTasks) {
+            task.run();
+        }
+    }
+}
@@ -7,7 +7,12 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -18,16 +23,61 @@ import java.net.UnknownHostException;
 public class GUI {
 
     /**
-     * instances for validator, date formatter and electronic load
+     * instances for validator, time stamps, electronic load and its reconnection policy
      */
-    private final Validation validation = new Validation();
-    private final DateFormatter date = new DateFormatter();
     private final IT8906A_1200_240 load = new IT8906A_1200_240();
+    private final Validation validation = new Validation(load.getModel());
+    private final TimestampService timestamps = TimestampService.getDefault();
+    private final ReconnectPolicy reconnectPolicy = ReconnectPolicy.getDefault();
 
     /**
-     * instance of thread which measures physical values
+     * log shown in infoText area: kept lines, new lines per second, file copy of the log
      */
-    private Thread measurementThread;
+    private final EventLog eventLog = new EventLog(500, 50);
+    private final String LOG_FILE = "itech_client.log";
+
+    /**
+     * version of the log shown in infoText area
+     */
+    private long shownLogVersion = -1;
+
+    /**
+     * engine which measures physical values on its own thread, measurements per second
+     */
+    private final double MEASUREMENT_RATE = 10;
+    private final SamplingEngine samplingEngine = new SamplingEngine(load, MEASUREMENT_RATE, 1024);
+
+    /**
+     * server of measurements for other consumers, null if it is not started
+     */
+    private MeasurementServer measurementServer;
+
+    /**
+     * recorder of measurements to files, null if it is not started. Files are rotated by size in bytes and time in ms
+     */
+    private final long RECORD_FILE_SIZE = 1L << 30;
+    private final long RECORD_FILE_DURATION = 24L * 60 * 60 * 1000;
+    private MeasurementRecorder measurementRecorder;
+
+    /**
+     * thread for all other requests to the load, so the Event Dispatch Thread never waits for the socket
+     */
+    private final ExecutorService loadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "load-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * UI changes from other threads are applied by frames, frames per second
+     */
+    private final int FRAME_RATE = 30;
+    private final FramePublisher framePublisher = new FramePublisher(FRAME_RATE);
+
+    /**
+     * number of the sample shown in measurement text fields, -1 if fields are cleared
+     */
+    private long shownSample = -1;
 
     /**
      * GUI variables for objects
@@ -89,14 +139,64 @@ public class GUI {
         setConnectionPanel();
         setInfoPanel();
         setMainPanel();
+        samplingEngine.setReconnectPolicy(reconnectPolicy);
+        samplingEngine.subscribe(protectionCheck);
+        framePublisher.addFrameTask(this::showMeasurement);
+        framePublisher.addFrameTask(this::showEventLog);
+        try {
+            AsyncFileAppender appender = new AsyncFileAppender(Paths.get(LOG_FILE), 4096);
+            eventLog.setAppender(appender);
+            // queued lines are written and the file is closed when the client exits
+            Runtime.getRuntime().addShutdownHook(new Thread(appender::close));
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - Failed to open log file " + LOG_FILE);
+        }
     }
 
     /**
-     * Method that makes mainFrame visible
+     * Method that makes mainFrame visible and shows connection events of the sampling engine
      */
     public void start() {
+        samplingEngine.setEventHandler(this::addInfoText);
         mainFrame.add(mainPanel);
         mainFrame.setVisible(true);
+        framePublisher.start();
+    }
+
+    /**
+     * Method that serves measurements of the GUI connection over HTTP, so dashboards do not open
+     * their own connections to the load. The server is stopped when the client exits
+     * @param address - local address of the port, loopback keeps measurements on this host.
+     *                Example - "InetAddress.getLoopbackAddress()"
+     * @param port - HTTP port. Example - "8080"
+     */
+    public void startMeasurementServer(InetAddress address, int port) {
+        try {
+            measurementServer = new MeasurementServer(samplingEngine.getBuffer(), address, port);
+            measurementServer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(measurementServer::stop));
+            addInfoText("Measurements are served on http://" + address.getHostAddress() + ":"
+                    + measurementServer.getPort());
+        } catch (IOException e) {
+            addInfoText("EXCEPTION - Failed to open http port " + port + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method that records measurements of the GUI connection to files of the directory. Files are rotated
+     * every RECORD_FILE_SIZE bytes or RECORD_FILE_DURATION ms, the recorder is stopped when the client exits
+     * @param directory - directory of records. Example - "Paths.get("records")"
+     */
+    public void startRecorder(Path directory) {
+        try {
+            measurementRecorder = new MeasurementRecorder(samplingEngine.getBuffer(), directory, RECORD_FILE_SIZE,
+                    RECORD_FILE_DURATION);
+            measurementRecorder.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(measurementRecorder::close));
+            addInfoText("Measurements are recorded to " + directory.toAbsolutePath());
+        } catch (IOException e) {
+            addInfoText("EXCEPTION - Failed to record measurements to " + directory + " - " + e.getMessage());
+        }
     }
 
     /**
@@ -435,92 +535,133 @@ public class GUI {
     }
 
     /**
-     * Method for measurement update. This runnable method goes into measurement Thread
+     * Subscriber of the sampling engine which turns the load off when protection is tripped.
+     * It is called by the sampling thread, so the load is turned off by the load thread
      */
-    public Runnable measurementUpdate = new Runnable() {
+    private final SampleConsumer protectionCheck = new SampleConsumer() {
         @Override
-        public void run() {
-            while (!measurementThread.isInterrupted()) {
-                if(load.isDeviceConnected()) {
-                    String error = load.getProtectionError();
-                    if (error.equals("0")) {
-                        try {
-                            Thread.sleep(100);
-                            measurementVoltage.setText(load.getVoltage());
-                            Thread.sleep(100);
-                            measurementCurrent.setText(load.getCurrent());
-                            Thread.sleep(100);
-                            measurementPower.setText(load.getPower());
-                        } catch (InterruptedException e) {
-                            measurementThread.interrupt();
-                        }
-                    } else {
-                        load.setDeviceOff();
-                        load.resetProtection();
-                        addInfoText(error);
-                        setupButton.setEnabled(true);
-                        protectionButton.setEnabled(true);
-                        onButton.setEnabled(true);
-                        measurementThread.interrupt();
-                    }
-                } else {
-                    addInfoText("Connection is not established or lost. Try to connect");
-                }
+        public void accept(long time, double voltage, double current, double power, int status) {
+            if (status == 0) {
+                return;
+            }
+            String error = IT8906A_1200_240.getProtectionErrorText(status);
+            if (error.equals("0")) {
+                return;
             }
-            measurementVoltage.setText("-");
-            measurementCurrent.setText("-");
-            measurementPower.setText("-");
+            samplingEngine.stop();
+            loadExecutor.execute(() -> {
+                stopMeasurement();
+                load.setDeviceOff();
+                load.resetProtection();
+                addInfoText(error);
+                framePublisher.post(() -> {
+                    setupButton.setEnabled(true);
+                    protectionButton.setEnabled(true);
+                    onButton.setEnabled(true);
+                });
+            });
         }
     };
 
     /**
-     * onButton listener. Turns the load on. Starts new measurement thread
+     * Frame task that shows the latest sample of the sampling engine. Samples between two frames are not shown
+     */
+    private void showMeasurement() {
+        SampleRingBuffer buffer = samplingEngine.getBuffer();
+        long published = buffer.getPublished();
+        if (!samplingEngine.isRunning()) {
+            if (shownSample != -1) {
+                measurementVoltage.setText("-");
+                measurementCurrent.setText("-");
+                measurementPower.setText("-");
+                shownSample = -1;
+            }
+        } else if (published != shownSample && published > 0) {
+            MeasurementSample sample = new MeasurementSample();
+            buffer.getLatest(sample);
+            measurementVoltage.setText(String.valueOf(sample.getVoltage()));
+            measurementCurrent.setText(String.valueOf(sample.getCurrent()));
+            measurementPower.setText(String.valueOf(sample.getPower()));
+            shownSample = published;
+        }
+    }
+
+    /**
+     * Frame task that shows the event log if it is changed since the previous frame
+     */
+    private void showEventLog() {
+        long version = eventLog.getVersion();
+        if (version != shownLogVersion) {
+            infoText.setText(eventLog.getText());
+            infoText.setCaretPosition(infoText.getDocument().getLength());
+            shownLogVersion = version;
+        }
+    }
+
+    /**
+     * Method that stops the sampling engine and waits until the measurement in progress is finished.
+     * It is called by the load thread
+     */
+    private void stopMeasurement() {
+        samplingEngine.stop();
+        try {
+            samplingEngine.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * onButton listener. Turns the load on. Starts the sampling engine
      */
     private class onButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if(load.isDeviceConnected()) {
-                setupButton.setEnabled(false);
-                protectionButton.setEnabled(false);
-                if (!load.isDeviceOn()) {
-                    load.setDeviceOn();
-                    onButton.setEnabled(false);
-                    measurementThread = new Thread(measurementUpdate);
-                    measurementThread.start();
-                    addInfoText("Load is on");
+            setupButton.setEnabled(false);
+            protectionButton.setEnabled(false);
+            onButton.setEnabled(false);
+            loadExecutor.execute(() -> {
+                if (load.isDeviceConnected()) {
+                    if (!load.isDeviceOn()) {
+                        load.setDeviceOn();
+                        samplingEngine.start();
+                        addInfoText("Load is on");
+                    } else {
+                        addInfoText("Load is already on");
+                    }
                 } else {
-                    addInfoText("Load is already on");
+                    addInfoText("Connection is not established or lost. Try to connect");
+                    framePublisher.post(() -> onButton.setEnabled(true));
                 }
-            } else {
-                addInfoText("Connection is not established or lost. Try to connect");
-            }
+            });
         }
     }
 
     /**
-     * offButton listener. Turns the load off. Interrupts measurement thread
+     * offButton listener. Turns the load off. Stops the sampling engine
      */
     private class offButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (load.isDeviceConnected()) {
-                onButton.setEnabled(true);
-                if (load.isDeviceOn()) {
-                    measurementThread.interrupt();
-                    load.setDeviceOff();
-                    addInfoText("Load is off");
+            loadExecutor.execute(() -> {
+                stopMeasurement();
+                if (load.isDeviceConnected()) {
+                    if (load.isDeviceOn()) {
+                        load.setDeviceOff();
+                        addInfoText("Load is off");
+                    } else {
+                        load.setDeviceOff();
+                        addInfoText("Load is already off");
+                    }
+                    framePublisher.post(() -> {
+                        onButton.setEnabled(true);
+                        setupButton.setEnabled(true);
+                        protectionButton.setEnabled(true);
+                    });
                 } else {
-                    load.setDeviceOff();
-                    addInfoText("Load is already off");
+                    addInfoText("Connection is not established or lost. Try to connect");
                 }
-                setupButton.setEnabled(true);
-                protectionButton.setEnabled(true);
-                measurementVoltage.setText("-");
-                measurementCurrent.setText("-");
-                measurementPower.setText("-");
-            } else {
-                addInfoText("Connection is not established or lost. Try to connect");
-            }
+            });
         }
     }
 
@@ -530,32 +671,44 @@ public class GUI {
     private class setupButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (CVradioButton.isSelected()) {
-                if (validation.isVoltageValidate(setupVoltage.getText())) {
-                    addInfoText("Setup voltage value validation success");
-                    load.setVoltage(setupVoltage.getText());
-                    addInfoText("Setup voltage" + setupVoltage.getText() + " V");
-                } else {
-                    addInfoText("Setup voltage value validation failed");
+            boolean voltageSelected = CVradioButton.isSelected();
+            boolean currentSelected = CCradioButton.isSelected();
+            boolean resistanceSelected = CRradioButton.isSelected();
+            String voltage = setupVoltage.getText();
+            String current = setupCurrent.getText();
+            String resistance = setupResistance.getText();
+            loadExecutor.execute(() -> {
+                if (voltageSelected) {
+                    ValidationResult result = validation.validateVoltage(voltage);
+                    if (result.isValid()) {
+                        addInfoText("Setup voltage value validation success");
+                        load.setVoltage(result.getValue());
+                        addInfoText("Setup voltage " + voltage + " V");
+                    } else {
+                        addInfoText("Setup voltage value validation failed. " + result.getReason());
+                    }
                 }
-            }
-            if (CCradioButton.isSelected()) {
-                if (validation.isCurrentValidate(setupCurrent.getText())) {
-                    addInfoText("Setup current value validation success");
-                    load.setCurrent(setupCurrent.getText());
-                    addInfoText("Setup current " + setupCurrent.getText() + " A");
-                }else {
-                    addInfoText("Setup current value validation failed");
+                if (currentSelected) {
+                    ValidationResult result = validation.validateCurrent(current);
+                    if (result.isValid()) {
+                        addInfoText("Setup current value validation success");
+                        load.setCurrent(result.getValue());
+                        addInfoText("Setup current " + current + " A");
+                    }else {
+                        addInfoText("Setup current value validation failed. " + result.getReason());
+                    }
                 }
-            }
-            if (CRradioButton.isSelected()) {
-                if (validation.isResistanceValidate(setupResistance.getText())) {
-                    addInfoText("Setup resistance value validation success");
-                    load.setResistance(setupResistance.getText());
-                    addInfoText("Setup resistance " + setupResistance.getText() + " Ohm");
+                if (resistanceSelected) {
+                    ValidationResult result = validation.validateResistance(resistance);
+                    if (result.isValid()) {
+                        addInfoText("Setup resistance value validation success");
+                        load.setResistance(result.getValue());
+                        addInfoText("Setup resistance " + resistance + " Ohm");
+                    } else {
+                        addInfoText("Setup resistance value validation failed. " + result.getReason());
+                    }
                 }
-                addInfoText("Setup resistance value validation failed");
-            }
+            });
         }
     }
 
@@ -565,113 +718,138 @@ public class GUI {
     private class protectionButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            if(load.isDeviceConnected()) {
-                if (validation.isCurrentValidate(protectionCurrent.getText())) {
-                    addInfoText("Protection current value validation success");
-                    load.setProtectionCurrent(protectionCurrent.getText());
-                    addInfoText("Protection current " + protectionCurrent.getText() + " A");
-                } else {
-                    addInfoText("Protection current value validation failed");
-                }
-                if (validation.isPowerValidate(protectionPower.getText())) {
-                    addInfoText("Protection power value validation success");
-                    load.setProtectionPower(protectionPower.getText());
-                    addInfoText("Protection power " + protectionPower.getText() + " W");
+            String current = protectionCurrent.getText();
+            String power = protectionPower.getText();
+            loadExecutor.execute(() -> {
+                if(load.isDeviceConnected()) {
+                    ValidationResult currentResult = validation.validateCurrent(current);
+                    if (currentResult.isValid()) {
+                        addInfoText("Protection current value validation success");
+                        load.setProtectionCurrent(currentResult.getValue());
+                        addInfoText("Protection current " + current + " A");
+                    } else {
+                        addInfoText("Protection current value validation failed. " + currentResult.getReason());
+                    }
+                    ValidationResult powerResult = validation.validatePower(power);
+                    if (powerResult.isValid()) {
+                        addInfoText("Protection power value validation success");
+                        load.setProtectionPower(powerResult.getValue());
+                        addInfoText("Protection power " + power + " W");
+                    } else {
+                        addInfoText("Protection power value validation failed. " + powerResult.getReason());
+                    }
                 } else {
-                    addInfoText("Protection power value validation failed");
+                    addInfoText("Connection is not established or lost. Try to connect");
                 }
-            } else {
-                addInfoText("Connection is not established or lost. Try to connect");
-            }
+            });
         }
     }
 
     /**
-     * connectButton listener. Connects client to the load
+     * connectButton listener. Validates connection parameters and connects client to the load by the load thread
      */
     private class connectButtonListener implements ActionListener{
         @Override
         public void actionPerformed(ActionEvent e) {
             addInfoText("--------------------------------");
-            if (validation.isIP4validate(ipAddressText.getText())) {
+            String ipAddress = ipAddressText.getText();
+            String port = portText.getText();
+            String timeout = timeoutText.getText();
+            ValidationResult ipResult = validation.validateIP4(ipAddress);
+            ValidationResult portResult = validation.validatePort(port);
+            ValidationResult timeoutResult = validation.validateTimeout(timeout);
+            if (ipResult.isValid()) {
                 addInfoText("IP4 validation success");
-                if (validation.isPortValidate(portText.getText())) {
+                if (portResult.isValid()) {
                     addInfoText("Port validation success");
-                    if (validation.isTimeoutValidate(timeoutText.getText())) {
+                    if (timeoutResult.isValid()) {
                         addInfoText("Timeout validation success");
-                        addInfoText("Trying to connect to " + ipAddressText.getText());
-                        load.setConnection(new TCPConnection(ipAddressText.getText(), Integer.parseInt(portText.getText()), Integer.parseInt(timeoutText.getText())));
-                        try {
-                            load.connect();
-                            connectButton.setEnabled(false);
-                            setMenuEnabled(true);
-                            addInfoText("Connection successfully established");
-                            setupVoltage.setText(load.getSetupVoltage());
-                            setupCurrent.setText(load.getSetupCurrent());
-                            setupResistance.setText(load.getSetupResistance());
-
-                            protectionCurrent.setText(load.getProtectionCurrent());
-                            protectionPower.setText(load.getProtectionPower());
-
-                            load.setFunctionCC();
-
-                        } catch (IOException ex) {
-                            try {
-                                addInfoText("Failed to connect to " + ipAddressText.getText() + ". Make sure your PC is located in the same LAN" +
-                                        " as I-Tech device. Also make sure that I-Tech device is on and connected to LAN." +
-                                        " Your current IP is " + load.getPC_IP());
-                            } catch (UnknownHostException exc) {
-                                addInfoText("Getting IP of current PC failed. Check your network or LAN device");
-                            }
-                        }
+                        addInfoText("Trying to connect to " + ipAddress);
+                        connectButton.setEnabled(false);
+                        loadExecutor.execute(() -> connect(ipAddress, portResult.getIntValue(), timeoutResult.getIntValue()));
                     }
                     else {
-                        addInfoText("Timeout validation failed. Check timeout and try again");
+                        addInfoText("Timeout validation failed. " + timeoutResult.getReason());
                     }
                 }
                 else {
-                    addInfoText("Port validation failed. Check port and try again");
+                    addInfoText("Port validation failed. " + portResult.getReason());
                 }
             }
             else {
-                addInfoText("IP4 validation failed. Check IP4 and try again");
+                addInfoText("IP4 validation failed. " + ipResult.getReason());
             }
         }
     }
 
+    /**
+     * Method that connects client to the load and reads its state. It is called by the load thread
+     * @param ipAddress - IP address of the load. Example - "192.168.0.1"
+     * @param port - port number. Example - "30000"
+     * @param timeout - timeout parameter in ms. Example - "1000"
+     */
+    private void connect(String ipAddress, int port, int timeout) {
+        load.setConnection(new TCPConnection(ipAddress, port, timeout));
+        try {
+            load.connect();
+            addInfoText("Connection successfully established");
+            LoadState state = load.bootstrap();
+            if (state == null) {
+                addInfoText("Reading load state failed");
+            }
+            load.setFunctionCC();
+            framePublisher.post(() -> {
+                setMenuEnabled(true);
+                if (state != null) {
+                    setupVoltage.setText(String.valueOf(state.getSetupVoltage()));
+                    setupCurrent.setText(String.valueOf(state.getSetupCurrent()));
+                    setupResistance.setText(String.valueOf(state.getSetupResistance()));
+
+                    protectionCurrent.setText(String.valueOf(state.getProtectionCurrent()));
+                    protectionPower.setText(String.valueOf(state.getProtectionPower()));
+                }
+            });
+        } catch (IOException ex) {
+            try {
+                addInfoText("Failed to connect to " + ipAddress + ". Make sure your PC is located in the same LAN" +
+                        " as I-Tech device. Also make sure that I-Tech device is on and connected to LAN." +
+                        " Your current IP is " + load.getPC_IP());
+            } catch (UnknownHostException exc) {
+                addInfoText("Getting IP of current PC failed. Check your network or LAN device");
+            }
+            framePublisher.post(() -> connectButton.setEnabled(true));
+        }
+    }
+
     /**
      * disconnectButton listener. Disconnects client from the load
      */
     private class disconnectButtonListener implements ActionListener{
         @Override
         public void actionPerformed(ActionEvent e) {
-            if (load.isDeviceConnected()) {
-                if (load.isDeviceOn()) {
-                    if (!measurementThread.isInterrupted()) {
-                        measurementThread.interrupt();
-                    }
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException ex) {
-                        ex.printStackTrace();
-                    }
+            loadExecutor.execute(() -> {
+                stopMeasurement();
+                if (load.isDeviceConnected()) {
+                    load.setDeviceOff();
+                    load.disconnect();
+                    addInfoText("Connection successfully closed");
+                    framePublisher.post(() -> {
+                        setMenuEnabled(false);
+                        connectButton.setEnabled(true);
+                    });
+                } else {
+                    addInfoText("Connection is already closed");
                 }
-                load.setDeviceOff();
-                load.disconnect();
-                setMenuEnabled(false);
-                connectButton.setEnabled(true);
-                addInfoText("Connection successfully closed");
-            } else {
-                addInfoText("Connection is already closed");
-            }
+            });
         }
     }
 
     /**
-     * Method for adding text to infoText area
+     * Method for adding text to the event log shown in infoText area. It can be called by any thread,
+     * text is shown by the next frame
      * @param text - text which goes in the info
      */
     public void addInfoText (String text) {
-        infoText.append(date.getDateAndTime() + text + ".\n");
+        eventLog.add(timestamps.getDateAndTime(), text + ".");
     }
 }
\ No newline at end of file
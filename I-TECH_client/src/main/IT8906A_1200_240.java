@@ -1,8 +1,11 @@
 package main;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.net.Inet4Address;
 import java.net.UnknownHostException;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Class which describes IT8906A_1200_240 functions, commands and attitude
@@ -11,10 +14,80 @@ import java.net.UnknownHostException;
  */
 public class IT8906A_1200_240 {
 
+    /**
+     * all measured channels. The compound query is "MEAS:VOLT?;:MEAS:CURR?;:MEAS:POW?;:STAT:QUES:COND?",
+     * the load answers with values separated by ";"
+     */
+    private static final Set<MeasurementSample.Channel> ALL_CHANNELS = EnumSet.allOf(MeasurementSample.Channel.class);
+
+    /**
+     * compound query for the initial state of the load. The fields of the answer go in the same order
+     */
+    private static final String BOOTSTRAP_QUERY =
+            "SOUR:VOLT?;:SOUR:CURR?;:SOUR:RES?;:CURR:PROT?;:POW:PROT?;:CURR:PROT:STAT?;:FUNC?;:INP?";
+    private static final LoadState.Value[] BOOTSTRAP_VALUES = {
+            LoadState.Value.SETUP_VOLTAGE, LoadState.Value.SETUP_CURRENT, LoadState.Value.SETUP_RESISTANCE,
+            LoadState.Value.PROTECTION_CURRENT, LoadState.Value.PROTECTION_POWER
+    };
+
+    /**
+     * expected shape of the answer. The answer of another shape means the answer belongs to another query
+     */
+    private enum Answer {
+        NUMBER, INTEGER, BOOLEAN
+    }
+
     /**
      * instances for TCPconnection
      */
-    private TCPConnection connection;
+    private InstrumentConnection connection;
+
+    /**
+     * shadow copy of the load state. Redundant commands are not sent, it is replayed after reconnection
+     */
+    private final LoadState state = new LoadState();
+
+    /**
+     * number of detected desynchronizations of the query/answer stream and the fence which restores the order
+     */
+    private volatile long resyncCount;
+    private final SCPIFence fence = new SCPIFence();
+
+    /**
+     * number of answers in a row which have not come in time (fences included) and the number after which
+     * the link is taken for dead and the connection is closed, 0 - never close
+     */
+    private int timeouts;
+    private volatile int timeoutLimit = 2;
+
+    /**
+     * time in ms during which setpoints and protection limits are read from the shadow state, 0 - always ask the load
+     */
+    private volatile long cacheTtl;
+
+    /**
+     * number of commands that were not sent because the load already had the value,
+     * number of reads answered from the shadow state
+     */
+    private volatile long suppressedCount;
+    private volatile long cachedReadCount;
+
+    /**
+     * reusable buffer for commands with numeric parameter
+     */
+    private final StringBuilder command = new StringBuilder(32);
+
+    /**
+     * source of sample times
+     */
+    private final TimestampService timestamps = TimestampService.getDefault();
+
+    /**
+     * channels of the last measurement and their compound query. The query is built again only when channels change
+     */
+    private Set<MeasurementSample.Channel> measuredChannels = EnumSet.noneOf(MeasurementSample.Channel.class);
+    private MeasurementSample.Channel[] measuredOrder = new MeasurementSample.Channel[0];
+    private String measurementQuery = "";
 
     /**
      * Class constructor
@@ -23,11 +96,19 @@ public class IT8906A_1200_240 {
 
     }
 
+    /**
+     * Method that returns limits of the load
+     * @return - load model
+     */
+    public LoadModel getModel() {
+        return LoadModel.IT8906A_1200_240;
+    }
+
     /**
      * Method for setting up connection
-     * @param connection - TCPconnection instance
+     * @param connection - TCPConnection or NIOConnection instance
      */
-    public void setConnection(TCPConnection connection) {
+    public void setConnection(InstrumentConnection connection) {
         this.connection = connection;
     }
 
@@ -37,7 +118,16 @@ public class IT8906A_1200_240 {
      */
     public void setCurrent(String current) {
         setFunctionCC();
-        connection.writeToSocket("CURR " + current);
+        setValue(LoadState.Value.SETUP_CURRENT, "CURR", current);
+    }
+
+    /**
+     * Method that sets load current in A
+     * @param current - current value to be set in A
+     */
+    public void setCurrent(double current) {
+        setFunctionCC();
+        setValue(LoadState.Value.SETUP_CURRENT, "CURR", current);
     }
 
     /**
@@ -45,8 +135,15 @@ public class IT8906A_1200_240 {
      * @return - measured current value in A
      */
     public String getCurrent() {
-        connection.writeToSocket("MEAS:CURR?");
-        return connection.readFromSocket();
+        return query("MEAS:CURR?", Answer.NUMBER);
+    }
+
+    /**
+     * Method that returns measured current value in A
+     * @return - measured current value in A, NaN if there is no valid answer
+     */
+    public double measureCurrent() {
+        return queryNumber("MEAS:CURR?");
     }
 
     /**
@@ -54,8 +151,15 @@ public class IT8906A_1200_240 {
      * @return - set current value in A
      */
     public String getSetupCurrent() {
-        connection.writeToSocket("SOUR:CURR?");
-        return connection.readFromSocket();
+        return readText(LoadState.Value.SETUP_CURRENT, "SOUR:CURR?");
+    }
+
+    /**
+     * Method that returns set current value in A
+     * @return - set current value in A, NaN if there is no valid answer
+     */
+    public double readSetupCurrent() {
+        return readValue(LoadState.Value.SETUP_CURRENT, "SOUR:CURR?");
     }
 
     /**
@@ -63,8 +167,15 @@ public class IT8906A_1200_240 {
      * @return - protection current value in A
      */
     public String getProtectionCurrent() {
-        connection.writeToSocket("CURR:PROT?");
-        return connection.readFromSocket();
+        return readText(LoadState.Value.PROTECTION_CURRENT, "CURR:PROT?");
+    }
+
+    /**
+     * Method that returns protection current value in A
+     * @return - protection current value in A, NaN if there is no valid answer
+     */
+    public double readProtectionCurrent() {
+        return readValue(LoadState.Value.PROTECTION_CURRENT, "CURR:PROT?");
     }
 
     /**
@@ -72,8 +183,17 @@ public class IT8906A_1200_240 {
      * @param current - current value to be set as protection level in A
      */
     public void setProtectionCurrent(String current) {
-        connection.writeToSocket("CURR:PROT:STAT 1");
-        connection.writeToSocket("CURR:PROT " + current);
+        enableProtectionCurrent();
+        setValue(LoadState.Value.PROTECTION_CURRENT, "CURR:PROT", current);
+    }
+
+    /**
+     * Method that sets load protection current in A
+     * @param current - current value to be set as protection level in A
+     */
+    public void setProtectionCurrent(double current) {
+        enableProtectionCurrent();
+        setValue(LoadState.Value.PROTECTION_CURRENT, "CURR:PROT", current);
     }
 
     /**
@@ -82,7 +202,16 @@ public class IT8906A_1200_240 {
      */
     public void setVoltage(String voltage) {
         setFunctionCV();
-        connection.writeToSocket("VOLT " + voltage);
+        setValue(LoadState.Value.SETUP_VOLTAGE, "VOLT", voltage);
+    }
+
+    /**
+     * Method that sets load voltage in V
+     * @param voltage - voltage value to be set in V
+     */
+    public void setVoltage(double voltage) {
+        setFunctionCV();
+        setValue(LoadState.Value.SETUP_VOLTAGE, "VOLT", voltage);
     }
 
     /**
@@ -90,8 +219,15 @@ public class IT8906A_1200_240 {
      * @return - measured voltage value in V
      */
     public String getVoltage() {
-        connection.writeToSocket("MEAS:VOLT?");
-        return connection.readFromSocket();
+        return query("MEAS:VOLT?", Answer.NUMBER);
+    }
+
+    /**
+     * Method that returns measured voltage value in V
+     * @return - measured voltage value in V, NaN if there is no valid answer
+     */
+    public double measureVoltage() {
+        return queryNumber("MEAS:VOLT?");
     }
 
     /**
@@ -99,8 +235,15 @@ public class IT8906A_1200_240 {
      * @return - set voltage value in V
      */
     public String getSetupVoltage() {
-        connection.writeToSocket("SOUR:VOLT?");
-        return connection.readFromSocket();
+        return readText(LoadState.Value.SETUP_VOLTAGE, "SOUR:VOLT?");
+    }
+
+    /**
+     * Method that returns set voltage value in V
+     * @return - set voltage value in V, NaN if there is no valid answer
+     */
+    public double readSetupVoltage() {
+        return readValue(LoadState.Value.SETUP_VOLTAGE, "SOUR:VOLT?");
     }
 
     /**
@@ -109,7 +252,16 @@ public class IT8906A_1200_240 {
      */
     public void setResistance(String resistance) {
         setFunctionCR();
-        connection.writeToSocket("RES " + resistance);
+        setValue(LoadState.Value.SETUP_RESISTANCE, "RES", resistance);
+    }
+
+    /**
+     * Method that sets load resistance in Ohm
+     * @param resistance - resistance value to be set in Ohm
+     */
+    public void setResistance(double resistance) {
+        setFunctionCR();
+        setValue(LoadState.Value.SETUP_RESISTANCE, "RES", resistance);
     }
 
     /**
@@ -117,8 +269,15 @@ public class IT8906A_1200_240 {
      * @return - set resistance value in Ohm
      */
     public String getSetupResistance() {
-        connection.writeToSocket("SOUR:RES?");
-        return connection.readFromSocket();
+        return readText(LoadState.Value.SETUP_RESISTANCE, "SOUR:RES?");
+    }
+
+    /**
+     * Method that returns set resistance value in Ohm
+     * @return - set resistance value in Ohm, NaN if there is no valid answer
+     */
+    public double readSetupResistance() {
+        return readValue(LoadState.Value.SETUP_RESISTANCE, "SOUR:RES?");
     }
 
     /**
@@ -126,8 +285,15 @@ public class IT8906A_1200_240 {
      * @return - measured power value in W
      */
     public String getPower() {
-        connection.writeToSocket("MEAS:POW?");
-        return connection.readFromSocket();
+        return query("MEAS:POW?", Answer.NUMBER);
+    }
+
+    /**
+     * Method that returns measured power value in W
+     * @return - measured power value in W, NaN if there is no valid answer
+     */
+    public double measurePower() {
+        return queryNumber("MEAS:POW?");
     }
 
     /**
@@ -135,8 +301,15 @@ public class IT8906A_1200_240 {
      * @return - protection power value in W
      */
     public String getProtectionPower() {
-        connection.writeToSocket("POW:PROT?");
-        return connection.readFromSocket();
+        return readText(LoadState.Value.PROTECTION_POWER, "POW:PROT?");
+    }
+
+    /**
+     * Method that returns protection power value in W
+     * @return - protection power value in W, NaN if there is no valid answer
+     */
+    public double readProtectionPower() {
+        return readValue(LoadState.Value.PROTECTION_POWER, "POW:PROT?");
     }
 
     /**
@@ -144,7 +317,15 @@ public class IT8906A_1200_240 {
      * @param power - power value to be set as protection level in W
      */
     public void setProtectionPower(String power) {
-        connection.writeToSocket("POW:PROT " + power);
+        setValue(LoadState.Value.PROTECTION_POWER, "POW:PROT", power);
+    }
+
+    /**
+     * Method that sets load protection power in W
+     * @param power - power value to be set as protection level in W
+     */
+    public void setProtectionPower(double power) {
+        setValue(LoadState.Value.PROTECTION_POWER, "POW:PROT", power);
     }
 
     /**
@@ -152,6 +333,7 @@ public class IT8906A_1200_240 {
      */
     public void setDeviceOn() {
         connection.writeToSocket("INP 1");
+        state.setInput(true);
     }
 
     /**
@@ -159,6 +341,7 @@ public class IT8906A_1200_240 {
      */
     public void setDeviceOff() {
         connection.writeToSocket("INP 0");
+        state.setInput(false);
     }
 
     /**
@@ -166,8 +349,11 @@ public class IT8906A_1200_240 {
      * @return - true if load is on, false otherwise
      */
     public boolean isDeviceOn() {
-        connection.writeToSocket("INP?");
-        return connection.readFromSocket().equals("1");
+        String answer = query("INP?", Answer.BOOLEAN);
+        if (answer != null && matches(answer, Answer.BOOLEAN)) {
+            state.setInput(answer.equals("1"));
+        }
+        return "1".equals(answer);
     }
 
     /**
@@ -178,23 +364,576 @@ public class IT8906A_1200_240 {
      *           Error 8208 - Overtemperature protection
      */
     public String getProtectionError () {
-        int answer;
-        connection.writeToSocket("STAT:QUES:COND?");
         try {
-            answer = Integer.parseInt(connection.readFromSocket());
-            if (answer == 8194) {
-                return "Error 8194 - Overcurrent protection";
-            } else if (answer == 8200) {
-                return "Error 8200 - Overpower protection";
-            } else if (answer == 8208) {
-                return "Error 8208 - Overtemperature protection";
-            } else return "0";
+            return getProtectionErrorText(Integer.parseInt(query("STAT:QUES:COND?", Answer.INTEGER)));
         } catch (NumberFormatException e) {
             return "0";
         }
 
     }
 
+    /**
+     * Method that translates questionable status value to protection error
+     * @param status - questionable status register value
+     * @return - the text of protection error. If there is no error returns 0.
+     */
+    public static String getProtectionErrorText(int status) {
+        if (status == 8194) {
+            return "Error 8194 - Overcurrent protection";
+        } else if (status == 8200) {
+            return "Error 8200 - Overpower protection";
+        } else if (status == 8208) {
+            return "Error 8208 - Overtemperature protection";
+        } else return "0";
+    }
+
+    /**
+     * Method that measures voltage, current, power and protection status by one request to the load
+     * @param sample - sample to be filled, so the same instance can be used for every measurement
+     * @return - true if the answer is received and parsed, false otherwise (sample is not changed then)
+     */
+    public boolean getMeasurement(MeasurementSample sample) {
+        return getMeasurement(sample, ALL_CHANNELS);
+    }
+
+    /**
+     * Method that measures chosen channels by one request to the load. Values of other channels are NaN, status is 0
+     * if it is not measured
+     * @param sample - sample to be filled, so the same instance can be used for every measurement
+     * @param channels - measured channels. Example - "EnumSet.of(Channel.VOLTAGE, Channel.CURRENT)"
+     * @return - true if the answer is received and parsed, false otherwise (sample is not changed then)
+     */
+    public boolean getMeasurement(MeasurementSample sample, Set<MeasurementSample.Channel> channels) {
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel should be measured");
+        }
+        if (!channels.equals(measuredChannels)) {
+            measuredChannels = EnumSet.copyOf(channels);
+            measuredOrder = measuredChannels.toArray(new MeasurementSample.Channel[0]);
+            StringBuilder query = new StringBuilder();
+            for (MeasurementSample.Channel channel : measuredOrder) {
+                if (query.length() > 0) {
+                    query.append(";:");
+                }
+                query.append(channel.getQuery());
+            }
+            measurementQuery = query.toString();
+        }
+        if (!isInOrder()) {
+            return false;
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            connection.write(measurementQuery);
+            ByteBuffer line = connection.readLine();
+            if (line == null && (!connection.isConnected() || !countTimeout())) {
+                return false;
+            }
+            if (line != null && parseMeasurement(line, measuredOrder, timestamps.getSampleTime(), sample)) {
+                timeouts = 0;
+                return true;
+            }
+            resyncCount++;
+            if (!resync()) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that parses the answer to the measurement query. Example - "voltage;current;power;status"
+     * @param line - answer bytes from position to limit
+     * @param channels - measured channels in the order of the answer fields
+     * @param time - time of the sample in ms since epoch
+     * @param sample - sample to be filled
+     * @return - true if all values are parsed, false otherwise (sample is not changed then)
+     */
+    private static boolean parseMeasurement(ByteBuffer line, MeasurementSample.Channel[] channels, long time,
+                                            MeasurementSample sample) {
+        int from = line.position();
+        int to = line.limit();
+        double voltage = Double.NaN;
+        double current = Double.NaN;
+        double power = Double.NaN;
+        int status = 0;
+        for (int i = 0; i < channels.length; i++) {
+            int end = i == channels.length - 1 ? to : indexOf(line, from, to);
+            if (end < 0) {
+                return false;
+            }
+            switch (channels[i]) {
+                case VOLTAGE:
+                    voltage = SCPINumber.parse(line, from, end);
+                    if (Double.isNaN(voltage)) {
+                        return false;
+                    }
+                    break;
+                case CURRENT:
+                    current = SCPINumber.parse(line, from, end);
+                    if (Double.isNaN(current)) {
+                        return false;
+                    }
+                    break;
+                case POWER:
+                    power = SCPINumber.parse(line, from, end);
+                    if (Double.isNaN(power)) {
+                        return false;
+                    }
+                    break;
+                case STATUS:
+                    status = SCPINumber.parseInt(line, from, end, -1);
+                    if (status < 0) {
+                        return false;
+                    }
+                    break;
+            }
+            from = end + 1;
+        }
+        sample.set(time, voltage, current, power, status);
+        return true;
+    }
+
+    /**
+     * Method that reads setpoints, protection limits, function and input state of the load by one request
+     * and stores them in the shadow state. It should be called right after connect()
+     * @return - shadow state filled with the load values, null if the answer is not received or can not be parsed
+     */
+    public LoadState bootstrap() {
+        if (!isInOrder()) {
+            return null;
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            connection.write(BOOTSTRAP_QUERY);
+            ByteBuffer line = connection.readLine();
+            if (line == null && (!connection.isConnected() || !countTimeout())) {
+                return null;
+            }
+            if (line != null && parseBootstrap(line, state)) {
+                timeouts = 0;
+                return state;
+            }
+            resyncCount++;
+            if (!resync()) {
+                break;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Method that parses the answer to BOOTSTRAP_QUERY: five numbers, current protection state, function and input
+     * @param line - answer bytes from position to limit
+     * @param state - state to be filled
+     * @return - true if all fields are parsed, false otherwise (state is not changed then)
+     */
+    private static boolean parseBootstrap(ByteBuffer line, LoadState state) {
+        int to = line.limit();
+        double[] numbers = new double[BOOTSTRAP_VALUES.length];
+        int from = line.position();
+        for (int i = 0; i < numbers.length; i++) {
+            int end = indexOf(line, from, to);
+            if (end < 0) {
+                return false;
+            }
+            numbers[i] = SCPINumber.parse(line, from, end);
+            if (Double.isNaN(numbers[i])) {
+                return false;
+            }
+            from = end + 1;
+        }
+        int end = indexOf(line, from, to);
+        if (end < 0) {
+            return false;
+        }
+        int protection = SCPINumber.parseInt(line, from, end, -1);
+        from = end + 1;
+        end = indexOf(line, from, to);
+        if (end < 0 || end == from) {
+            return false;
+        }
+        LoadState.Function function;
+        switch (line.get(from)) {
+            case 'C':
+                function = LoadState.Function.CC;
+                break;
+            case 'V':
+                function = LoadState.Function.CV;
+                break;
+            case 'R':
+                function = LoadState.Function.CR;
+                break;
+            default:
+                function = null;
+        }
+        int input = SCPINumber.parseInt(line, end + 1, to, -1);
+        if (protection < 0 || protection > 1 || input < 0 || input > 1) {
+            return false;
+        }
+        for (int i = 0; i < numbers.length; i++) {
+            state.set(BOOTSTRAP_VALUES[i], numbers[i]);
+        }
+        state.setProtectionCurrentEnabled(protection == 1);
+        state.setFunction(function);
+        state.setInput(input == 1);
+        return true;
+    }
+
+    /**
+     * Method that searches ";" in the part of the buffer
+     * @param line - buffer to search in
+     * @param from - absolute index of the first byte
+     * @param to - absolute index of the byte after the last one
+     * @return - absolute index of ";", -1 if there is no one
+     */
+    private static int indexOf(ByteBuffer line, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (line.get(i) == ';') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method that measures voltage, current, power and protection status by one request to the load
+     * @return - new measurement sample, null if the answer is not received or can not be parsed
+     */
+    public MeasurementSample getMeasurement() {
+        MeasurementSample sample = new MeasurementSample();
+        return getMeasurement(sample) ? sample : null;
+    }
+
+    /**
+     * Method that sends query and reads its answer. If the answer is not received in time or has wrong shape,
+     * it is a late answer to the previous query or the answer to this query will come late. In both cases
+     * the stream is resynchronized and the query is sent once more
+     * @param command - SCPI query. Example - "MEAS:VOLT?"
+     * @param type - expected shape of the answer
+     * @return - answer, "NO DATA" if there is no valid answer, null if connection is lost
+     */
+    private String query(String command, Answer type) {
+        if (!isInOrder()) {
+            return connection.isConnected() ? "NO DATA" : null;
+        }
+        String answer = null;
+        for (int attempt = 0; attempt < 2; attempt++) {
+            connection.writeToSocket(command);
+            answer = connection.readFromSocket();
+            if (answer == null) {
+                return null;
+            }
+            if (matches(answer, type)) {
+                timeouts = 0;
+                return answer;
+            }
+            if (answer.equals("NO DATA") && !countTimeout()) {
+                return null;
+            }
+            resyncCount++;
+            if (!resync()) {
+                break;
+            }
+        }
+        return connection.isConnected() ? "NO DATA" : null;
+    }
+
+    /**
+     * Method that sends numeric query and parses the answer without creating Strings.
+     * Desynchronization is handled the same way as in query()
+     * @param command - SCPI query. Example - "MEAS:VOLT?"
+     * @return - answer value, NaN if there is no valid answer or connection is lost
+     */
+    private double queryNumber(String command) {
+        if (!isInOrder()) {
+            return Double.NaN;
+        }
+        for (int attempt = 0; attempt < 2; attempt++) {
+            connection.write(command);
+            ByteBuffer line = connection.readLine();
+            if (line == null && (!connection.isConnected() || !countTimeout())) {
+                return Double.NaN;
+            }
+            if (line != null) {
+                double value = SCPINumber.parse(line, line.position(), line.limit());
+                if (!Double.isNaN(value)) {
+                    timeouts = 0;
+                    return value;
+                }
+            }
+            resyncCount++;
+            if (!resync()) {
+                break;
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Method that sends command with numeric parameter. Example - "CURR 10.5"
+     * @param header - command header. Example - "CURR"
+     * @param value - parameter value
+     */
+    private void send(String header, double value) {
+        command.setLength(0);
+        command.append(header).append(' ');
+        SCPINumber.format(value, command);
+        connection.write(command);
+    }
+
+    /**
+     * Method that sends setpoint or protection limit unless the load already has the same value
+     * @param value - which value of the shadow state
+     * @param header - command header. Example - "CURR"
+     * @param number - value to be set
+     */
+    private void setValue(LoadState.Value value, String header, double number) {
+        if (state.isSame(value, number)) {
+            suppressedCount++;
+            return;
+        }
+        send(header, number);
+        state.set(value, number);
+    }
+
+    /**
+     * Method that sends setpoint or protection limit unless the load already has the same value
+     * @param value - which value of the shadow state
+     * @param header - command header. Example - "CURR"
+     * @param text - value to be set as it is sent. Example - "10.5"
+     */
+    private void setValue(LoadState.Value value, String header, String text) {
+        double number = LoadState.toNumber(text);
+        if (state.isSame(value, number)) {
+            suppressedCount++;
+            return;
+        }
+        connection.writeToSocket(header + " " + text);
+        state.set(value, number);
+    }
+
+    /**
+     * Method that changes load function unless the load already has it
+     * @param function - load function
+     */
+    private void setFunction(LoadState.Function function) {
+        if (state.getFunction() == function) {
+            suppressedCount++;
+            return;
+        }
+        connection.writeToSocket("FUNC " + function.getScpi());
+        state.setFunction(function);
+    }
+
+    /**
+     * Method that enables current protection unless it is already enabled
+     */
+    private void enableProtectionCurrent() {
+        if (state.isProtectionCurrentEnabled()) {
+            suppressedCount++;
+            return;
+        }
+        connection.writeToSocket("CURR:PROT:STAT 1");
+        state.setProtectionCurrentEnabled(true);
+    }
+
+    /**
+     * Method that returns setpoint or protection limit from the shadow state if it is fresh, from the load otherwise
+     * @param value - which value of the shadow state
+     * @param command - SCPI query for the value. Example - "SOUR:CURR?"
+     * @return - the value, NaN if there is no valid answer
+     */
+    private double readValue(LoadState.Value value, String command) {
+        if (cacheTtl > 0) {
+            double cached = state.getFresh(value, cacheTtl);
+            if (!Double.isNaN(cached)) {
+                cachedReadCount++;
+                return cached;
+            }
+        }
+        double number = queryNumber(command);
+        if (!Double.isNaN(number)) {
+            state.set(value, number);
+        }
+        return number;
+    }
+
+    /**
+     * Method that returns setpoint or protection limit from the shadow state if it is fresh, from the load otherwise.
+     * The text is formatted by SCPINumber in both cases, so it does not depend on where the value comes from
+     * @param value - which value of the shadow state
+     * @param command - SCPI query for the value. Example - "SOUR:CURR?"
+     * @return - the value as text, "5" for the answer "5.0", "NO DATA" if there is no valid answer,
+     *           null if connection is lost
+     */
+    private String readText(LoadState.Value value, String command) {
+        if (cacheTtl > 0) {
+            double cached = state.getFresh(value, cacheTtl);
+            if (!Double.isNaN(cached)) {
+                cachedReadCount++;
+                return toText(cached);
+            }
+        }
+        String answer = query(command, Answer.NUMBER);
+        double number = LoadState.toNumber(answer);
+        if (Double.isNaN(number)) {
+            return answer;
+        }
+        state.set(value, number);
+        return toText(number);
+    }
+
+    /**
+     * Method that formats the value as it is sent to the load
+     * @param number - the value
+     * @return - the value as text. Example - "10.5"
+     */
+    private static String toText(double number) {
+        StringBuilder text = new StringBuilder();
+        SCPINumber.format(number, text);
+        return text.toString();
+    }
+
+    /**
+     * Method that sets how long setpoints and protection limits are read from the shadow state.
+     * The shadow state is written by every set and every read, so it only gets stale
+     * if the load is changed by somebody else (front panel or other client)
+     * @param cacheTtl - time in ms, 0 - always ask the load
+     */
+    public void setCacheTtl(long cacheTtl) {
+        this.cacheTtl = cacheTtl;
+    }
+
+    /**
+     * Method that returns how long setpoints and protection limits are read from the shadow state
+     * @return - time in ms, 0 - always ask the load
+     */
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * Method that returns number of commands that were not sent because the load already had the value
+     * @return - number of suppressed commands
+     */
+    public long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    /**
+     * Method that returns number of reads answered from the shadow state
+     * @return - number of cached reads
+     */
+    public long getCachedReadCount() {
+        return cachedReadCount;
+    }
+
+    /**
+     * Method that restores query/answer order: sends the fence and skips all lines before its answer
+     * @return - true if the stream is in order again, false otherwise
+     */
+    private boolean resync() {
+        if (fence.resync(connection)) {
+            timeouts = 0;
+            return true;
+        }
+        if (connection.isConnected()) {
+            countTimeout();
+        }
+        return false;
+    }
+
+    /**
+     * Method that counts the answer which has not come in time. A link which went down without closing the socket
+     * only times out, so after timeoutLimit such answers in a row the connection is closed
+     * and the usual reconnection takes over
+     * @return - true if the connection is kept, false if it is closed
+     */
+    private boolean countTimeout() {
+        timeouts++;
+        if (timeoutLimit > 0 && timeouts >= timeoutLimit) {
+            timeouts = 0;
+            connection.disconnect();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method that sets after how many answers in a row, which have not come in time, the link is taken for dead
+     * @param timeoutLimit - number of timeouts, 0 - never close the connection. Example - "2"
+     */
+    public void setTimeoutLimit(int timeoutLimit) {
+        if (timeoutLimit < 0) {
+            throw new IllegalArgumentException("Timeout limit should not be negative");
+        }
+        this.timeoutLimit = timeoutLimit;
+    }
+
+    /**
+     * Method that returns after how many answers in a row, which have not come in time, the link is taken for dead
+     * @return - number of timeouts, 0 - the connection is never closed
+     */
+    public int getTimeoutLimit() {
+        return timeoutLimit;
+    }
+
+    /**
+     * Method that restores query/answer order before the query if the answer of the last fence has not come yet,
+     * so the query does not take a late answer
+     * @return - true if the query can be sent, false otherwise
+     */
+    private boolean isInOrder() {
+        return !fence.isPending() || resync();
+    }
+
+    /**
+     * Method that checks the shape of the answer
+     * @param answer - answer of the load
+     * @param type - expected shape
+     * @return - true if answer has expected shape, false otherwise
+     */
+    private static boolean matches(String answer, Answer type) {
+        switch (type) {
+            case BOOLEAN:
+                return answer.equals("0") || answer.equals("1");
+            case INTEGER:
+                return isInteger(answer);
+            case NUMBER:
+                return !Double.isNaN(SCPINumber.parse(answer, 0, answer.length()));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Method that checks if the text is SCPI integer (NR1). Example - "8194"
+     * @param text - text to check
+     * @return - true if the text is an integer, false otherwise
+     */
+    private static boolean isInteger(String text) {
+        int i = 0;
+        if (i < text.length() && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == text.length()) {
+            return false;
+        }
+        for (; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method that returns how many times the query/answer stream was found out of order
+     * @return - number of resynchronizations
+     */
+    public long getResyncCount() {
+        return resyncCount;
+    }
+
     /**
      * Method that resets protection error. Should be sent if error has occurred
      */
@@ -216,7 +955,76 @@ public class IT8906A_1200_240 {
      */
     public void connect() throws IOException {
         connection.connect();
+        fence.reset();
+        timeouts = 0;
+        connection.writeToSocket("SYST:RWL");
+        state.clear();
+    }
+
+    /**
+     * Method that reconnects client to the load after the connection is lost and restores the state set before:
+     * remote mode, protection limits, setpoints and function. Input state is not restored, the load stays off
+     * @param policy - pauses between attempts
+     * @return - true if connection is restored, false if attempts are over or the thread is interrupted
+     */
+    public boolean reconnect(ReconnectPolicy policy) {
+        for (int attempt = 0; policy.isAttemptAllowed(attempt); attempt++) {
+            connection.disconnect();
+            try {
+                Thread.sleep(policy.getDelay(attempt));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            try {
+                connection.connect();
+            } catch (IOException e) {
+                continue;
+            }
+            fence.reset();
+            timeouts = 0;
+            replayState();
+            if (connection.isConnected()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that sends the stored state to the load again
+     */
+    private void replayState() {
         connection.writeToSocket("SYST:RWL");
+        if (state.isProtectionCurrentEnabled()) {
+            connection.writeToSocket("CURR:PROT:STAT 1");
+        }
+        if (!Double.isNaN(state.getProtectionCurrent())) {
+            send("CURR:PROT", state.getProtectionCurrent());
+        }
+        if (!Double.isNaN(state.getProtectionPower())) {
+            send("POW:PROT", state.getProtectionPower());
+        }
+        if (!Double.isNaN(state.getSetupCurrent())) {
+            send("CURR", state.getSetupCurrent());
+        }
+        if (!Double.isNaN(state.getSetupVoltage())) {
+            send("VOLT", state.getSetupVoltage());
+        }
+        if (!Double.isNaN(state.getSetupResistance())) {
+            send("RES", state.getSetupResistance());
+        }
+        if (state.getFunction() != null) {
+            connection.writeToSocket("FUNC " + state.getFunction().getScpi());
+        }
+    }
+
+    /**
+     * Method that returns the state set on the load by this client
+     * @return - load state
+     */
+    public LoadState getState() {
+        return state;
     }
 
     /**
@@ -230,21 +1038,21 @@ public class IT8906A_1200_240 {
      * Method that use load as current stabiliser
      */
     public void setFunctionCC() {
-        connection.writeToSocket("FUNC CURR");
+        setFunction(LoadState.Function.CC);
     }
 
     /**
      * Method that use load as voltage stabiliser
      */
     public void setFunctionCV() {
-        connection.writeToSocket("FUNC VOLT");
+        setFunction(LoadState.Function.CV);
     }
 
     /**
      * Method that use load as resistance stabiliser
      */
     public void setFunctionCR() {
-        connection.writeToSocket("FUNC RES");
+        setFunction(LoadState.Function.CR);
     }
 
     /**
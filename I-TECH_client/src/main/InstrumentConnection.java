@@ -0,0 +1,69 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Interface for line based transports between client and instrument
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public interface InstrumentConnection {
+
+    /**
+     * Method that trys to connect to server
+     * @throws IOException - exception appears if something go wrong with connection
+     */
+    void connect() throws IOException;
+
+    /**
+     * Method that diconnects client from server
+     */
+    void disconnect();
+
+    /**
+     * Method that write message to server. Line terminator is added by the transport
+     * @param message - text that will be send to server. Example - "MEAS:VOLT?"
+     */
+    void writeToSocket(String message);
+
+    /**
+     * Method that reads message from server
+     * @return message from server without line terminator, "NO DATA" if timeout or error occurred,
+     *         null if the server closed the connection
+     */
+    String readFromSocket();
+
+    /**
+     * Method that write message to server. Transports which can encode characters directly override it
+     * @param message - text that will be send to server. Example - "CURR 10"
+     */
+    default void write(CharSequence message) {
+        writeToSocket(message.toString());
+    }
+
+    /**
+     * Method that reads next line from server as ASCII bytes. Transports which can hand out received bytes
+     * without copying override it
+     * @return line bytes from position to limit, null if nothing is read in time or connection is lost
+     */
+    default ByteBuffer readLine() {
+        String answer = readFromSocket();
+        if (answer == null || answer.equals("NO DATA")) {
+            return null;
+        }
+        return ByteBuffer.wrap(answer.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Method that drops everything that has been received but not read yet. It does not wait for new data
+     */
+    void clearInput();
+
+    /**
+     * Method that shows if the connection is still established
+     * @return "true" if connection is established, "false" otherwise
+     */
+    boolean isConnected();
+}
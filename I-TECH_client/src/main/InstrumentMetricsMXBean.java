@@ -0,0 +1,89 @@
+package main;
+
+import java.util.List;
+
+/**
+ * Interface of JMX bean with traffic and latency statistics of one instrument connection.
+ * Latencies are times from query to answer in µs
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public interface InstrumentMetricsMXBean {
+
+    /**
+     * Method that shows if the connection is established
+     * @return - true if connected, false otherwise
+     */
+    boolean isConnected();
+
+    /**
+     * Method that returns number of sent commands of all types
+     * @return - number of commands
+     */
+    long getCommandCount();
+
+    /**
+     * Method that returns number of received answers
+     * @return - number of answers
+     */
+    long getAnswerCount();
+
+    /**
+     * Method that returns number of answers which were not received in time
+     * @return - number of timeouts
+     */
+    long getTimeoutCount();
+
+    /**
+     * Method that returns how many times the connection was found lost by reading
+     * @return - number of lost connections
+     */
+    long getLostCount();
+
+    /**
+     * Method that returns sent bytes
+     * @return - number of bytes
+     */
+    long getBytesOut();
+
+    /**
+     * Method that returns received bytes
+     * @return - number of bytes
+     */
+    long getBytesIn();
+
+    /**
+     * Method that returns median latency of all queries
+     * @return - time in µs
+     */
+    double getLatencyP50();
+
+    /**
+     * Method that returns 99th percentile of latency of all queries
+     * @return - time in µs
+     */
+    double getLatencyP99();
+
+    /**
+     * Method that returns 99.9th percentile of latency of all queries
+     * @return - time in µs
+     */
+    double getLatencyP999();
+
+    /**
+     * Method that returns the longest latency of all queries
+     * @return - time in µs
+     */
+    double getMaxLatency();
+
+    /**
+     * Method that returns statistics of every command type
+     * @return - statistics in order of the first use of the command
+     */
+    List<CommandStatistics> getCommands();
+
+    /**
+     * Method that sets all counters and latencies to zero
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,263 @@
+package main;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Class which describes one connected load and the virtual thread that polls it.
+ * Session uses blocking TCPConnection: blocking socket I/O parks a virtual thread instead of its carrier,
+ * so hundreds of sessions need only a few platform threads.
+ * Traffic of the session is metered and shown by JMX as "itech.client:type=InstrumentSession,name=NAME"
+ * while the session is started
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class InstrumentSession {
+
+    private final String NAME;
+    private final String HOST;
+    private final int PORT;
+    private final int TIMEOUT;
+    private final long PERIOD;
+
+    private final IT8906A_1200_240 load = new IT8906A_1200_240();
+    private final MeteredConnection metrics;
+    private volatile ReconnectPolicy reconnectPolicy = ReconnectPolicy.getDefault();
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean connected;
+    private volatile MeasurementSample latest;
+    private volatile String lastError = "";
+    private volatile long samples;
+
+    /**
+     * Class constructor
+     * @param name - session name. Example - "rack1-load3"
+     * @param host - host name. Example - "10.1.42.3"
+     * @param port - port number. Example - "30000"
+     * @param timeout - timeout parameter in ms. Example - "1000"
+     * @param period - pause between two measurements in ms. Example - "100"
+     */
+    public InstrumentSession(String name, String host, int port, int timeout, long period) {
+        this.NAME = name;
+        this.HOST = host;
+        this.PORT = port;
+        this.TIMEOUT = timeout;
+        this.PERIOD = period;
+        this.metrics = new MeteredConnection(new TCPConnection(host, port, timeout));
+        load.setConnection(metrics);
+    }
+
+    /**
+     * Method that starts the session on its own virtual thread. Connection is established by that thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        registerMetrics();
+        thread = Thread.ofVirtual().name("session-" + NAME).start(this::run);
+    }
+
+    /**
+     * Method that asks the session to stop. Use join() to wait for it
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        unregisterMetrics();
+    }
+
+    /**
+     * Method that returns JMX name of the session metrics
+     * @return - object name
+     * @throws JMException - if the session name can not be a part of JMX name
+     */
+    private ObjectName getObjectName() throws JMException {
+        return new ObjectName("itech.client:type=InstrumentSession,name=" + ObjectName.quote(NAME));
+    }
+
+    /**
+     * Method that shows metrics of the session by JMX of this JVM
+     */
+    private void registerMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = getObjectName();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            System.out.println("EXCEPTION - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method that removes metrics of the session from JMX
+     */
+    private void unregisterMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = getObjectName();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            System.out.println("EXCEPTION - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method that waits until the session thread is finished
+     * @throws InterruptedException - if waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null) {
+            t.join();
+        }
+    }
+
+    /**
+     * Method of the session thread: connects, polls the load every PERIOD ms and disconnects when stopped
+     */
+    private void run() {
+        try {
+            if (!connect()) {
+                running = false;
+                return;
+            }
+            while (running) {
+                if (!load.isDeviceConnected()) {
+                    connected = false;
+                    if (!load.reconnect(reconnectPolicy)) {
+                        lastError = "Failed to reconnect to " + HOST + ":" + PORT;
+                        break;
+                    }
+                    connected = true;
+                }
+                MeasurementSample sample = new MeasurementSample();
+                if (load.getMeasurement(sample)) {
+                    latest = sample;
+                    samples++;
+                }
+                if (PERIOD > 0) {
+                    Thread.sleep(PERIOD);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connected = false;
+            load.disconnect();
+        }
+    }
+
+    /**
+     * Method that connects to the load. Failed attempts are repeated by the reconnection policy,
+     * so the load which is switched on later than the client is connected too
+     * @return - true if connected, false if attempts are over
+     * @throws InterruptedException - if the session is stopped while waiting for the next attempt
+     */
+    private boolean connect() throws InterruptedException {
+        ReconnectPolicy policy = reconnectPolicy;
+        for (int attempt = 0; policy.isAttemptAllowed(attempt); attempt++) {
+            try {
+                load.connect();
+                connected = true;
+                return true;
+            } catch (IOException e) {
+                lastError = "Failed to connect to " + HOST + ":" + PORT + " - " + e.getMessage();
+            }
+            Thread.sleep(policy.getDelay(attempt));
+        }
+        return false;
+    }
+
+    /**
+     * Method that sets pauses between connection attempts when the load does not answer or the connection is lost
+     * @param reconnectPolicy - reconnection policy
+     */
+    public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    /**
+     * Method that returns the driver of the load
+     * @return - the load driver. It should not be used for I/O while the session is running
+     */
+    public IT8906A_1200_240 getLoad() {
+        return load;
+    }
+
+    /**
+     * Method that returns traffic and latency statistics of the session
+     * @return - metered connection of the session
+     */
+    public MeteredConnection getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Method that returns session name
+     * @return - session name
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Method that returns the last received measurement
+     * @return - last sample, null if nothing is measured yet
+     */
+    public MeasurementSample getLatest() {
+        return latest;
+    }
+
+    /**
+     * Method that returns number of received measurements
+     * @return - number of samples
+     */
+    public long getSampleCount() {
+        return samples;
+    }
+
+    /**
+     * Method that shows if the session is connected to the load
+     * @return - true if connected, false otherwise
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Method that shows if the session thread is running
+     * @return - true if running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that returns the description of the last error
+     * @return - error text, empty if there was no error
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public String toString() {
+        return NAME + " (" + HOST + ":" + PORT + ", timeout " + TIMEOUT + " ms)";
+    }
+}
@@ -0,0 +1,199 @@
+package main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class which counts latencies in log-linear buckets, as HdrHistogram does: every power of two is split into
+ * 64 equal buckets, so any recorded value is known with relative error below 1/64 (1.6 %) while the histogram
+ * keeps a fixed number of counters. Counters of a power of two are allocated when its first value is recorded,
+ * latencies usually fall into a few of them, so a histogram takes a few KB. Recording takes no lock
+ * and can be done by many threads at once. Values are in ns, values above about 68 s are counted as 68 s
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 36;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int SEGMENTS = MAX_VALUE_BITS - SUB_BUCKET_BITS + 1;
+
+    /**
+     * counters by power of two, every segment has SUB_BUCKETS counters
+     */
+    private final AtomicReferenceArray<AtomicLongArray> segments = new AtomicReferenceArray<>(SEGMENTS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Class constructor
+     */
+    public LatencyHistogram() {
+
+    }
+
+    /**
+     * Method that records one value
+     * @param value - latency in ns. Negative values are counted as 0
+     */
+    public void record(long value) {
+        long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+        int index = indexOf(clamped);
+        segment(index / SUB_BUCKETS).incrementAndGet(index % SUB_BUCKETS);
+        count.incrementAndGet();
+        sum.addAndGet(clamped);
+        long previous = max.get();
+        while (clamped > previous && !max.compareAndSet(previous, clamped)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * Method that returns counters of the segment, they are created by the first value
+     * @param number - segment number
+     * @return - counters
+     */
+    private AtomicLongArray segment(int number) {
+        AtomicLongArray segment = segments.get(number);
+        if (segment == null) {
+            segment = new AtomicLongArray(SUB_BUCKETS);
+            if (!segments.compareAndSet(number, null, segment)) {
+                segment = segments.get(number);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Method that returns bucket of the value
+     * @param value - value from 0 to MAX_VALUE
+     * @return - bucket index
+     */
+    private static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * Method that returns the highest value counted by the bucket
+     * @param index - bucket index
+     * @return - value in ns
+     */
+    private static long highestValueOf(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Method that returns value below which the part of recorded values lies
+     * @param percentile - from 0 to 100. Example - "99.9"
+     * @return - value in ns (the highest value of its bucket, but not more than the maximum), 0 if nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int s = 0; s < SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                seen += segment.get(i);
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(s * SUB_BUCKETS + i), getMax());
+                }
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Method that returns number of recorded values
+     * @return - number of values
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Method that returns the largest recorded value
+     * @return - value in ns
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Method that returns average of recorded values
+     * @return - value in ns, 0 if nothing is recorded
+     */
+    public double getMean() {
+        long total = count.get();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * Method that adds values recorded by another histogram
+     * @param other - histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int s = 0; s < SEGMENTS; s++) {
+            AtomicLongArray segment = other.segments.get(s);
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                long value = segment.get(i);
+                if (value != 0) {
+                    segment(s).addAndGet(i, value);
+                }
+            }
+        }
+        count.addAndGet(other.count.get());
+        sum.addAndGet(other.sum.get());
+        long otherMax = other.max.get();
+        long previous = max.get();
+        while (otherMax > previous && !max.compareAndSet(previous, otherMax)) {
+            previous = max.get();
+        }
+    }
+
+    /**
+     * Method that forgets all recorded values. Values recorded at the same time by other threads may be lost
+     */
+    public void reset() {
+        for (int s = 0; s < SEGMENTS; s++) {
+            AtomicLongArray segment = segments.get(s);
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < SUB_BUCKETS; i++) {
+                segment.set(i, 0);
+            }
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", p50=" + getPercentile(50) + " ns, p99=" + getPercentile(99)
+                + " ns, p99.9=" + getPercentile(99.9) + " ns, max=" + getMax() + " ns";
+    }
+}
@@ -0,0 +1,131 @@
+package main;
+
+/**
+ * Class which describes limits of the electronic load model. Validation takes setpoint limits from it
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class LoadModel {
+
+    /**
+     * IT8906A-1200-240: 1200 V, 240 A, 6 kW
+     */
+    public static final LoadModel IT8906A_1200_240 = new LoadModel("IT8906A-1200-240",
+            0.1, 1200, 0.01, 240, 10, 7500, 1, 6000);
+
+    private final String NAME;
+    private final double MIN_VOLTAGE;
+    private final double MAX_VOLTAGE;
+    private final double MIN_CURRENT;
+    private final double MAX_CURRENT;
+    private final double MIN_RESISTANCE;
+    private final double MAX_RESISTANCE;
+    private final double MIN_POWER;
+    private final double MAX_POWER;
+
+    /**
+     * Class constructor
+     * @param name - model name. Example - "IT8906A-1200-240"
+     * @param minVoltage - the lowest voltage setpoint in V. Example - "0.1"
+     * @param maxVoltage - the highest voltage setpoint in V. Example - "1200"
+     * @param minCurrent - the lowest current setpoint in A. Example - "0.01"
+     * @param maxCurrent - the highest current setpoint in A. Example - "240"
+     * @param minResistance - the lowest resistance setpoint in Ohm. Example - "10"
+     * @param maxResistance - the highest resistance setpoint in Ohm. Example - "7500"
+     * @param minPower - the lowest power limit in W. Example - "1"
+     * @param maxPower - the highest power limit in W. Example - "6000"
+     */
+    public LoadModel(String name, double minVoltage, double maxVoltage, double minCurrent, double maxCurrent,
+                     double minResistance, double maxResistance, double minPower, double maxPower) {
+        if (!(minVoltage <= maxVoltage && minCurrent <= maxCurrent && minResistance <= maxResistance
+                && minPower <= maxPower)) {
+            throw new IllegalArgumentException("Minimum should not be more than maximum");
+        }
+        this.NAME = name;
+        this.MIN_VOLTAGE = minVoltage;
+        this.MAX_VOLTAGE = maxVoltage;
+        this.MIN_CURRENT = minCurrent;
+        this.MAX_CURRENT = maxCurrent;
+        this.MIN_RESISTANCE = minResistance;
+        this.MAX_RESISTANCE = maxResistance;
+        this.MIN_POWER = minPower;
+        this.MAX_POWER = maxPower;
+    }
+
+    /**
+     * Method that returns model name
+     * @return - model name
+     */
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Method that returns the lowest voltage setpoint
+     * @return - voltage in V
+     */
+    public double getMinVoltage() {
+        return MIN_VOLTAGE;
+    }
+
+    /**
+     * Method that returns the highest voltage setpoint
+     * @return - voltage in V
+     */
+    public double getMaxVoltage() {
+        return MAX_VOLTAGE;
+    }
+
+    /**
+     * Method that returns the lowest current setpoint
+     * @return - current in A
+     */
+    public double getMinCurrent() {
+        return MIN_CURRENT;
+    }
+
+    /**
+     * Method that returns the highest current setpoint
+     * @return - current in A
+     */
+    public double getMaxCurrent() {
+        return MAX_CURRENT;
+    }
+
+    /**
+     * Method that returns the lowest resistance setpoint
+     * @return - resistance in Ohm
+     */
+    public double getMinResistance() {
+        return MIN_RESISTANCE;
+    }
+
+    /**
+     * Method that returns the highest resistance setpoint
+     * @return - resistance in Ohm
+     */
+    public double getMaxResistance() {
+        return MAX_RESISTANCE;
+    }
+
+    /**
+     * Method that returns the lowest power limit
+     * @return - power in W
+     */
+    public double getMinPower() {
+        return MIN_POWER;
+    }
+
+    /**
+     * Method that returns the highest power limit
+     * @return - power in W
+     */
+    public double getMaxPower() {
+        return MAX_POWER;
+    }
+
+    @Override
+    public String toString() {
+        return NAME;
+    }
+}
@@ -0,0 +1,338 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.StringTokenizer;
+
+/**
+ * Class which holds a test plan compiled to the list of steps. The plan text has one step per line,
+ * keywords are not case sensitive, "#" starts a comment:
+ * <pre>
+ * connect 127.0.0.1 30000 1000   # host, port and optional timeout in ms
+ * mode CC                        # CC, CV or CR
+ * protect current 20             # current protection in A, power protection - "protect power 500"
+ * current 10                     # setpoint in A, also "voltage" in V and "resistance" in Ohm
+ * on
+ * dwell 5000                     # wait in ms, protection status is checked meanwhile
+ * sample 10 2000                 # measure at 10 samples per second for 2000 ms
+ * off
+ * clear                          # clear latched protection
+ * disconnect
+ * </pre>
+ * Every value is checked by Validation and the order of steps is checked before the plan is run,
+ * so a wrong plan is rejected as a whole and the load is not touched
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class LoadPlan {
+
+    /**
+     * limits of time and rate values
+     */
+    private static final long MAX_DURATION = 24L * 60 * 60 * 1000;
+    private static final double MAX_SAMPLE_RATE = 1000;
+    private static final int DEFAULT_TIMEOUT = 1000;
+
+    /**
+     * instruction of the step
+     */
+    public enum Instruction {
+        CONNECT, MODE, CURRENT, VOLTAGE, RESISTANCE, PROTECT_CURRENT, PROTECT_POWER, ON, OFF, DWELL, SAMPLE, CLEAR,
+        DISCONNECT
+    }
+
+    /**
+     * one compiled step: instruction and its parsed values
+     */
+    public static final class Step {
+        private final int line;
+        private final Instruction instruction;
+        private final double value;
+        private final long duration;
+        private final String host;
+        private final int port;
+        private final LoadState.Function function;
+
+        private Step(int line, Instruction instruction, double value, long duration, String host, int port,
+                     LoadState.Function function) {
+            this.line = line;
+            this.instruction = instruction;
+            this.value = value;
+            this.duration = duration;
+            this.host = host;
+            this.port = port;
+            this.function = function;
+        }
+
+        /**
+         * Method that returns line of the plan text
+         * @return - line number from 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * Method that returns instruction of the step
+         * @return - instruction
+         */
+        public Instruction getInstruction() {
+            return instruction;
+        }
+
+        /**
+         * Method that returns setpoint, protection limit, sample rate or timeout of CONNECT
+         * @return - value in A, V, Ohm, W, samples per second or ms
+         */
+        public double getValue() {
+            return value;
+        }
+
+        /**
+         * Method that returns duration of DWELL or SAMPLE
+         * @return - time in ms
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Method that returns host of CONNECT
+         * @return - host, null for other steps
+         */
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Method that returns port of CONNECT
+         * @return - port
+         */
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * Method that returns function of MODE
+         * @return - function, null for other steps
+         */
+        public LoadState.Function getFunction() {
+            return function;
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + instruction;
+        }
+    }
+
+    private final List<Step> steps;
+    private final List<String> errors;
+
+    private LoadPlan(List<Step> steps, List<String> errors) {
+        this.steps = Collections.unmodifiableList(steps);
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * Method that compiles the plan text
+     * @param lines - lines of the plan text
+     * @param validation - validation of values. Example - "new Validation(LoadModel.IT8906A_1200_240)"
+     * @return - plan. It can be run only if it has no errors
+     */
+    public static LoadPlan compile(List<String> lines, Validation validation) {
+        List<Step> steps = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        boolean connected = false;
+        for (int i = 0; i < lines.size(); i++) {
+            int number = i + 1;
+            String line = lines.get(i);
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            StringTokenizer tokenizer = new StringTokenizer(line);
+            int count = tokenizer.countTokens();
+            if (count == 0) {
+                continue;
+            }
+            String[] words = new String[count];
+            for (int w = 0; w < count; w++) {
+                words[w] = tokenizer.nextToken();
+            }
+            String error;
+            try {
+                Step step = compileStep(number, words, validation);
+                if (step.instruction == Instruction.CONNECT) {
+                    error = connected ? "Load is already connected" : null;
+                    connected = true;
+                } else if (!connected) {
+                    error = "Load should be connected first";
+                } else {
+                    error = null;
+                    if (step.instruction == Instruction.DISCONNECT) {
+                        connected = false;
+                    }
+                }
+                if (error == null) {
+                    steps.add(step);
+                }
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+            }
+            if (error != null) {
+                errors.add("Line " + number + ": " + error);
+            }
+        }
+        if (steps.isEmpty() && errors.isEmpty()) {
+            errors.add("Plan has no steps");
+        }
+        return new LoadPlan(steps, errors);
+    }
+
+    /**
+     * Method that compiles one line
+     * @param line - line number
+     * @param words - words of the line
+     * @param validation - validation of values
+     * @return - compiled step
+     * @throws IllegalArgumentException - with the reason if the line is wrong
+     */
+    private static Step compileStep(int line, String[] words, Validation validation) {
+        String keyword = words[0].toUpperCase(Locale.ROOT);
+        switch (keyword) {
+            case "CONNECT": {
+                checkArguments(words, 2, 3, "connect HOST PORT [TIMEOUT]");
+                check(validation.validateIP4(words[1]));
+                int port = check(validation.validatePort(words[2])).getIntValue();
+                int timeout = words.length > 3 ? check(validation.validateTimeout(words[3])).getIntValue() : DEFAULT_TIMEOUT;
+                return new Step(line, Instruction.CONNECT, timeout, 0, words[1], port, null);
+            }
+            case "MODE": {
+                checkArguments(words, 1, 1, "mode CC|CV|CR");
+                try {
+                    LoadState.Function function = LoadState.Function.valueOf(words[1].toUpperCase(Locale.ROOT));
+                    return new Step(line, Instruction.MODE, Double.NaN, 0, null, 0, function);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Mode should be CC, CV or CR");
+                }
+            }
+            case "CURRENT":
+                checkArguments(words, 1, 1, "current A");
+                return value(line, Instruction.CURRENT, check(validation.validateCurrent(words[1])));
+            case "VOLTAGE":
+                checkArguments(words, 1, 1, "voltage V");
+                return value(line, Instruction.VOLTAGE, check(validation.validateVoltage(words[1])));
+            case "RESISTANCE":
+                checkArguments(words, 1, 1, "resistance OHM");
+                return value(line, Instruction.RESISTANCE, check(validation.validateResistance(words[1])));
+            case "PROTECT": {
+                checkArguments(words, 2, 2, "protect current A | protect power W");
+                String what = words[1].toUpperCase(Locale.ROOT);
+                if (what.equals("CURRENT")) {
+                    return value(line, Instruction.PROTECT_CURRENT, check(validation.validateCurrent(words[2])));
+                } else if (what.equals("POWER")) {
+                    return value(line, Instruction.PROTECT_POWER, check(validation.validatePower(words[2])));
+                }
+                throw new IllegalArgumentException("Protection should be current or power");
+            }
+            case "ON":
+            case "OFF":
+            case "CLEAR":
+            case "DISCONNECT":
+                checkArguments(words, 0, 0, keyword.toLowerCase(Locale.ROOT));
+                return new Step(line, Instruction.valueOf(keyword), Double.NaN, 0, null, 0, null);
+            case "DWELL":
+                checkArguments(words, 1, 1, "dwell MS");
+                return new Step(line, Instruction.DWELL, Double.NaN, parseDuration(words[1]), null, 0, null);
+            case "SAMPLE": {
+                checkArguments(words, 2, 2, "sample RATE MS");
+                double rate;
+                try {
+                    rate = Double.parseDouble(words[1]);
+                } catch (NumberFormatException e) {
+                    rate = Double.NaN;
+                }
+                if (!(rate > 0 && rate <= MAX_SAMPLE_RATE)) {
+                    throw new IllegalArgumentException("Sample rate should be a number from 0 to " + (int) MAX_SAMPLE_RATE);
+                }
+                return new Step(line, Instruction.SAMPLE, rate, parseDuration(words[2]), null, 0, null);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown step " + words[0]);
+        }
+    }
+
+    private static Step value(int line, Instruction instruction, ValidationResult result) {
+        return new Step(line, instruction, result.getValue(), 0, null, 0, null);
+    }
+
+    /**
+     * Method that throws the reason of the invalid result
+     * @param result - validation result
+     * @return - the same result if it is valid
+     */
+    private static ValidationResult check(ValidationResult result) {
+        if (!result.isValid()) {
+            throw new IllegalArgumentException(result.getReason());
+        }
+        return result;
+    }
+
+    private static void checkArguments(String[] words, int min, int max, String usage) {
+        int count = words.length - 1;
+        if (count < min || count > max) {
+            throw new IllegalArgumentException("Usage - " + usage);
+        }
+    }
+
+    /**
+     * Method that parses duration in ms
+     * @param text - digits only. Example - "5000"
+     * @return - duration from 1 ms to 24 hours
+     */
+    private static long parseDuration(String text) {
+        long value = -1;
+        if (text.length() <= 9) {
+            value = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    value = -1;
+                    break;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        if (value < 1 || value > MAX_DURATION) {
+            throw new IllegalArgumentException("Duration should be a number of ms from 1 to " + MAX_DURATION);
+        }
+        return value;
+    }
+
+    /**
+     * Method that returns compiled steps
+     * @return - steps in order of execution
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * Method that returns errors of the plan text
+     * @return - errors with line numbers, empty if the plan is valid
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Method that shows if the plan can be run
+     * @return - true if there are no errors, false otherwise
+     */
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
@@ -0,0 +1,255 @@
+package main;
+
+import java.util.Arrays;
+
+/**
+ * Class which holds the shadow copy of the load state: function, input, setpoints and protection limits.
+ * Every value is written when the client sets it or reads it from the load, so the driver can skip commands
+ * which would not change anything and answer recent reads without asking the load.
+ * Values that are unknown are NaN (or null for function and input)
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class LoadState {
+
+    /**
+     * load working regime and its SCPI function name
+     */
+    public enum Function {
+        CC("CURR"), CV("VOLT"), CR("RES");
+
+        private final String scpi;
+
+        Function(String scpi) {
+            this.scpi = scpi;
+        }
+
+        /**
+         * Method that returns SCPI name of the function
+         * @return - "CURR", "VOLT" or "RES"
+         */
+        public String getScpi() {
+            return scpi;
+        }
+    }
+
+    /**
+     * numeric values of the load
+     */
+    public enum Value {
+        SETUP_CURRENT, SETUP_VOLTAGE, SETUP_RESISTANCE, PROTECTION_CURRENT, PROTECTION_POWER
+    }
+
+    private Function function;
+    private Boolean input;
+    private boolean protectionCurrentEnabled;
+    private final double[] values = new double[Value.values().length];
+    private final long[] updated = new long[Value.values().length];
+
+    /**
+     * Class constructor. Creates state with nothing known
+     */
+    public LoadState() {
+        Arrays.fill(values, Double.NaN);
+    }
+
+    /**
+     * Method that forgets all values
+     */
+    public synchronized void clear() {
+        function = null;
+        input = null;
+        protectionCurrentEnabled = false;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.NaN;
+            updated[i] = 0;
+        }
+    }
+
+    /**
+     * Method that converts text value to number
+     * @param value - value as it was sent to the load. Example - "10.5"
+     * @return - number, NaN if the text is not a number
+     */
+    static double toNumber(String value) {
+        return value == null ? Double.NaN : SCPINumber.parse(value, 0, value.length());
+    }
+
+    /**
+     * Method that returns the value
+     * @param value - which value
+     * @return - the value, NaN if it is unknown
+     */
+    public synchronized double get(Value value) {
+        return values[value.ordinal()];
+    }
+
+    /**
+     * Method that returns the value if it was set or read not earlier than maxAge ago
+     * @param value - which value
+     * @param maxAge - allowed age in ms
+     * @return - the value, NaN if it is unknown or too old
+     */
+    public synchronized double getFresh(Value value, long maxAge) {
+        if (updated[value.ordinal()] == 0 || System.nanoTime() - updated[value.ordinal()] > maxAge * 1_000_000L) {
+            return Double.NaN;
+        }
+        return values[value.ordinal()];
+    }
+
+    /**
+     * Method that stores the value and the time it is known at
+     * @param value - which value
+     * @param number - the value, NaN makes it unknown
+     */
+    public synchronized void set(Value value, double number) {
+        values[value.ordinal()] = number;
+        updated[value.ordinal()] = Double.isNaN(number) ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Method that shows if the value is already the same
+     * @param value - which value
+     * @param number - the value to compare
+     * @return - true if the stored value is known and equal to number, false otherwise
+     */
+    public synchronized boolean isSame(Value value, double number) {
+        return values[value.ordinal()] == number;
+    }
+
+    /**
+     * Method that returns load function
+     * @return - load function, null if it is unknown
+     */
+    public synchronized Function getFunction() {
+        return function;
+    }
+
+    /**
+     * Method that stores load function
+     * @param function - load function
+     */
+    public synchronized void setFunction(Function function) {
+        this.function = function;
+    }
+
+    /**
+     * Method that returns load input state
+     * @return - true if input is on, false if off, null if it is unknown
+     */
+    public synchronized Boolean getInput() {
+        return input;
+    }
+
+    /**
+     * Method that stores load input state
+     * @param input - true if input is on, false if off, null if it is unknown
+     */
+    public synchronized void setInput(Boolean input) {
+        this.input = input;
+    }
+
+    /**
+     * Method that returns setup current in A
+     * @return - setup current in A
+     */
+    public double getSetupCurrent() {
+        return get(Value.SETUP_CURRENT);
+    }
+
+    /**
+     * Method that stores setup current in A
+     * @param setupCurrent - setup current in A
+     */
+    public void setSetupCurrent(double setupCurrent) {
+        set(Value.SETUP_CURRENT, setupCurrent);
+    }
+
+    /**
+     * Method that returns setup voltage in V
+     * @return - setup voltage in V
+     */
+    public double getSetupVoltage() {
+        return get(Value.SETUP_VOLTAGE);
+    }
+
+    /**
+     * Method that stores setup voltage in V
+     * @param setupVoltage - setup voltage in V
+     */
+    public void setSetupVoltage(double setupVoltage) {
+        set(Value.SETUP_VOLTAGE, setupVoltage);
+    }
+
+    /**
+     * Method that returns setup resistance in Ohm
+     * @return - setup resistance in Ohm
+     */
+    public double getSetupResistance() {
+        return get(Value.SETUP_RESISTANCE);
+    }
+
+    /**
+     * Method that stores setup resistance in Ohm
+     * @param setupResistance - setup resistance in Ohm
+     */
+    public void setSetupResistance(double setupResistance) {
+        set(Value.SETUP_RESISTANCE, setupResistance);
+    }
+
+    /**
+     * Method that returns protection current in A
+     * @return - protection current in A
+     */
+    public double getProtectionCurrent() {
+        return get(Value.PROTECTION_CURRENT);
+    }
+
+    /**
+     * Method that stores protection current in A
+     * @param protectionCurrent - protection current in A
+     */
+    public void setProtectionCurrent(double protectionCurrent) {
+        set(Value.PROTECTION_CURRENT, protectionCurrent);
+    }
+
+    /**
+     * Method that returns protection power in W
+     * @return - protection power in W
+     */
+    public double getProtectionPower() {
+        return get(Value.PROTECTION_POWER);
+    }
+
+    /**
+     * Method that stores protection power in W
+     * @param protectionPower - protection power in W
+     */
+    public void setProtectionPower(double protectionPower) {
+        set(Value.PROTECTION_POWER, protectionPower);
+    }
+
+    /**
+     * Method that shows if current protection is enabled
+     * @return - true if enabled, false otherwise
+     */
+    public synchronized boolean isProtectionCurrentEnabled() {
+        return protectionCurrentEnabled;
+    }
+
+    /**
+     * Method that stores if current protection is enabled
+     * @param protectionCurrentEnabled - true if enabled
+     */
+    public synchronized void setProtectionCurrentEnabled(boolean protectionCurrentEnabled) {
+        this.protectionCurrentEnabled = protectionCurrentEnabled;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "function=" + function + ", input=" + input + ", current=" + getSetupCurrent()
+                + " A, voltage=" + getSetupVoltage() + " V, resistance=" + getSetupResistance()
+                + " Ohm, protection current=" + getProtectionCurrent() + " A, protection power="
+                + getProtectionPower() + " W";
+    }
+}
@@ -1,9 +1,84 @@
 package main;
 
+import javax.swing.SwingUtilities;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Class which starts the client: GUI by default, or the headless plan runner if "--plan FILE" is given.
+ * GUI serves its measurements over HTTP if "--http PORT" is given and records them to files if "--record DIR" is given.
+ * The HTTP port is opened on the loopback interface, "--http-bind ADDRESS" opens it on another one ("0.0.0.0" - all).
+ * The runner does not load Swing, so it can be run on servers without display. Many runners per host
+ * can be started with a small heap, for example "java -Xmx32m -XX:+UseSerialGC -XX:TieredStopAtLevel=1"
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
 public class Main {
 
+    private static final String USAGE = "Usage - java main.Main [--http PORT] [--http-bind ADDRESS] [--record DIR] | --plan FILE";
+
+    /**
+     * Method that starts the client
+     * @param args - empty or "--http PORT", "--http-bind ADDRESS" and "--record DIR" for GUI,
+     *             "--plan FILE" for the headless runner. Exit code of the runner is 0 if the plan is done,
+     *             1 if it is stopped and 2 if the plan is invalid
+     */
     public static void main(String[] args) {
-        GUI mainFrame = new GUI();
-        mainFrame.start();
+        if (args.length > 0 && args[0].equals("--plan")) {
+            if (args.length != 2) {
+                System.out.println(USAGE);
+                System.exit(PlanRunner.INVALID);
+            }
+            System.exit(PlanRunner.runFile(Paths.get(args[1]), System.out));
+        }
+        int httpPort = -1;
+        InetAddress httpAddress = InetAddress.getLoopbackAddress();
+        Path recordDirectory = null;
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                System.out.println(USAGE);
+                System.exit(PlanRunner.INVALID);
+            }
+            if (args[i].equals("--http")) {
+                ValidationResult port = new Validation().validatePort(args[i + 1]);
+                if (!port.isValid()) {
+                    System.out.println(port.getReason());
+                    System.exit(PlanRunner.INVALID);
+                }
+                httpPort = port.getIntValue();
+            } else if (args[i].equals("--http-bind")) {
+                ValidationResult address = new Validation().validateIP4(args[i + 1]);
+                if (!address.isValid()) {
+                    System.out.println(address.getReason());
+                    System.exit(PlanRunner.INVALID);
+                }
+                try {
+                    httpAddress = InetAddress.getByName(args[i + 1]);
+                } catch (UnknownHostException e) {
+                    System.out.println("EXCEPTION - " + e.getMessage());
+                    System.exit(PlanRunner.INVALID);
+                }
+            } else if (args[i].equals("--record")) {
+                recordDirectory = Paths.get(args[i + 1]);
+            } else {
+                System.out.println(USAGE);
+                System.exit(PlanRunner.INVALID);
+            }
+        }
+        int serverPort = httpPort;
+        InetAddress serverAddress = httpAddress;
+        Path directory = recordDirectory;
+        SwingUtilities.invokeLater(() -> {
+            GUI mainFrame = new GUI();
+            mainFrame.start();
+            if (serverPort >= 0) {
+                mainFrame.startMeasurementServer(serverAddress, serverPort);
+            }
+            if (directory != null) {
+                mainFrame.startRecorder(directory);
+            }
+        });
     }
 }
@@ -0,0 +1,534 @@
+package main;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Class which records samples of the ring buffer to memory-mapped binary files on its own thread,
+ * so the sampling thread never waits for the disk. If the recorder falls behind by the whole buffer,
+ * the oldest samples are lost and counted.
+ * File "samples-NNNNNN.bin" has 64 bytes header: magic, version, record size, number of committed records,
+ * time of the first and the last record; then records of 36 big-endian bytes: time (long, ms), voltage,
+ * current, power (double) and status (int). The file is mapped by regions and grows region by region,
+ * the last region is not mapped beyond the size limit and the unused tail is cut when the file is closed.
+ * Records are forced to the disk and committed to the header every second.
+ * A new file is started when the file reaches the size or its samples span the time.
+ * When a file is closed, its entry is appended to "index.bin" with CRC, so a torn entry is ignored.
+ * Files without index entry (the recorder was not stopped) are recovered when the recorder is created:
+ * committed records and records written after the last commit with growing time are kept
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class MeasurementRecorder {
+
+    /**
+     * layout of data files
+     */
+    public static final int RECORD_SIZE = 36;
+    private static final int MAGIC = 0x49545243;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final int FIRST_TIME_OFFSET = 24;
+    private static final int LAST_TIME_OFFSET = 32;
+    private static final int REGION_RECORDS = 65536;
+    private static final long REGION_SIZE = (long) REGION_RECORDS * RECORD_SIZE;
+
+    /**
+     * layout of index entries: sequence, number of records, first and last time, CRC of these 32 bytes and padding
+     */
+    private static final int ENTRY_SIZE = 40;
+    private static final String INDEX_FILE = "index.bin";
+    private static final String FILE_PREFIX = "samples-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    /**
+     * period of commits and pause of the recorder thread when there are no new samples
+     */
+    private static final long COMMIT_PERIOD = TimeUnit.SECONDS.toNanos(1);
+    private static final long POLL_PERIOD = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final int POLL_BATCH = 4096;
+
+    /**
+     * entry of the index: one closed data file
+     */
+    public static final class FileEntry {
+        private final long sequence;
+        private final long count;
+        private final long firstTime;
+        private final long lastTime;
+
+        private FileEntry(long sequence, long count, long firstTime, long lastTime) {
+            this.sequence = sequence;
+            this.count = count;
+            this.firstTime = firstTime;
+            this.lastTime = lastTime;
+        }
+
+        /**
+         * Method that returns number of the file
+         * @return - sequence number from 1
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Method that returns number of records of the file
+         * @return - number of records
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Method that returns time of the first record
+         * @return - time in ms since epoch, 0 if the file is empty
+         */
+        public long getFirstTime() {
+            return firstTime;
+        }
+
+        /**
+         * Method that returns time of the last record
+         * @return - time in ms since epoch, 0 if the file is empty
+         */
+        public long getLastTime() {
+            return lastTime;
+        }
+
+        /**
+         * Method that returns name of the data file
+         * @return - file name. Example - "samples-000001.bin"
+         */
+        public String getFileName() {
+            return fileName(sequence);
+        }
+    }
+
+    private final SampleRingBuffer buffer;
+    private final Path directory;
+    private final long MAX_RECORDS;
+    private final long MAX_DURATION;
+    private final FileChannel index;
+
+    // State of the current file, used only by the recorder thread
+    private long sequence;
+    private FileChannel file;
+    private MappedByteBuffer header;
+    private MappedByteBuffer region;
+    private long regionNumber = -1;
+    private long fileCount;
+    private long committedCount;
+    private long firstTime;
+    private long lastTime;
+    private long lastCommit;
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long recordedCount;
+    private volatile long lostCount;
+    private volatile String lastError = "";
+
+    /**
+     * Class constructor. The index is checked and files which were not closed are recovered
+     * @param buffer - buffer of the sampling engine. Example - "samplingEngine.getBuffer()"
+     * @param directory - directory of data files and the index, it is created if needed. Example - "Paths.get("records")"
+     * @param maxFileSize - the largest size of a data file in bytes. Example - "1073741824"
+     * @param maxFileDuration - the longest time between the first and the last sample of a file in ms. Example - "3600000"
+     * @throws IOException - if the directory or the index can not be opened
+     */
+    public MeasurementRecorder(SampleRingBuffer buffer, Path directory, long maxFileSize, long maxFileDuration)
+            throws IOException {
+        if (maxFileSize < HEADER_SIZE + RECORD_SIZE || maxFileDuration <= 0) {
+            throw new IllegalArgumentException("File should hold at least one record for some time");
+        }
+        this.buffer = buffer;
+        this.directory = directory;
+        this.MAX_RECORDS = (maxFileSize - HEADER_SIZE) / RECORD_SIZE;
+        this.MAX_DURATION = maxFileDuration;
+        Files.createDirectories(directory);
+        this.index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover();
+    }
+
+    /**
+     * Method that starts recording of samples added to the buffer from now on
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        SampleRingBuffer.Reader reader = buffer.newReader();
+        thread = new Thread(() -> run(reader), "measurement-recorder");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Method that records the samples which are already in the buffer, closes the file and stops the thread
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+        }
+        if (t != null) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Method that closes the index. The recorder can not be started again
+     */
+    public void close() {
+        stop();
+        try {
+            index.close();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method of the recorder thread
+     * @param reader - reader of the buffer
+     */
+    private void run(SampleRingBuffer.Reader reader) {
+        SampleConsumer consumer = this::write;
+        try {
+            boolean stopping = false;
+            while (true) {
+                int count = reader.poll(consumer, POLL_BATCH);
+                lostCount = reader.getLost();
+                if (file != null && System.nanoTime() - lastCommit >= COMMIT_PERIOD) {
+                    commit();
+                }
+                if (count == 0) {
+                    if (stopping) {
+                        break;
+                    }
+                    if (!running) {
+                        // one more pass takes samples added before stop()
+                        stopping = true;
+                        continue;
+                    }
+                    LockSupport.parkNanos(POLL_PERIOD);
+                }
+            }
+            closeFile();
+        } catch (IOException | UncheckedIOException e) {
+            lastError = e.getMessage();
+            System.out.println("EXCEPTION - Recording is stopped - " + e.getMessage());
+            running = false;
+        }
+    }
+
+    /**
+     * Method that appends one record, starts the next file when the current one is full
+     */
+    private void write(long time, double voltage, double current, double power, int status) {
+        try {
+            if (file != null && (fileCount >= MAX_RECORDS || time - firstTime >= MAX_DURATION)) {
+                closeFile();
+            }
+            if (file == null) {
+                openFile(time);
+            }
+            long number = fileCount / REGION_RECORDS;
+            if (number != regionNumber) {
+                if (region != null) {
+                    region.force();
+                }
+                long length = Math.min(REGION_SIZE, (MAX_RECORDS - number * REGION_RECORDS) * RECORD_SIZE);
+                region = file.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + number * REGION_SIZE, length);
+                regionNumber = number;
+            }
+            int offset = (int) (fileCount % REGION_RECORDS) * RECORD_SIZE;
+            region.putLong(offset, time);
+            region.putDouble(offset + 8, voltage);
+            region.putDouble(offset + 16, current);
+            region.putDouble(offset + 24, power);
+            region.putInt(offset + 32, status);
+            fileCount++;
+            lastTime = time;
+            recordedCount++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openFile(long time) throws IOException {
+        sequence++;
+        file = FileChannel.open(directory.resolve(fileName(sequence)), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = file.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putLong(FIRST_TIME_OFFSET, time);
+        header.force();
+        fileCount = 0;
+        committedCount = 0;
+        regionNumber = -1;
+        region = null;
+        firstTime = time;
+        lastTime = time;
+        lastCommit = System.nanoTime();
+    }
+
+    /**
+     * Method that forces records to the disk and then commits their number to the header
+     */
+    private void commit() {
+        lastCommit = System.nanoTime();
+        if (fileCount == committedCount) {
+            return;
+        }
+        region.force();
+        header.putLong(LAST_TIME_OFFSET, lastTime);
+        header.putLong(COUNT_OFFSET, fileCount);
+        header.force();
+        committedCount = fileCount;
+    }
+
+    private void closeFile() throws IOException {
+        if (file == null) {
+            return;
+        }
+        commit();
+        truncate(file, fileCount);
+        file.close();
+        file = null;
+        header = null;
+        region = null;
+        regionNumber = -1;
+        appendEntry(new FileEntry(sequence, fileCount, fileCount == 0 ? 0 : firstTime, fileCount == 0 ? 0 : lastTime));
+    }
+
+    /**
+     * Method that cuts the mapped part of the data file after the records. Some systems do not allow it
+     * while the file is still mapped, then the file keeps its size: readers take the number of records
+     * from the header anyway
+     * @param channel - data file opened for writing
+     * @param count - number of records
+     */
+    private static void truncate(FileChannel channel, long count) {
+        try {
+            channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - File is not truncated - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Method that appends entry of the closed file to the index and forces it to the disk
+     */
+    private void appendEntry(FileEntry entry) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(ENTRY_SIZE);
+        out.putLong(entry.sequence).putLong(entry.count).putLong(entry.firstTime).putLong(entry.lastTime);
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, 32);
+        out.putInt((int) crc.getValue()).putInt(0);
+        out.flip();
+        long position = index.size();
+        while (out.hasRemaining()) {
+            position += index.write(out, position);
+        }
+        index.force(false);
+    }
+
+    /**
+     * Method that drops the torn tail of the index and adds entries of data files which were not closed
+     */
+    private void recover() throws IOException {
+        List<FileEntry> entries = readEntries(index);
+        index.truncate((long) entries.size() * ENTRY_SIZE);
+        Set<Long> indexed = new HashSet<>();
+        for (FileEntry entry : entries) {
+            indexed.add(entry.sequence);
+            sequence = Math.max(sequence, entry.sequence);
+        }
+        TreeSet<Long> found = new TreeSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : files) {
+                String name = path.getFileName().toString();
+                try {
+                    found.add(Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    System.out.println("EXCEPTION - Unknown file " + name);
+                }
+            }
+        }
+        for (long number : found) {
+            sequence = Math.max(sequence, number);
+            if (indexed.contains(number)) {
+                continue;
+            }
+            long[] range = {0, 0, 0};
+            long count;
+            try {
+                count = readFile(directory.resolve(fileName(number)), (time, voltage, current, power, status) -> {
+                    if (range[2]++ == 0) {
+                        range[0] = time;
+                    }
+                    range[1] = time;
+                }, true);
+            } catch (IOException e) {
+                System.out.println("EXCEPTION - File is not recovered - " + e.getMessage());
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(directory.resolve(fileName(number)), StandardOpenOption.WRITE)) {
+                ByteBuffer committed = ByteBuffer.allocate(24);
+                committed.putLong(count).putLong(range[0]).putLong(range[1]).flip();
+                channel.write(committed, COUNT_OFFSET);
+                truncate(channel, count);
+                channel.force(false);
+            }
+            appendEntry(new FileEntry(number, count, range[0], range[1]));
+        }
+    }
+
+    private static List<FileEntry> readEntries(FileChannel index) throws IOException {
+        List<FileEntry> entries = new ArrayList<>();
+        ByteBuffer in = ByteBuffer.allocate(ENTRY_SIZE);
+        CRC32 crc = new CRC32();
+        for (long position = 0; position + ENTRY_SIZE <= index.size(); position += ENTRY_SIZE) {
+            in.clear();
+            while (in.hasRemaining() && index.read(in, position + in.position()) > 0) {
+                // read the whole entry
+            }
+            crc.reset();
+            crc.update(in.array(), 0, 32);
+            if (in.hasRemaining() || in.getInt(32) != (int) crc.getValue()) {
+                break;
+            }
+            entries.add(new FileEntry(in.getLong(0), in.getLong(8), in.getLong(16), in.getLong(24)));
+        }
+        return entries;
+    }
+
+    private static String fileName(long sequence) {
+        return String.format("%s%06d%s", FILE_PREFIX, sequence, FILE_SUFFIX);
+    }
+
+    /**
+     * Method that returns entries of closed data files
+     * @param directory - directory of the recorder
+     * @return - entries in order of files
+     * @throws IOException - if the index can not be read
+     */
+    public static List<FileEntry> readIndex(Path directory) throws IOException {
+        try (FileChannel index = FileChannel.open(directory.resolve(INDEX_FILE), StandardOpenOption.READ)) {
+            return readEntries(index);
+        }
+    }
+
+    /**
+     * Method that reads committed records of the data file
+     * @param file - data file. Example - "Paths.get("records", "samples-000001.bin")"
+     * @param consumer - receiver of records
+     * @return - number of records
+     * @throws IOException - if the file can not be read or it is not a data file
+     */
+    public static long readFile(Path file, SampleConsumer consumer) throws IOException {
+        return readFile(file, consumer, false);
+    }
+
+    /**
+     * Method that reads records of the data file
+     * @param file - data file
+     * @param consumer - receiver of records
+     * @param uncommitted - true if records after the committed ones are read while their time grows
+     * @return - number of records
+     * @throws IOException - if the file can not be read or it is not a data file
+     */
+    private static long readFile(Path file, SampleConsumer consumer, boolean uncommitted) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                return 0;
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (in.getInt(0) != MAGIC || in.getInt(8) != RECORD_SIZE) {
+                throw new IOException("Not a recorder file - " + file);
+            }
+            long committed = in.getLong(COUNT_OFFSET);
+            long available = (size - HEADER_SIZE) / RECORD_SIZE;
+            long last = Long.MIN_VALUE;
+            long count = 0;
+            for (long start = 0; start < available; start += REGION_RECORDS) {
+                int records = (int) Math.min(REGION_RECORDS, available - start);
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + start * RECORD_SIZE,
+                        (long) records * RECORD_SIZE);
+                for (int i = 0; i < records; i++) {
+                    int offset = i * RECORD_SIZE;
+                    long time = region.getLong(offset);
+                    if (count >= committed && (!uncommitted || time == 0 || time < last)) {
+                        return count;
+                    }
+                    consumer.accept(time, region.getDouble(offset + 8), region.getDouble(offset + 16),
+                            region.getDouble(offset + 24), region.getInt(offset + 32));
+                    last = time;
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Method that returns number of recorded samples
+     * @return - number of samples
+     */
+    public long getRecordedCount() {
+        return recordedCount;
+    }
+
+    /**
+     * Method that returns number of samples which were overwritten in the buffer before they were recorded
+     * @return - number of samples
+     */
+    public long getLostCount() {
+        return lostCount;
+    }
+
+    /**
+     * Method that shows if the recorder is running
+     * @return - true if running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that returns the description of the error which stopped recording
+     * @return - error text, empty if there was no error
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
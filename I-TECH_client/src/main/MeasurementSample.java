@@ -0,0 +1,105 @@
+package main;
+
+/**
+ * Class which holds one measurement of the load: voltage, current, power and questionable status
+ * taken by one request to the load
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class MeasurementSample {
+
+    /**
+     * Enumeration of measured values and their SCPI queries. Compound query lists channels in this order
+     */
+    public enum Channel {
+        VOLTAGE("MEAS:VOLT?"), CURRENT("MEAS:CURR?"), POWER("MEAS:POW?"), STATUS("STAT:QUES:COND?");
+
+        private final String query;
+
+        Channel(String query) {
+            this.query = query;
+        }
+
+        /**
+         * Method that returns query of the channel
+         * @return - SCPI query. Example - "MEAS:VOLT?"
+         */
+        public String getQuery() {
+            return query;
+        }
+    }
+
+    private long time;
+    private double voltage;
+    private double current;
+    private double power;
+    private int status;
+
+    /**
+     * Class constructor
+     */
+    public MeasurementSample() {
+
+    }
+
+    /**
+     * Method that sets all values of the sample at once
+     * @param time - time of the measurement in ms since epoch
+     * @param voltage - measured voltage in V, NaN if it is not measured
+     * @param current - measured current in A, NaN if it is not measured
+     * @param power - measured power in W, NaN if it is not measured
+     * @param status - questionable status register value. 0 if there is no error
+     */
+    public void set(long time, double voltage, double current, double power, int status) {
+        this.time = time;
+        this.voltage = voltage;
+        this.current = current;
+        this.power = power;
+        this.status = status;
+    }
+
+    /**
+     * Method that returns time of the measurement
+     * @return - time in ms since epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Method that returns measured voltage
+     * @return - voltage in V
+     */
+    public double getVoltage() {
+        return voltage;
+    }
+
+    /**
+     * Method that returns measured current
+     * @return - current in A
+     */
+    public double getCurrent() {
+        return current;
+    }
+
+    /**
+     * Method that returns measured power
+     * @return - power in W
+     */
+    public double getPower() {
+        return power;
+    }
+
+    /**
+     * Method that returns questionable status register value
+     * @return - status value. 0 if there is no error
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return voltage + ";" + current + ";" + power + ";" + status;
+    }
+}
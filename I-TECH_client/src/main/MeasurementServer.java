@@ -0,0 +1,323 @@
+package main;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Class which serves measurements of one load over HTTP, so many dashboards share one instrument connection:
+ * GET /snapshot - the latest sample as JSON,
+ * GET /snapshot.bin - the latest sample as 36 big-endian bytes: time (long, ms), voltage, current, power (double)
+ * and status (int),
+ * GET /stream - every sample as server-sent event with the JSON of the sample.
+ * One dispatcher thread reads samples from the ring buffer, encodes every sample once and puts it to bounded queues
+ * of stream clients. A slow client loses its oldest events, the sampler and other clients never wait for it.
+ * Requests are handled by virtual threads. The port is opened on the loopback interface unless another
+ * address is given, so measurements are not shown to the network by default
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class MeasurementServer {
+
+    /**
+     * events kept for one stream client, number of stream clients and size of the binary snapshot
+     */
+    private static final int QUEUE_CAPACITY = 256;
+    private static final int MAX_CLIENTS = 256;
+    private static final int BINARY_SIZE = 36;
+
+    /**
+     * pause of the dispatcher when there are no new samples, samples dispatched at once
+     * and period of keep-alive comments of the idle stream
+     */
+    private static final long DISPATCH_PERIOD = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int DISPATCH_BATCH = 256;
+    private static final long KEEP_ALIVE = 15_000;
+
+    private static final byte[] KEEP_ALIVE_EVENT = ": keep-alive\n\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CLOSE_EVENT = new byte[0];
+
+    /**
+     * stream client and its queue of encoded events. Events are put only by the dispatcher thread
+     */
+    private static final class Client {
+        private final ArrayBlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+        private void offer(byte[] event, AtomicLong dropped) {
+            while (!queue.offer(event)) {
+                if (queue.poll() != null) {
+                    dropped.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    private final SampleRingBuffer buffer;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final StringBuilder json = new StringBuilder(128);
+
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    /**
+     * Class constructor. The port is opened at once on the loopback interface
+     * @param buffer - buffer of the sampling engine. Example - "samplingEngine.getBuffer()"
+     * @param port - port number, 0 - any free port. Example - "8080"
+     * @throws IOException - if the port can not be opened
+     */
+    public MeasurementServer(SampleRingBuffer buffer, int port) throws IOException {
+        this(buffer, InetAddress.getLoopbackAddress(), port);
+    }
+
+    /**
+     * Class constructor. The port is opened at once
+     * @param buffer - buffer of the sampling engine. Example - "samplingEngine.getBuffer()"
+     * @param address - local address the port is opened on, "0.0.0.0" - all interfaces.
+     *                Example - "InetAddress.getByName("10.1.42.100")"
+     * @param port - port number, 0 - any free port. Example - "8080"
+     * @throws IOException - if the port can not be opened
+     */
+    public MeasurementServer(SampleRingBuffer buffer, InetAddress address, int port) throws IOException {
+        this.buffer = buffer;
+        this.server = HttpServer.create(new InetSocketAddress(address, port), 0);
+        server.setExecutor(executor);
+        server.createContext("/snapshot", this::sendSnapshot);
+        server.createContext("/snapshot.bin", this::sendBinarySnapshot);
+        server.createContext("/stream", this::sendStream);
+    }
+
+    /**
+     * Method that starts serving requests and the dispatcher thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatch, "measurement-server");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        server.start();
+    }
+
+    /**
+     * Method that closes streams and the port. The server can not be started again
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = dispatcher;
+        }
+        if (t != null) {
+            t.interrupt();
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Client client : clients) {
+            client.offer(CLOSE_EVENT, droppedCount);
+        }
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Method that returns the port of the server
+     * @return - port number
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Method that returns the local address the port is opened on
+     * @return - local address. Example - "127.0.0.1"
+     */
+    public InetAddress getAddress() {
+        return server.getAddress().getAddress();
+    }
+
+    /**
+     * Method that returns number of connected stream clients
+     * @return - number of clients
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Method that returns number of events lost by slow stream clients
+     * @return - number of events
+     */
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Method of the dispatcher thread: reads new samples and puts their events to every client queue
+     */
+    private void dispatch() {
+        SampleRingBuffer.Reader reader = buffer.newReader();
+        SampleConsumer consumer = (time, voltage, current, power, status) -> {
+            if (clients.isEmpty()) {
+                return;
+            }
+            json.setLength(0);
+            json.append("data: ");
+            appendJson(json, time, voltage, current, power, status);
+            json.append("\n\n");
+            byte[] event = json.toString().getBytes(StandardCharsets.US_ASCII);
+            for (Client client : clients) {
+                client.offer(event, droppedCount);
+            }
+        };
+        while (running) {
+            if (reader.poll(consumer, DISPATCH_BATCH) == 0) {
+                LockSupport.parkNanos(DISPATCH_PERIOD);
+            }
+        }
+    }
+
+    /**
+     * Method that appends sample as JSON object. NaN values (not measured channels) are null
+     */
+    private static void appendJson(StringBuilder out, long time, double voltage, double current, double power, int status) {
+        out.append("{\"time\":").append(time);
+        appendField(out, "voltage", voltage);
+        appendField(out, "current", current);
+        appendField(out, "power", power);
+        out.append(",\"status\":").append(status).append('}');
+    }
+
+    private static void appendField(StringBuilder out, String name, double value) {
+        out.append(",\"").append(name).append("\":");
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else {
+            out.append(value);
+        }
+    }
+
+    /**
+     * Method that checks the request method and the exact path of the context
+     * @return - true if the request should be served, false if the error is already sent
+     */
+    private static boolean checkRequest(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return false;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.getResponseHeaders().set("Allow", "GET");
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return false;
+        }
+        return true;
+    }
+
+    private void sendSnapshot(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange)) {
+            return;
+        }
+        MeasurementSample sample = new MeasurementSample();
+        if (!buffer.getLatest(sample)) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+        StringBuilder out = new StringBuilder(128);
+        appendJson(out, sample.getTime(), sample.getVoltage(), sample.getCurrent(), sample.getPower(), sample.getStatus());
+        send(exchange, "application/json", out.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void sendBinarySnapshot(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange)) {
+            return;
+        }
+        MeasurementSample sample = new MeasurementSample();
+        if (!buffer.getLatest(sample)) {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+        ByteBuffer out = ByteBuffer.allocate(BINARY_SIZE);
+        out.putLong(sample.getTime()).putDouble(sample.getVoltage()).putDouble(sample.getCurrent())
+                .putDouble(sample.getPower()).putInt(sample.getStatus());
+        send(exchange, "application/octet-stream", out.array());
+    }
+
+    private static void send(HttpExchange exchange, String type, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", type);
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Method of the stream request: sends events from the client queue until the client goes away
+     * or the server is stopped
+     */
+    private void sendStream(HttpExchange exchange) throws IOException {
+        if (!checkRequest(exchange)) {
+            return;
+        }
+        if (clients.size() >= MAX_CLIENTS || !running) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        Client client = new Client();
+        clients.add(client);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(KEEP_ALIVE_EVENT);
+            out.flush();
+            while (running) {
+                byte[] event = client.queue.poll(KEEP_ALIVE, TimeUnit.MILLISECONDS);
+                if (event == CLOSE_EVENT) {
+                    break;
+                }
+                out.write(event == null ? KEEP_ALIVE_EVENT : event);
+                while ((event = client.queue.poll()) != null && event != CLOSE_EVENT) {
+                    out.write(event);
+                }
+                out.flush();
+                if (event == CLOSE_EVENT) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // the client has gone away
+        } finally {
+            clients.remove(client);
+        }
+    }
+}
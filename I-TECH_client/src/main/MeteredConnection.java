@@ -0,0 +1,404 @@
+package main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Class which wraps a connection and counts commands, bytes, timeouts and latencies by command type.
+ * Command type is the header of the command (text before the first space), so "CURR 10" and "CURR 12" are one type
+ * and a compound query is one type as a whole. Latency is the time from writing a query (a command with "?")
+ * to reading its answer. Written queries are kept in FIFO order and every read line or timeout is counted
+ * to the oldest of them, so answers of pipelined queries (AsyncCommander) are counted to their own queries. The header is found in a hash table without creating Strings, so metering costs
+ * a few atomic increments per command. Statistics can be read by any thread, for example by JMX
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class MeteredConnection implements InstrumentConnection, InstrumentMetricsMXBean {
+
+    /**
+     * the largest number of command types, further types are counted as OTHER
+     */
+    private static final int MAX_COMMANDS = 64;
+    private static final int TABLE_SIZE = 128;
+    private static final String OTHER = "OTHER";
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    /**
+     * the largest number of queries waiting for answers, the oldest one is forgotten if more are written
+     */
+    private static final int MAX_IN_FLIGHT = 256;
+
+    /**
+     * counters of one command type
+     */
+    private static final class CommandMetrics {
+        private final String header;
+        private final int hash;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong answers = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final AtomicLong bytesOut = new AtomicLong();
+        private final AtomicLong bytesIn = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private CommandMetrics(String header, int hash) {
+            this.header = header;
+            this.hash = hash;
+        }
+
+        private boolean matches(CharSequence message, int end, int hash) {
+            if (this.hash != hash || header.length() != end) {
+                return false;
+            }
+            for (int i = 0; i < end; i++) {
+                if (header.charAt(i) != message.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void reset() {
+            count.set(0);
+            answers.set(0);
+            timeouts.set(0);
+            bytesOut.set(0);
+            bytesIn.set(0);
+            latency.reset();
+        }
+
+        private CommandStatistics toStatistics() {
+            return new CommandStatistics(header, count.get(), answers.get(), timeouts.get(), bytesOut.get(),
+                    bytesIn.get(), latency.getMean() / NANOS_PER_MICRO, latency.getPercentile(50) / NANOS_PER_MICRO,
+                    latency.getPercentile(99) / NANOS_PER_MICRO, latency.getPercentile(99.9) / NANOS_PER_MICRO,
+                    latency.getMax() / NANOS_PER_MICRO);
+        }
+    }
+
+    private final InstrumentConnection connection;
+    private final AtomicReferenceArray<CommandMetrics> table = new AtomicReferenceArray<>(TABLE_SIZE);
+    private final List<CommandMetrics> commands = new CopyOnWriteArrayList<>();
+    private final AtomicLong lostCount = new AtomicLong();
+    private CommandMetrics other;
+
+    /**
+     * written queries which wait for answers and their start times, ring buffer guarded by itself
+     */
+    private final CommandMetrics[] inFlight = new CommandMetrics[MAX_IN_FLIGHT];
+    private final long[] inFlightStart = new long[MAX_IN_FLIGHT];
+    private int inFlightHead;
+    private int inFlightSize;
+
+    /**
+     * the last written command, a line read while no query waits is counted to it
+     */
+    private volatile CommandMetrics last;
+
+    /**
+     * Class constructor
+     * @param connection - connection to be metered. Example - "new TCPConnection("127.0.0.1", 30000, 1000)"
+     */
+    public MeteredConnection(InstrumentConnection connection) {
+        this.connection = connection;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        connection.connect();
+    }
+
+    @Override
+    public void disconnect() {
+        clearInFlight();
+        connection.disconnect();
+    }
+
+    @Override
+    public void writeToSocket(String message) {
+        beforeWrite(message);
+        connection.writeToSocket(message);
+    }
+
+    @Override
+    public void write(CharSequence message) {
+        beforeWrite(message);
+        connection.write(message);
+    }
+
+    @Override
+    public String readFromSocket() {
+        String answer = connection.readFromSocket();
+        if (answer == null || answer.equals("NO DATA")) {
+            afterRead(-1);
+        } else {
+            afterRead(answer.length() + 1);
+        }
+        return answer;
+    }
+
+    @Override
+    public ByteBuffer readLine() {
+        ByteBuffer line = connection.readLine();
+        afterRead(line == null ? -1 : line.remaining() + 1);
+        return line;
+    }
+
+    @Override
+    public void clearInput() {
+        clearInFlight();
+        connection.clearInput();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connection.isConnected();
+    }
+
+    /**
+     * Method that counts the command and starts its latency if it is a query
+     * @param message - command. Example - "MEAS:VOLT?"
+     */
+    private void beforeWrite(CharSequence message) {
+        CommandMetrics metrics = find(message);
+        metrics.count.incrementAndGet();
+        metrics.bytesOut.addAndGet(message.length() + 1);
+        last = metrics;
+        if (isQuery(message)) {
+            synchronized (inFlight) {
+                if (inFlightSize == MAX_IN_FLIGHT) {
+                    inFlight[inFlightHead] = null;
+                    inFlightHead = (inFlightHead + 1) % MAX_IN_FLIGHT;
+                    inFlightSize--;
+                }
+                int tail = (inFlightHead + inFlightSize) % MAX_IN_FLIGHT;
+                inFlight[tail] = metrics;
+                inFlightStart[tail] = System.nanoTime();
+                inFlightSize++;
+            }
+        }
+    }
+
+    /**
+     * Method that counts the answer or its absence to the oldest query waiting for the answer
+     * @param bytes - received bytes with line terminator, -1 if nothing is received
+     */
+    private void afterRead(int bytes) {
+        CommandMetrics metrics;
+        long start = 0;
+        synchronized (inFlight) {
+            if (inFlightSize == 0) {
+                metrics = last;
+            } else {
+                metrics = inFlight[inFlightHead];
+                start = inFlightStart[inFlightHead];
+                inFlight[inFlightHead] = null;
+                inFlightHead = (inFlightHead + 1) % MAX_IN_FLIGHT;
+                inFlightSize--;
+            }
+        }
+        if (metrics == null) {
+            return;
+        }
+        if (bytes < 0) {
+            if (connection.isConnected()) {
+                metrics.timeouts.incrementAndGet();
+            } else {
+                lostCount.incrementAndGet();
+            }
+            return;
+        }
+        metrics.answers.incrementAndGet();
+        metrics.bytesIn.addAndGet(bytes);
+        if (start != 0) {
+            metrics.latency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Method that forgets queries waiting for answers: their answers will not be read
+     */
+    private void clearInFlight() {
+        synchronized (inFlight) {
+            Arrays.fill(inFlight, null);
+            inFlightHead = 0;
+            inFlightSize = 0;
+        }
+    }
+
+    private static boolean isQuery(CharSequence message) {
+        for (int i = message.length() - 1; i >= 0; i--) {
+            if (message.charAt(i) == '?') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that finds counters of the command header
+     * @param message - command
+     * @return - counters, OTHER if there are too many command types
+     */
+    private CommandMetrics find(CharSequence message) {
+        int end = 0;
+        int hash = 0;
+        for (int length = message.length(); end < length; end++) {
+            char c = message.charAt(end);
+            if (c == ' ') {
+                break;
+            }
+            hash = 31 * hash + c;
+        }
+        for (int probe = 0; probe < TABLE_SIZE; probe++) {
+            CommandMetrics metrics = table.get(slot(hash, probe));
+            if (metrics == null) {
+                return add(message, end, hash);
+            }
+            if (metrics.matches(message, end, hash)) {
+                return metrics;
+            }
+        }
+        return getOther();
+    }
+
+    private static int slot(int hash, int probe) {
+        return ((hash ^ (hash >>> 16)) + probe) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Method that adds counters of the new command header. Other thread may add the same header at the same time,
+     * so the table is searched once more under the lock
+     */
+    private synchronized CommandMetrics add(CharSequence message, int end, int hash) {
+        for (int probe = 0; probe < TABLE_SIZE; probe++) {
+            int slot = slot(hash, probe);
+            CommandMetrics metrics = table.get(slot);
+            if (metrics == null) {
+                if (commands.size() >= MAX_COMMANDS) {
+                    return getOther();
+                }
+                metrics = new CommandMetrics(message.subSequence(0, end).toString(), hash);
+                commands.add(metrics);
+                table.set(slot, metrics);
+                return metrics;
+            }
+            if (metrics.matches(message, end, hash)) {
+                return metrics;
+            }
+        }
+        return getOther();
+    }
+
+    private synchronized CommandMetrics getOther() {
+        if (other == null) {
+            other = new CommandMetrics(OTHER, 0);
+            commands.add(other);
+        }
+        return other;
+    }
+
+    /**
+     * Method that returns latencies of all queries
+     * @return - histogram in ns
+     */
+    public LatencyHistogram getLatency() {
+        LatencyHistogram total = new LatencyHistogram();
+        for (CommandMetrics metrics : commands) {
+            total.add(metrics.latency);
+        }
+        return total;
+    }
+
+    @Override
+    public long getCommandCount() {
+        long sum = 0;
+        for (CommandMetrics metrics : commands) {
+            sum += metrics.count.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getAnswerCount() {
+        long sum = 0;
+        for (CommandMetrics metrics : commands) {
+            sum += metrics.answers.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        long sum = 0;
+        for (CommandMetrics metrics : commands) {
+            sum += metrics.timeouts.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getLostCount() {
+        return lostCount.get();
+    }
+
+    @Override
+    public long getBytesOut() {
+        long sum = 0;
+        for (CommandMetrics metrics : commands) {
+            sum += metrics.bytesOut.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public long getBytesIn() {
+        long sum = 0;
+        for (CommandMetrics metrics : commands) {
+            sum += metrics.bytesIn.get();
+        }
+        return sum;
+    }
+
+    @Override
+    public double getLatencyP50() {
+        return getLatency().getPercentile(50) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getLatencyP99() {
+        return getLatency().getPercentile(99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getLatencyP999() {
+        return getLatency().getPercentile(99.9) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxLatency() {
+        return getLatency().getMax() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public List<CommandStatistics> getCommands() {
+        List<CommandStatistics> statistics = new ArrayList<>(commands.size());
+        for (CommandMetrics metrics : commands) {
+            statistics.add(metrics.toStatistics());
+        }
+        return statistics;
+    }
+
+    @Override
+    public void resetStatistics() {
+        for (CommandMetrics metrics : commands) {
+            metrics.reset();
+        }
+        lostCount.set(0);
+    }
+}
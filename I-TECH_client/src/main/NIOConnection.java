@@ -0,0 +1,331 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class for establishing TCP connection between client and server on top of a non-blocking SocketChannel.
+ * Reading and writing go through reusable direct buffers, lines are framed by '\n' ('\r' before it is dropped),
+ * so responses can be handed to a parser as raw bytes without building intermediate Strings
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class NIOConnection implements InstrumentConnection {
+
+    /**
+     * buffer sizes in bytes. SCPI answers of the load are much shorter than READ_BUFFER_SIZE
+     */
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int WRITE_BUFFER_SIZE = 1024;
+
+    private SocketChannel channel;
+    private Selector readSelector;
+    private Selector writeSelector;
+
+    /**
+     * readBuffer is always kept in fill mode: unread data lies between "consumed" and position
+     */
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final ByteBuffer lineView = readBuffer.duplicate();
+    private final byte[] lineBytes = new byte[READ_BUFFER_SIZE];
+    private int consumed;
+    private int scanned;
+
+    /**
+     * true after a line longer than the buffer is dropped, until its terminator is received
+     */
+    private boolean discarding;
+
+    private final Object readLock = new Object();
+    private final Object writeLock = new Object();
+    private volatile boolean lost;
+
+    private final int PORT;
+    private final String HOST;
+    private final int TIMEOUT;
+
+    /**
+     * Class constructor
+     * @param host - host name. Example - "127.0.0.1"
+     * @param port - port number. Example - "8800"
+     * @param timeout - timeout parameter in ms. Reading returns "NO DATA" after "timeout" ms if nothing is read. Example - "1000"
+     */
+    public NIOConnection(String host, int port, int timeout) {
+        this.PORT = port;
+        this.HOST = host;
+        this.TIMEOUT = timeout;
+    }
+
+    /**
+     * Method that trys to connect to server. The previous connection is closed
+     * @throws IOException - exception appears if something go wrong with connection
+     */
+    @Override
+    public void connect() throws IOException {
+        if (channel != null) {
+            disconnect();
+        }
+        channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(HOST, PORT), TIMEOUT);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            readSelector = Selector.open();
+            writeSelector = Selector.open();
+            channel.register(readSelector, SelectionKey.OP_READ);
+            channel.register(writeSelector, SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            disconnect();
+            throw e;
+        }
+        synchronized (readLock) {
+            readBuffer.clear();
+            consumed = 0;
+            scanned = 0;
+            discarding = false;
+        }
+        lost = false;
+    }
+
+    /**
+     * Method that diconnects client from server
+     */
+    @Override
+    public void disconnect() {
+        try {
+            if (readSelector != null) readSelector.close();
+            if (writeSelector != null) writeSelector.close();
+            if (channel != null) channel.close();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - IOException found while trying to close connection.");
+        }
+    }
+
+    /**
+     * Method that write message to server
+     * @param message - text that will be send to server. Example - "MEAS:VOLT?"
+     */
+    @Override
+    public void writeToSocket(String message) {
+        write(message);
+    }
+
+    /**
+     * Method that write message to server without creating intermediate Strings or byte arrays.
+     * Characters are sent as ASCII, SCPI does not use anything else
+     * @param message - text that will be send to server. Example - "CURR 10"
+     */
+    @Override
+    public void write(CharSequence message) {
+        if (!isConnected()) {
+            return;
+        }
+        synchronized (writeLock) {
+            writeBuffer.clear();
+            try {
+                for (int i = 0; i < message.length(); i++) {
+                    if (!writeBuffer.hasRemaining()) {
+                        flush();
+                    }
+                    writeBuffer.put((byte) message.charAt(i));
+                }
+                if (!writeBuffer.hasRemaining()) {
+                    flush();
+                }
+                writeBuffer.put((byte) '\n');
+                flush();
+            } catch (IOException e) {
+                lost = true;
+                System.out.println("EXCEPTION - IOException found while trying to write to socket.");
+            }
+        }
+    }
+
+    /**
+     * Method that sends the content of writeBuffer and leaves it cleared
+     * @throws IOException - if channel is broken or nothing could be sent during "timeout" ms
+     */
+    private void flush() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            if (channel.write(writeBuffer) == 0) {
+                if (writeSelector.select(TIMEOUT) == 0) {
+                    throw new IOException("write timeout");
+                }
+                writeSelector.selectedKeys().clear();
+            }
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Method that reads message from server
+     * @return message from server. Example - "1.234", "NO DATA" if nothing is read during "timeout" ms,
+     *         null if server closed the connection
+     */
+    @Override
+    public String readFromSocket() {
+        synchronized (readLock) {
+            ByteBuffer line = readLine();
+            if (line == null) {
+                return lost ? null : "NO DATA";
+            }
+            int length = line.remaining();
+            line.get(lineBytes, 0, length);
+            return new String(lineBytes, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Method that reads next line from server as raw bytes.
+     * The returned buffer is a view on the internal read buffer: it is positioned at the first byte of the line,
+     * its limit is the end of the line without terminator. The view is valid only until the next read call
+     * and the caller should hold no other read in parallel
+     * @return line bytes, or null if nothing is read during "timeout" ms or connection is lost
+     */
+    @Override
+    public ByteBuffer readLine() {
+        if (!isConnected()) {
+            return null;
+        }
+        synchronized (readLock) {
+            long deadline = System.nanoTime() + TIMEOUT * 1_000_000L;
+            try {
+                while (true) {
+                    int end = indexOf((byte) '\n');
+                    if (end >= 0) {
+                        int start = consumed;
+                        consumed = end + 1;
+                        scanned = consumed;
+                        if (discarding) {
+                            // the tail of the dropped line
+                            discarding = false;
+                            continue;
+                        }
+                        if (end > start && readBuffer.get(end - 1) == '\r') {
+                            end--;
+                        }
+                        lineView.clear();
+                        lineView.position(start).limit(end);
+                        return lineView;
+                    }
+                    makeRoom();
+                    int read = channel.read(readBuffer);
+                    if (read < 0) {
+                        lost = true;
+                        return null;
+                    }
+                    if (read == 0 && !await(deadline)) {
+                        System.out.println("EXCEPTION - SocketTimeoutException found while trying to read from socket.");
+                        return null;
+                    }
+                }
+            } catch (IOException e) {
+                lost = true;
+                System.out.println("EXCEPTION - IOException found while trying to read from socket.");
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Method that searches not yet scanned data for the byte
+     * @param b - byte to search
+     * @return absolute index of the byte in readBuffer, -1 if it is not received yet
+     */
+    private int indexOf(byte b) {
+        int limit = readBuffer.position();
+        for (int i = scanned; i < limit; i++) {
+            if (readBuffer.get(i) == b) {
+                return i;
+            }
+        }
+        scanned = limit;
+        return -1;
+    }
+
+    /**
+     * Method that frees space in readBuffer by moving unread data to the beginning.
+     * A line longer than the buffer can not be framed, so it is dropped up to its terminator
+     */
+    private void makeRoom() {
+        if (consumed == readBuffer.position()) {
+            readBuffer.clear();
+            consumed = 0;
+            scanned = 0;
+        } else if (!readBuffer.hasRemaining()) {
+            if (consumed == 0) {
+                System.out.println("EXCEPTION - line is longer than " + READ_BUFFER_SIZE + " bytes, dropped.");
+                readBuffer.clear();
+                scanned = 0;
+                discarding = true;
+                return;
+            }
+            readBuffer.flip().position(consumed);
+            readBuffer.compact();
+            scanned -= consumed;
+            consumed = 0;
+        }
+    }
+
+    /**
+     * Method that waits until the channel is readable
+     * @param deadline - System.nanoTime() value when waiting should stop
+     * @return true if channel became readable, false if deadline passed
+     * @throws IOException - if selector fails
+     */
+    private boolean await(long deadline) throws IOException {
+        long remaining = (deadline - System.nanoTime()) / 1_000_000L;
+        if (remaining <= 0) {
+            return false;
+        }
+        int selected = readSelector.select(remaining);
+        readSelector.selectedKeys().clear();
+        return selected > 0 || deadline - System.nanoTime() > 0;
+    }
+
+    /**
+     * Method that drops everything that has been received but not read yet
+     */
+    @Override
+    public void clearInput() {
+        if (!isConnected()) {
+            return;
+        }
+        synchronized (readLock) {
+            try {
+                int read;
+                do {
+                    readBuffer.clear();
+                    read = channel.read(readBuffer);
+                } while (read > 0);
+                if (read < 0) {
+                    lost = true;
+                }
+            } catch (IOException e) {
+                lost = true;
+                System.out.println("EXCEPTION - IOException found while trying to clear input.");
+            }
+            readBuffer.clear();
+            consumed = 0;
+            scanned = 0;
+        }
+    }
+
+    /**
+     * Method that shows if the connection is still established
+     * @return "true" if connection is established, "false" otherwise
+     */
+    @Override
+    public boolean isConnected() {
+        return channel != null && channel.isConnected() && !lost;
+    }
+
+}
@@ -0,0 +1,283 @@
+package main;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Class which runs a compiled test plan on IT8906A_1200_240 without GUI. Events are printed with time stamps,
+ * samples are printed as "time;voltage;current;power;status" lines. If protection of the load trips
+ * or the connection is lost, the input is turned off and the rest of the plan is skipped
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class PlanRunner {
+
+    /**
+     * exit codes of the runner
+     */
+    public static final int PASSED = 0;
+    public static final int FAILED = 1;
+    public static final int INVALID = 2;
+
+    /**
+     * period of protection status checks during DWELL in ms and capacity of the sample buffer
+     */
+    private static final long STATUS_PERIOD = 100;
+    private static final int SAMPLE_CAPACITY = 64;
+    private static final Set<MeasurementSample.Channel> STATUS = EnumSet.of(MeasurementSample.Channel.STATUS);
+
+    /**
+     * the engine makes one quick attempt to reconnect, so the load can be turned off, but the plan is stopped anyway:
+     * the load does not keep its input state after reconnection
+     */
+    private static final ReconnectPolicy ONE_ATTEMPT = new ReconnectPolicy(50, 50, 0, 1);
+
+    private final LoadPlan plan;
+    private final PrintStream out;
+    private final IT8906A_1200_240 load = new IT8906A_1200_240();
+    private final TimestampService timestamps = TimestampService.getDefault();
+    private final MeasurementSample status = new MeasurementSample();
+
+    private boolean connected;
+    private volatile int tripped;
+    private volatile boolean lost;
+
+    /**
+     * Class constructor
+     * @param plan - valid compiled plan
+     * @param out - where events and samples are printed. Example - "System.out"
+     */
+    public PlanRunner(LoadPlan plan, PrintStream out) {
+        if (!plan.isValid()) {
+            throw new IllegalArgumentException("Plan has errors");
+        }
+        this.plan = plan;
+        this.out = out;
+    }
+
+    /**
+     * Method that reads, compiles and runs the plan file. Errors of the plan are printed and nothing is run
+     * @param file - plan file. Example - "Paths.get("burn_in.plan")"
+     * @param out - where events and samples are printed
+     * @return - PASSED, FAILED or INVALID if the file can not be read or has errors
+     */
+    public static int runFile(Path file, PrintStream out) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            out.println("EXCEPTION - Failed to read plan " + file + " - " + e.getMessage());
+            return INVALID;
+        }
+        LoadPlan plan = LoadPlan.compile(lines, new Validation(LoadModel.IT8906A_1200_240));
+        if (!plan.isValid()) {
+            for (String error : plan.getErrors()) {
+                out.println(file + ": " + error);
+            }
+            return INVALID;
+        }
+        return new PlanRunner(plan, out).run();
+    }
+
+    /**
+     * Method that runs all steps of the plan
+     * @return - PASSED if every step is done, FAILED otherwise
+     */
+    public int run() {
+        try {
+            for (LoadPlan.Step step : plan.getSteps()) {
+                if (!execute(step)) {
+                    log("Plan is stopped at line " + step.getLine());
+                    return FAILED;
+                }
+            }
+            log("Plan is done");
+            return PASSED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log("Plan is interrupted");
+            return FAILED;
+        } finally {
+            if (connected) {
+                if (load.isDeviceConnected()) {
+                    load.setDeviceOff();
+                }
+                load.disconnect();
+                connected = false;
+            }
+        }
+    }
+
+    /**
+     * Method that executes one step
+     * @param step - step of the plan
+     * @return - true if the step is done, false if the plan should be stopped
+     * @throws InterruptedException - if the thread is interrupted during DWELL or SAMPLE
+     */
+    private boolean execute(LoadPlan.Step step) throws InterruptedException {
+        switch (step.getInstruction()) {
+            case CONNECT:
+                load.setConnection(new TCPConnection(step.getHost(), step.getPort(), (int) step.getValue()));
+                try {
+                    load.connect();
+                } catch (IOException e) {
+                    log("EXCEPTION - Failed to connect to " + step.getHost() + ":" + step.getPort() + " - " + e.getMessage());
+                    return false;
+                }
+                connected = true;
+                log("Connected to " + step.getHost() + ":" + step.getPort());
+                break;
+            case MODE:
+                switch (step.getFunction()) {
+                    case CC:
+                        load.setFunctionCC();
+                        break;
+                    case CV:
+                        load.setFunctionCV();
+                        break;
+                    case CR:
+                        load.setFunctionCR();
+                        break;
+                }
+                break;
+            case CURRENT:
+                load.setCurrent(step.getValue());
+                break;
+            case VOLTAGE:
+                load.setVoltage(step.getValue());
+                break;
+            case RESISTANCE:
+                load.setResistance(step.getValue());
+                break;
+            case PROTECT_CURRENT:
+                load.setProtectionCurrent(step.getValue());
+                break;
+            case PROTECT_POWER:
+                load.setProtectionPower(step.getValue());
+                break;
+            case ON:
+                load.setDeviceOn();
+                log("Load is on");
+                break;
+            case OFF:
+                load.setDeviceOff();
+                log("Load is off");
+                break;
+            case CLEAR:
+                load.resetProtection();
+                break;
+            case DWELL:
+                return dwell(step.getDuration());
+            case SAMPLE:
+                return sample(step.getValue(), step.getDuration());
+            case DISCONNECT:
+                load.disconnect();
+                connected = false;
+                log("Disconnected");
+                return true;
+        }
+        if (!load.isDeviceConnected()) {
+            log("Connection is lost");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method that waits and checks protection status every STATUS_PERIOD ms
+     * @param duration - time in ms
+     * @return - true if protection has not tripped and connection is not lost
+     * @throws InterruptedException - if the thread is interrupted
+     */
+    private boolean dwell(long duration) throws InterruptedException {
+        long end = System.nanoTime() + duration * 1_000_000;
+        while (true) {
+            if (!load.getMeasurement(status, STATUS)) {
+                log(load.isDeviceConnected() ? "Protection status is not received" : "Connection is lost");
+                return false;
+            }
+            if (status.getStatus() != 0) {
+                return tripped(status.getStatus());
+            }
+            long left = (end - System.nanoTime()) / 1_000_000;
+            if (left <= 0) {
+                return true;
+            }
+            Thread.sleep(Math.min(left, STATUS_PERIOD));
+        }
+    }
+
+    /**
+     * Method that measures the load at the rate and prints samples. Sampling is stopped by protection trip
+     * @param rate - samples per second
+     * @param duration - time in ms
+     * @return - true if protection has not tripped and connection is not lost
+     * @throws InterruptedException - if the thread is interrupted
+     */
+    private boolean sample(double rate, long duration) throws InterruptedException {
+        tripped = 0;
+        lost = false;
+        SamplingEngine engine = new SamplingEngine(load, rate, SAMPLE_CAPACITY);
+        StringBuilder line = new StringBuilder(64);
+        engine.subscribe((time, voltage, current, power, status) -> {
+            line.setLength(0);
+            timestamps.append(time, line);
+            line.append(';').append(voltage).append(';').append(current).append(';').append(power).append(';').append(status);
+            out.println(line);
+            if (status != 0 && tripped == 0) {
+                tripped = status;
+                engine.stop();
+            }
+        });
+        engine.setEventHandler(message -> {
+            log(message);
+            if (message.startsWith("Connection is lost")) {
+                lost = true;
+                engine.stop();
+            }
+        });
+        engine.setReconnectPolicy(ONE_ATTEMPT);
+        engine.start();
+        long end = System.nanoTime() + duration * 1_000_000;
+        try {
+            long left;
+            while (engine.isRunning() && (left = (end - System.nanoTime()) / 1_000_000) > 0) {
+                Thread.sleep(Math.min(left, STATUS_PERIOD));
+            }
+        } finally {
+            engine.stop();
+            engine.join();
+        }
+        log("Samples - " + engine.getSampleCount() + ", missed - " + engine.getMissedCount());
+        if (tripped != 0) {
+            return tripped(tripped);
+        }
+        if (lost || !load.isDeviceConnected()) {
+            log("Connection is lost");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Method that turns the load off after protection trip
+     * @param code - questionable status value
+     * @return - false, the plan should be stopped
+     */
+    private boolean tripped(int code) {
+        load.setDeviceOff();
+        String error = IT8906A_1200_240.getProtectionErrorText(code);
+        log("Protection - " + (error.equals("0") ? "status " + code : error));
+        return false;
+    }
+
+    private void log(String text) {
+        out.println(timestamps.getDateAndTime() + text);
+    }
+}
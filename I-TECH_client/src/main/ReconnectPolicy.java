@@ -0,0 +1,61 @@
+package main;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Class which describes pauses between reconnection attempts: exponential backoff with random jitter.
+ * Jitter keeps many clients from reconnecting to the same network at the same moment
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class ReconnectPolicy {
+
+    private final long INITIAL_DELAY;
+    private final long MAX_DELAY;
+    private final double JITTER;
+    private final int MAX_ATTEMPTS;
+
+    /**
+     * Class constructor
+     * @param initialDelay - pause before the first attempt in ms. Example - "50"
+     * @param maxDelay - the longest pause in ms. Example - "1000"
+     * @param jitter - part of the pause which is random, from 0 to 1. Example - "0.5"
+     * @param maxAttempts - number of attempts before giving up, 0 means no limit. Example - "0"
+     */
+    public ReconnectPolicy(long initialDelay, long maxDelay, double jitter, int maxAttempts) {
+        if (initialDelay <= 0 || maxDelay < initialDelay || jitter < 0 || jitter > 1 || maxAttempts < 0) {
+            throw new IllegalArgumentException("Wrong reconnect policy parameters");
+        }
+        this.INITIAL_DELAY = initialDelay;
+        this.MAX_DELAY = maxDelay;
+        this.JITTER = jitter;
+        this.MAX_ATTEMPTS = maxAttempts;
+    }
+
+    /**
+     * Method that returns default policy: 50 ms doubling up to 1 s, half of the pause is random, no attempts limit
+     * @return - default policy
+     */
+    public static ReconnectPolicy getDefault() {
+        return new ReconnectPolicy(50, 1000, 0.5, 0);
+    }
+
+    /**
+     * Method that returns pause before the attempt
+     * @param attempt - attempt number starting from 0
+     * @return - pause in ms
+     */
+    public long getDelay(int attempt) {
+        long delay = attempt >= 30 ? MAX_DELAY : Math.min(MAX_DELAY, INITIAL_DELAY << attempt);
+        return delay - (long) (delay * JITTER * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Method that shows if one more attempt is allowed
+     * @param attempt - attempt number starting from 0
+     * @return - true if attempt is allowed, false otherwise
+     */
+    public boolean isAttemptAllowed(int attempt) {
+        return MAX_ATTEMPTS == 0 || attempt < MAX_ATTEMPTS;
+    }
+}
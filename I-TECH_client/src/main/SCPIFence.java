@@ -0,0 +1,84 @@
+package main;
+
+/**
+ * Class which restores query/answer order of one connection after an answer has not come in time.
+ * The fence query is "*OPC?;*IDN?": its answer "1;ITECH Ltd.,IT8906A-1200-240,..." has commas, so it can not be
+ * taken for the late answer of any other query ("1" of "INP?" or "*OPC?", numbers of measurements).
+ * If the answer of the fence does not come in time, it may still come later, so the next fence skips it.
+ * While an answer of the fence is expected, the stream is not in order and queries should not be sent
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SCPIFence {
+
+    /**
+     * fence query and number of lines read while waiting for its answer
+     */
+    public static final String FENCE_QUERY = "*OPC?;*IDN?";
+    private static final int MAX_LINES = 16;
+
+    /**
+     * number of sent fences whose answers have not been read
+     */
+    private int late;
+
+    /**
+     * Class constructor
+     */
+    public SCPIFence() {
+
+    }
+
+    /**
+     * Method that sends the fence and skips all lines before its answer, answers of earlier fences included
+     * @param connection - connection with the stream out of order
+     * @return - true if the stream is in order again, false if the answer has not come in time or connection is lost
+     */
+    public boolean resync(InstrumentConnection connection) {
+        int skip = late;
+        late++;
+        connection.writeToSocket(FENCE_QUERY);
+        for (int i = 0; i < MAX_LINES; i++) {
+            String answer = connection.readFromSocket();
+            if (answer == null) {
+                late = 0;
+                return false;
+            }
+            if (answer.equals("NO DATA")) {
+                return false;
+            }
+            if (isFenceAnswer(answer)) {
+                late--;
+                if (skip-- == 0) {
+                    connection.clearInput();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that shows if the answer of a fence is still expected
+     * @return - true if the stream is out of order, false otherwise
+     */
+    public boolean isPending() {
+        return late > 0;
+    }
+
+    /**
+     * Method that forgets expected answers. It should be called when the connection is established again
+     */
+    public void reset() {
+        late = 0;
+    }
+
+    /**
+     * Method that checks if the line is the answer of the fence: "1;" and identification with commas
+     * @param answer - line without line terminator. Example - "1;ITECH Ltd.,IT8906A-1200-240,600001010687,1.09"
+     * @return - true if it is the answer of the fence, false otherwise
+     */
+    public static boolean isFenceAnswer(String answer) {
+        return answer.startsWith("1;") && answer.indexOf(',') > 0;
+    }
+}
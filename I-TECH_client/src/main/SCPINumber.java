@@ -0,0 +1,303 @@
+package main;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Class for parsing and formatting SCPI numbers without creating objects.
+ * Parsed forms: NR1 ("12"), NR2 ("12.5") and NR3 ("1.25E+1"), leading and trailing spaces are allowed.
+ * Numbers with up to 15 significant digits and small exponents (all answers of the load) are converted exactly
+ * by one multiplication or division, other numbers go to Double.parseDouble
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SCPINumber {
+
+    /**
+     * powers of ten which are exact in double
+     */
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * numbers with mantissa below this value are converted exactly
+     */
+    private static final long EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * decimals used by format(). Resolution of the load is much worse than 1 uA or 1 uV
+     */
+    private static final int FORMAT_DECIMALS = 6;
+    private static final long FORMAT_SCALE = 1_000_000L;
+    private static final double FORMAT_LIMIT = 1e12;
+    private static final long[] POW10_LONG = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L};
+
+    private SCPINumber() {
+
+    }
+
+    /**
+     * Method that parses number from the part of the text
+     * @param text - text with number. Example - "1.234E+2"
+     * @param from - first character
+     * @param to - character after the last one
+     * @return - parsed value, NaN if the text is not a number
+     */
+    public static double parse(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) == ' ') {
+            from++;
+        }
+        while (to > from && text.charAt(to - 1) == ' ') {
+            to--;
+        }
+        int i = from;
+        boolean negative = false;
+        if (i < to && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa >= EXACT_MANTISSA / 10) {
+                    return parseSlow(text, from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < to && (text.charAt(i) == 'E' || text.charAt(i) == 'e')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                negativeExponent = text.charAt(i) == '-';
+                i++;
+            }
+            int value = 0;
+            int exponentDigits = 0;
+            for (; i < to && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                if (value < 10000) {
+                    value = value * 10 + (text.charAt(i) - '0');
+                }
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != to) {
+            return Double.NaN;
+        }
+        double result = toDouble(mantissa, exponent);
+        if (Double.isNaN(result)) {
+            return parseSlow(text, from, to);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Method that parses number from the part of the byte buffer. Buffer position and limit are not changed
+     * @param buffer - buffer with ASCII text. Example - line returned by NIOConnection.readLine()
+     * @param from - absolute index of the first byte
+     * @param to - absolute index of the byte after the last one
+     * @return - parsed value, NaN if the text is not a number
+     */
+    public static double parse(ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '+' || buffer.get(i) == '-')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            byte c = buffer.get(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+                if (mantissa >= EXACT_MANTISSA / 10) {
+                    return parseSlow(buffer, from, to);
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (point) {
+                    exponent--;
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < to && (buffer.get(i) == 'E' || buffer.get(i) == 'e')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buffer.get(i) == '+' || buffer.get(i) == '-')) {
+                negativeExponent = buffer.get(i) == '-';
+                i++;
+            }
+            int value = 0;
+            int exponentDigits = 0;
+            for (; i < to && buffer.get(i) >= '0' && buffer.get(i) <= '9'; i++) {
+                if (value < 10000) {
+                    value = value * 10 + (buffer.get(i) - '0');
+                }
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (i != to) {
+            return Double.NaN;
+        }
+        double result = toDouble(mantissa, exponent);
+        if (Double.isNaN(result)) {
+            return parseSlow(buffer, from, to);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Method that parses integer (NR1) from the part of the byte buffer
+     * @param buffer - buffer with ASCII text
+     * @param from - absolute index of the first byte
+     * @param to - absolute index of the byte after the last one
+     * @param fallback - value returned if the text is not an integer
+     * @return - parsed value or fallback
+     */
+    public static int parseInt(ByteBuffer buffer, int from, int to, int fallback) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '+' || buffer.get(i) == '-')) {
+            negative = buffer.get(i) == '-';
+            i++;
+        }
+        if (i == to || to - i > 9) {
+            return fallback;
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            byte c = buffer.get(i);
+            if (c < '0' || c > '9') {
+                return fallback;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Method that converts decimal mantissa and exponent to double when it can be done exactly
+     * @param mantissa - decimal digits. Example - "1234" for "12.34"
+     * @param exponent - power of ten. Example - "-2" for "12.34"
+     * @return - value, NaN if exact conversion is not possible
+     */
+    static double toDouble(long mantissa, int exponent) {
+        if (mantissa == 0) {
+            return 0.0;
+        }
+        if (mantissa >= EXACT_MANTISSA) {
+            return Double.NaN;
+        }
+        if (exponent >= 0 && exponent < POW10.length) {
+            return mantissa * POW10[exponent];
+        }
+        if (exponent < 0 && -exponent < POW10.length) {
+            return mantissa / POW10[-exponent];
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Method for rare numbers which can not be converted exactly
+     */
+    private static double parseSlow(CharSequence text, int from, int to) {
+        try {
+            return Double.parseDouble(text.subSequence(from, to).toString());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Method for rare numbers which can not be converted exactly
+     */
+    private static double parseSlow(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = from; i < to; i++) {
+            bytes[i - from] = buffer.get(i);
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Method that appends number in NR2 format with up to 6 decimals, trailing zeros are dropped.
+     * Example - 10.5 is appended as "10.5", 240 as "240"
+     * @param value - number to format
+     * @param out - where the number is appended
+     */
+    public static void format(double value, StringBuilder out) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= FORMAT_LIMIT) {
+            out.append(value);
+            return;
+        }
+        long scaled = Math.round(Math.abs(value) * FORMAT_SCALE);
+        if (value < 0 && scaled != 0) {
+            out.append('-');
+        }
+        out.append(scaled / FORMAT_SCALE);
+        long fraction = scaled % FORMAT_SCALE;
+        if (fraction == 0) {
+            return;
+        }
+        int decimals = FORMAT_DECIMALS;
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            decimals--;
+        }
+        out.append('.');
+        for (; decimals > 1 && fraction < POW10_LONG[decimals - 1]; decimals--) {
+            out.append('0');
+        }
+        out.append(fraction);
+    }
+}
@@ -0,0 +1,642 @@
+package main;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for sharing loads between many SCPI clients. The proxy holds the only connection to every load and
+ * accepts any number of clients on a local port of the load. Lines of all clients are sent to the load one by one
+ * in the order they are received, so writes are serialised. A query which is the same as a query waiting
+ * for its answer is not sent again: all clients which asked it get the one answer. A query is joined only if
+ * no write was received after the waiting query, so a client always reads the result of its own writes.
+ * Every client gets its answers in the order of its queries.
+ * Clients are served by one selector thread, every load has its own thread for the blocking connection.
+ * Local ports are opened on the loopback interface unless another address is given, clients are not authenticated
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SCPIProxy {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * queries waiting for answers of one client. The client is not read while it has so many
+     */
+    private static final int MAX_PENDING = 64;
+
+    /**
+     * queries which change the load when they are read, so every one of them is sent
+     */
+    private static final Set<String> NOT_COALESCED = Set.of("SYST:ERR?");
+
+    private static final long POLL_PERIOD = 100;
+
+    /**
+     * line received from clients and sent to the load once. Queries have slots of the clients to be answered
+     */
+    private static final class Request {
+        private final String line;
+        private final boolean query;
+        private final List<Slot> slots = new ArrayList<>(2);
+        private String answer;
+
+        private Request(String line, boolean query) {
+            this.line = line;
+            this.query = query;
+        }
+    }
+
+    /**
+     * place of one answer in the order of answers of the client
+     */
+    private static final class Slot {
+        private final Client client;
+        private String answer;
+        private boolean done;
+
+        private Slot(Client client) {
+            this.client = client;
+        }
+    }
+
+    /**
+     * one load: its connection, queue of requests and queries waiting for answers which can be joined.
+     * Waiting queries are forgotten by every write, queries received after the write are sent again.
+     * The fence restores query/answer order after the answer has not come in time
+     */
+    private static final class Load {
+        private final InstrumentConnection connection;
+        private final SCPIFence fence = new SCPIFence();
+        private final LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+        private final Map<String, Request> waiting = new HashMap<>();
+        private Thread thread;
+
+        private Load(InstrumentConnection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /**
+     * connected client: its load, received bytes which are not a whole line yet, answers in order and bytes
+     * waiting for the socket
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final Load load;
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private final ArrayDeque<Slot> slots = new ArrayDeque<>();
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private boolean closed;
+
+        private Client(SocketChannel channel, Load load) {
+            this.channel = channel;
+            this.load = load;
+        }
+    }
+
+    private final Selector selector;
+    private final List<Load> loads = new ArrayList<>();
+    private final Queue<Request> completed = new ConcurrentLinkedQueue<>();
+    private volatile ReconnectPolicy reconnectPolicy = new ReconnectPolicy(50, 1000, 0.5, 3);
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile int clientCount;
+    private final AtomicLong sentCount = new AtomicLong();
+    private volatile long coalescedCount;
+
+    /**
+     * Class constructor
+     * @throws IOException - if selector can not be opened
+     */
+    public SCPIProxy() throws IOException {
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Method that opens local port on the loopback interface for clients of the load. It should be called before start()
+     * @param port - local port number, 0 - any free port. Example - "5025"
+     * @param connection - connection to the load, it is connected by start(). Example - "new TCPConnection("10.1.42.3", 30000, 1000)"
+     * @return - local port number
+     * @throws IOException - if the port can not be opened
+     */
+    public int addLoad(int port, InstrumentConnection connection) throws IOException {
+        return addLoad(InetAddress.getLoopbackAddress(), port, connection);
+    }
+
+    /**
+     * Method that opens local port for clients of the load. It should be called before start()
+     * @param address - local address to listen on, "0.0.0.0" - all interfaces. Example - "InetAddress.getLoopbackAddress()"
+     * @param port - local port number, 0 - any free port. Example - "5025"
+     * @param connection - connection to the load, it is connected by start(). Example - "new TCPConnection("10.1.42.3", 30000, 1000)"
+     * @return - local port number
+     * @throws IOException - if the port can not be opened
+     */
+    public int addLoad(InetAddress address, int port, InstrumentConnection connection) throws IOException {
+        Load load = new Load(connection);
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(address, port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT, load);
+        loads.add(load);
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Method that sets pauses between reconnection attempts when connection to a load is lost
+     * @param reconnectPolicy - reconnection policy. It should limit the attempts, requests are not answered meanwhile
+     */
+    public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    /**
+     * Method that connects the loads and starts the selector thread and threads of the loads
+     * @throws IOException - if a load can not be connected
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+        for (Load load : loads) {
+            load.connection.connect();
+            load.connection.writeToSocket("SYST:RWL");
+        }
+        running = true;
+        for (Load load : loads) {
+            load.thread = new Thread(() -> runLoad(load), "scpi-proxy-load");
+            load.thread.setDaemon(true);
+            load.thread.start();
+        }
+        thread = new Thread(this::run, "scpi-proxy");
+        thread.start();
+    }
+
+    /**
+     * Method that stops all threads, closes clients and disconnects the loads
+     */
+    public void stop() {
+        List<Thread> threads = new ArrayList<>();
+        synchronized (this) {
+            running = false;
+            if (thread != null) {
+                threads.add(thread);
+            }
+            for (Load load : loads) {
+                if (load.thread != null) {
+                    threads.add(load.thread);
+                }
+            }
+        }
+        selector.wakeup();
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (Load load : loads) {
+            load.connection.disconnect();
+        }
+    }
+
+    /**
+     * Method that returns number of connected clients
+     * @return - number of clients
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Method that returns number of lines sent to the loads
+     * @return - number of lines
+     */
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    /**
+     * Method that returns number of queries answered by the answer of the same query of another client
+     * @return - number of queries which were not sent
+     */
+    public long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Method of the load thread: sends requests one by one and hands answers to the selector thread
+     * @param load - the load
+     */
+    private void runLoad(Load load) {
+        InstrumentConnection connection = load.connection;
+        while (running) {
+            Request request;
+            try {
+                request = load.queue.poll(POLL_PERIOD, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (request == null) {
+                continue;
+            }
+            if (!connection.isConnected() && !reconnect(load)) {
+                complete(request, null);
+                continue;
+            }
+            if (request.query && load.fence.isPending() && !load.fence.resync(connection)) {
+                // late answers are still expected, the query would take one of them
+                complete(request, null);
+                continue;
+            }
+            connection.writeToSocket(request.line);
+            sentCount.incrementAndGet();
+            if (!request.query) {
+                continue;
+            }
+            String answer = connection.readFromSocket();
+            if (answer != null && answer.equals("NO DATA")) {
+                // the answer may come late and be taken for the answer to the next query
+                load.fence.resync(connection);
+                answer = null;
+            }
+            complete(request, answer);
+        }
+    }
+
+    /**
+     * Method that connects the load again by the reconnection policy
+     * @param load - the load
+     * @return - true if connection is restored, false otherwise
+     */
+    private boolean reconnect(Load load) {
+        InstrumentConnection connection = load.connection;
+        ReconnectPolicy policy = reconnectPolicy;
+        for (int attempt = 0; running && policy.isAttemptAllowed(attempt); attempt++) {
+            connection.disconnect();
+            try {
+                Thread.sleep(policy.getDelay(attempt));
+                connection.connect();
+                load.fence.reset();
+                connection.writeToSocket("SYST:RWL");
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (IOException e) {
+                System.out.println("EXCEPTION - Failed to reconnect to the load - " + e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that hands the answer to the selector thread
+     * @param request - request
+     * @param answer - answer without line terminator, null if there is no answer
+     */
+    private void complete(Request request, String answer) {
+        if (!request.query) {
+            return;
+        }
+        request.answer = answer;
+        completed.add(request);
+        selector.wakeup();
+    }
+
+    /**
+     * Method of the selector thread
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                deliverAnswers();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(key);
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    // the key may have been selected before the client got MAX_PENDING queries
+                    if (key.isReadable() && client.slots.size() < MAX_PENDING) {
+                        read(key, client);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key, client);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    System.out.println("EXCEPTION: " + e.getMessage());
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("EXCEPTION: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Client(channel, (Load) key.attachment()));
+        clientCount++;
+    }
+
+    /**
+     * Method that reads available bytes and handles every whole line
+     */
+    private void read(SelectionKey key, Client client) {
+        int read;
+        try {
+            read = client.channel.read(client.in);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            close(key, client);
+            return;
+        }
+        handleLines(key, client);
+    }
+
+    /**
+     * Method that handles received lines while the client has room for answers. The rest stays in the buffer
+     * and the client is not read until its answers are sent
+     */
+    private void handleLines(SelectionKey key, Client client) {
+        ByteBuffer in = client.in;
+        in.flip();
+        int start = 0;
+        for (int i = 0; i < in.limit() && client.slots.size() < MAX_PENDING; i++) {
+            if (in.get(i) == '\n') {
+                int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                String line = new String(in.array(), start, end - start, StandardCharsets.US_ASCII);
+                start = i + 1;
+                handleLine(client, line);
+            }
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining() && !hasLine(in)) {
+            // the line is longer than the buffer, it can not be a command of the load
+            in.clear();
+        }
+        setInterest(key, client);
+    }
+
+    /**
+     * Method that checks if received bytes have a whole line which is not handled yet
+     */
+    private static boolean hasLine(ByteBuffer in) {
+        for (int i = 0; i < in.position(); i++) {
+            if (in.get(i) == '\n') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Method that queues the line to the load or joins the same waiting query. A line with any command
+     * which is not a query is a write, even if it has queries: "CURR 5;MEAS:CURR?". It is never joined
+     */
+    private void handleLine(Client client, String line) {
+        Load load = client.load;
+        if (line.isBlank()) {
+            return;
+        }
+        boolean query = line.indexOf('?') >= 0;
+        boolean write = !query || hasWrite(line);
+        if (write) {
+            load.waiting.clear();
+        }
+        if (!query) {
+            load.queue.add(new Request(line, false));
+            return;
+        }
+        Slot slot = new Slot(client);
+        client.slots.add(slot);
+        Request request = write ? null : load.waiting.get(line);
+        if (request != null) {
+            request.slots.add(slot);
+            coalescedCount++;
+            return;
+        }
+        request = new Request(line, true);
+        request.slots.add(slot);
+        if (!write && !NOT_COALESCED.contains(line)) {
+            load.waiting.put(line, request);
+        }
+        load.queue.add(request);
+    }
+
+    /**
+     * Method that checks if the compound line has a command which is not a query
+     * @param line - line with commands separated by ";". Example - "CURR 5;:MEAS:CURR?"
+     * @return - true if any command has no "?", false otherwise
+     */
+    private static boolean hasWrite(String line) {
+        int from = 0;
+        while (from <= line.length()) {
+            int end = line.indexOf(';', from);
+            if (end < 0) {
+                end = line.length();
+            }
+            if (line.indexOf('?', from) < 0 || line.indexOf('?', from) > end) {
+                if (!line.substring(from, end).replace(':', ' ').isBlank()) {
+                    return true;
+                }
+            }
+            from = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Method that puts answers received by the load threads to the clients in the order of their queries
+     */
+    private void deliverAnswers() {
+        Request request;
+        while ((request = completed.poll()) != null) {
+            Load load = request.slots.get(0).client.load;
+            if (load.waiting.get(request.line) == request) {
+                load.waiting.remove(request.line);
+            }
+            for (Slot slot : request.slots) {
+                slot.answer = request.answer;
+                slot.done = true;
+                flushAnswers(slot.client);
+            }
+        }
+    }
+
+    /**
+     * Method that sends answers from the head of the client order which are already received
+     */
+    private void flushAnswers(Client client) {
+        if (client.closed) {
+            return;
+        }
+        SelectionKey key = client.channel.keyFor(selector);
+        boolean freed = false;
+        Slot slot;
+        while ((slot = client.slots.peek()) != null && slot.done) {
+            client.slots.poll();
+            freed = true;
+            if (slot.answer != null) {
+                queueOutput(client, (slot.answer + "\n").getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        write(key, client);
+        if (freed && !client.closed && client.in.position() > 0) {
+            handleLines(key, client);
+        }
+    }
+
+    private void queueOutput(Client client, byte[] data) {
+        if (client.out.remaining() < data.length) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(client.out.capacity() * 2, client.out.position() + data.length));
+            client.out.flip();
+            bigger.put(client.out);
+            client.out = bigger;
+        }
+        client.out.put(data);
+    }
+
+    /**
+     * Method that writes queued bytes and waits for OP_WRITE if the socket does not take all of them
+     */
+    private void write(SelectionKey key, Client client) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        ByteBuffer out = client.out;
+        if (out.position() > 0) {
+            out.flip();
+            try {
+                client.channel.write(out);
+            } catch (IOException e) {
+                out.clear();
+                close(key, client);
+                return;
+            }
+            out.compact();
+        }
+        setInterest(key, client);
+    }
+
+    /**
+     * Method that reads the client only while it has room for answers and writes it while it has queued bytes
+     */
+    private void setInterest(SelectionKey key, Client client) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = client.slots.size() < MAX_PENDING ? SelectionKey.OP_READ : 0;
+        if (client.out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private void close(SelectionKey key, Client client) {
+        client.closed = true;
+        key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+        }
+        clientCount--;
+    }
+
+    /**
+     * Method that starts the proxy
+     * @param args - optional "--bind ADDRESS" of local ports (loopback by default, "0.0.0.0" - all interfaces),
+     *             groups of local port, host and port of the load, optional timeout in ms is the last argument.
+     *             Example - "--bind 10.1.40.2 5025 10.1.42.3 30000 5026 10.1.42.4 30000 1000"
+     */
+    public static void main(String[] args) {
+        Validation validation = new Validation();
+        InetAddress address = InetAddress.getLoopbackAddress();
+        int first = 0;
+        if (args.length > 1 && args[0].equals("--bind")) {
+            ValidationResult result = validation.validateIP4(args[1]);
+            if (!result.isValid()) {
+                System.out.println(result.getReason());
+                System.exit(2);
+            }
+            try {
+                address = InetAddress.getByName(args[1]);
+            } catch (UnknownHostException e) {
+                System.out.println("EXCEPTION - " + e.getMessage());
+                System.exit(2);
+            }
+            first = 2;
+        }
+        int count = args.length - first;
+        int timeout = count % 3 == 1 ? validation.validateTimeout(args[args.length - 1]).getIntValue() : 1000;
+        if (count < 3 || timeout < 0) {
+            System.out.println("Usage - java main.SCPIProxy [--bind ADDRESS] LOCAL_PORT HOST PORT [LOCAL_PORT HOST PORT ...] [TIMEOUT]");
+            System.exit(2);
+        }
+        try {
+            SCPIProxy proxy = new SCPIProxy();
+            for (int i = first; i + 2 < args.length; i += 3) {
+                int local = validation.validatePort(args[i]).getIntValue();
+                int port = validation.validatePort(args[i + 2]).getIntValue();
+                if (local < 0 || port < 0 || !validation.isIP4validate(args[i + 1])) {
+                    System.out.println("Wrong load - " + args[i] + " " + args[i + 1] + " " + args[i + 2]);
+                    System.exit(2);
+                }
+                local = proxy.addLoad(address, local, new TCPConnection(args[i + 1], port, timeout));
+                System.out.println("Load " + args[i + 1] + ":" + port + " is served on " + address.getHostAddress() + ":" + local);
+            }
+            proxy.start();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
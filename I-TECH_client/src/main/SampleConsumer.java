@@ -0,0 +1,20 @@
+package main;
+
+/**
+ * Interface for receiving measurement samples as primitive values, so no object is created per sample
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface SampleConsumer {
+
+    /**
+     * Method that receives one sample
+     * @param time - time of the measurement in ms since epoch
+     * @param voltage - measured voltage in V
+     * @param current - measured current in A
+     * @param power - measured power in W
+     * @param status - questionable status register value. 0 if there is no error
+     */
+    void accept(long time, double voltage, double current, double power, int status);
+}
@@ -0,0 +1,202 @@
+package main;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Class which keeps the last measurement samples in preallocated parallel primitive arrays.
+ * There is exactly one writer (the sampler) and any number of readers. Nobody takes a lock:
+ * the writer publishes the sequence number of the next sample after the sample is written,
+ * every reader has its own Reader with its own position and checks after reading a slot
+ * that the writer has not started to overwrite it. A reader which is slower than the writer loses the oldest samples
+ * and counts them, the writer never waits for readers
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SampleRingBuffer {
+
+    private static final VarHandle PUBLISHED;
+
+    static {
+        try {
+            PUBLISHED = MethodHandles.lookup().findVarHandle(SampleRingBuffer.class, "published", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final int CAPACITY;
+    private final int MASK;
+
+    private final long[] times;
+    private final double[] voltages;
+    private final double[] currents;
+    private final double[] powers;
+    private final int[] statuses;
+
+    /**
+     * number of samples written. Sample number n is in slot n & MASK
+     */
+    @SuppressWarnings("unused")
+    private volatile long published;
+
+    /**
+     * Class constructor
+     * @param capacity - number of samples kept, rounded up to a power of two. Example - "65536".
+     *                 The slot the writer is filling is not readable, so readers can lag by capacity - 1 samples
+     */
+    public SampleRingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity should be from 1 to 2^30");
+        }
+        this.CAPACITY = capacity < 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.MASK = CAPACITY - 1;
+        times = new long[CAPACITY];
+        voltages = new double[CAPACITY];
+        currents = new double[CAPACITY];
+        powers = new double[CAPACITY];
+        statuses = new int[CAPACITY];
+    }
+
+    /**
+     * Method that adds sample. It should be called by one thread only
+     * @param time - time of the measurement in ms since epoch
+     * @param voltage - measured voltage in V
+     * @param current - measured current in A
+     * @param power - measured power in W
+     * @param status - questionable status register value
+     */
+    public void add(long time, double voltage, double current, double power, int status) {
+        long sequence = (long) PUBLISHED.getOpaque(this);
+        int slot = (int) (sequence & MASK);
+        // the previous publication must be visible before the slot starts to change
+        VarHandle.storeStoreFence();
+        times[slot] = time;
+        voltages[slot] = voltage;
+        currents[slot] = current;
+        powers[slot] = power;
+        statuses[slot] = status;
+        PUBLISHED.setRelease(this, sequence + 1);
+    }
+
+    /**
+     * Method that adds sample. It should be called by one thread only
+     * @param sample - measurement sample
+     */
+    public void add(MeasurementSample sample) {
+        add(sample.getTime(), sample.getVoltage(), sample.getCurrent(), sample.getPower(), sample.getStatus());
+    }
+
+    /**
+     * Method that returns number of samples written since the buffer was created
+     * @return - number of samples
+     */
+    public long getPublished() {
+        return (long) PUBLISHED.getAcquire(this);
+    }
+
+    /**
+     * Method that returns number of samples the buffer keeps
+     * @return - capacity
+     */
+    public int getCapacity() {
+        return CAPACITY;
+    }
+
+    /**
+     * Method that copies the newest sample
+     * @param sample - sample to be filled
+     * @return - true if there is a sample, false if nothing is written yet
+     */
+    public boolean getLatest(MeasurementSample sample) {
+        while (true) {
+            long available = getPublished();
+            if (available == 0) {
+                return false;
+            }
+            int slot = (int) ((available - 1) & MASK);
+            long time = times[slot];
+            double voltage = voltages[slot];
+            double current = currents[slot];
+            double power = powers[slot];
+            int status = statuses[slot];
+            VarHandle.loadLoadFence();
+            if (getPublished() - available < CAPACITY - 1) {
+                sample.set(time, voltage, current, power, status);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Method that creates reader which starts from the next written sample
+     * @return - new reader
+     */
+    public Reader newReader() {
+        return new Reader(getPublished());
+    }
+
+    /**
+     * Class for reading samples in order. Every consumer should have its own reader,
+     * one reader should be used by one thread
+     */
+    public class Reader {
+
+        private long next;
+        private long lost;
+
+        private Reader(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Method that passes samples written since the last call to the consumer
+         * @param consumer - receiver of samples
+         * @param max - maximum number of samples passed by this call
+         * @return - number of samples passed
+         */
+        public int poll(SampleConsumer consumer, int max) {
+            int count = 0;
+            long available = getPublished();
+            while (next < available && count < max) {
+                if (available - next >= CAPACITY) {
+                    // the slot of "next" is overwritten or may be written right now
+                    lost += available - CAPACITY + 1 - next;
+                    next = available - CAPACITY + 1;
+                }
+                int slot = (int) (next & MASK);
+                long time = times[slot];
+                double voltage = voltages[slot];
+                double current = currents[slot];
+                double power = powers[slot];
+                int status = statuses[slot];
+                VarHandle.loadLoadFence();
+                available = getPublished();
+                if (available - next >= CAPACITY) {
+                    // the writer has reached this slot while it was read, the sample is dropped at the loop start
+                    continue;
+                }
+                next++;
+                count++;
+                consumer.accept(time, voltage, current, power, status);
+            }
+            return count;
+        }
+
+        /**
+         * Method that returns number of samples not yet read by this reader
+         * @return - number of samples, at most capacity
+         */
+        public long getBacklog() {
+            return Math.min(getPublished() - next, CAPACITY);
+        }
+
+        /**
+         * Method that returns number of samples overwritten before this reader could read them
+         * @return - number of lost samples
+         */
+        public long getLost() {
+            return lost;
+        }
+    }
+}
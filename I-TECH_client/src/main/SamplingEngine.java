@@ -0,0 +1,291 @@
+package main;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Class which measures the load at the fixed rate on its own thread and publishes samples
+ * to the ring buffer and to subscribers. Deadlines are counted from the start time by System.nanoTime,
+ * so the time spent on the measurement does not shift the next one. If the measurement takes longer than
+ * the period, skipped deadlines are counted as missed and sampling continues from the next deadline
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SamplingEngine {
+
+    /**
+     * time in ns over which the achieved rate is calculated
+     */
+    private static final long RATE_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final IT8906A_1200_240 load;
+    private final SampleRingBuffer buffer;
+    private final List<SampleConsumer> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile double rate;
+    private volatile Set<MeasurementSample.Channel> channels = EnumSet.allOf(MeasurementSample.Channel.class);
+    private volatile ReconnectPolicy reconnectPolicy = ReconnectPolicy.getDefault();
+    private volatile Consumer<String> eventHandler = message -> { };
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long sampleCount;
+    private volatile long missedCount;
+    private volatile long failedCount;
+    private volatile double achievedRate;
+
+    /**
+     * Class constructor
+     * @param load - connected load. It should not be used by other threads while the engine is running
+     * @param rate - target number of samples per second. Example - "10"
+     * @param capacity - number of the last samples kept in the ring buffer. Example - "4096"
+     */
+    public SamplingEngine(IT8906A_1200_240 load, double rate, int capacity) {
+        this.load = load;
+        this.buffer = new SampleRingBuffer(capacity);
+        setRate(rate);
+    }
+
+    /**
+     * Method that starts sampling on a new thread. After stop() the previous thread should be joined first,
+     * so two threads never use the load at the same time
+     * @throws IllegalStateException - if the thread started before is stopped but has not finished yet
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (thread != null && thread.isAlive()) {
+            throw new IllegalStateException("Sampling thread is still finishing, call join() before start()");
+        }
+        running = true;
+        achievedRate = 0;
+        thread = new Thread(this::run, "sampling-engine");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Method that asks the engine to stop. The measurement in progress is finished, use join() to wait for it.
+     * It can be called by a subscriber
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Method that waits until the sampling thread is finished. It returns at once if called by the sampling thread
+     * @throws InterruptedException - if waiting thread is interrupted
+     */
+    public void join() throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            t.join();
+        }
+    }
+
+    /**
+     * Method of the sampling thread
+     */
+    private void run() {
+        MeasurementSample sample = new MeasurementSample();
+        long period = getPeriod();
+        long deadline = System.nanoTime();
+        long windowStart = deadline;
+        long windowSamples = 0;
+        while (running) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                if (Thread.interrupted() && !running) {
+                    break;
+                }
+                continue;
+            }
+            if (period != getPeriod()) {
+                period = getPeriod();
+                deadline = now;
+            }
+            long late = (now - deadline) / period;
+            if (late > 0) {
+                missedCount += late;
+                deadline += late * period;
+            }
+            deadline += period;
+            if (!load.isDeviceConnected() && !reconnect()) {
+                break;
+            }
+            if (load.getMeasurement(sample, channels)) {
+                buffer.add(sample);
+                sampleCount++;
+                windowSamples++;
+                for (SampleConsumer subscriber : subscribers) {
+                    subscriber.accept(sample.getTime(), sample.getVoltage(), sample.getCurrent(),
+                            sample.getPower(), sample.getStatus());
+                }
+            } else {
+                failedCount++;
+            }
+            now = System.nanoTime();
+            if (now - windowStart >= RATE_WINDOW) {
+                achievedRate = windowSamples * 1e9 / (now - windowStart);
+                windowStart = now;
+                windowSamples = 0;
+            }
+        }
+        running = false;
+    }
+
+    /**
+     * Method that restores lost connection by the reconnection policy
+     * @return - true if connection is restored, false if the engine should stop
+     */
+    private boolean reconnect() {
+        eventHandler.accept("Connection is lost. Reconnecting");
+        if (load.reconnect(reconnectPolicy)) {
+            eventHandler.accept("Connection is restored");
+            return true;
+        }
+        running = false;
+        eventHandler.accept("Reconnection failed. Try to connect");
+        return false;
+    }
+
+    /**
+     * Method that returns time between deadlines
+     * @return - period in ns
+     */
+    private long getPeriod() {
+        return Math.max(1, (long) (1e9 / rate));
+    }
+
+    /**
+     * Method that adds receiver of every sample. Subscribers are called by the sampling thread,
+     * so they should return quickly
+     * @param subscriber - receiver of samples
+     */
+    public void subscribe(SampleConsumer subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /**
+     * Method that removes receiver of samples
+     * @param subscriber - receiver added by subscribe()
+     */
+    public void unsubscribe(SampleConsumer subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Method that sets target sampling rate. It can be changed while the engine is running
+     * @param rate - samples per second. Example - "10"
+     */
+    public final void setRate(double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("Rate should be a positive number");
+        }
+        this.rate = rate;
+    }
+
+    /**
+     * Method that returns target sampling rate
+     * @return - samples per second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Method that sets measured channels. It can be changed while the engine is running
+     * @param channels - measured channels. Example - "EnumSet.of(Channel.VOLTAGE, Channel.STATUS)"
+     */
+    public void setChannels(Set<MeasurementSample.Channel> channels) {
+        if (channels.isEmpty()) {
+            throw new IllegalArgumentException("At least one channel should be measured");
+        }
+        this.channels = EnumSet.copyOf(channels);
+    }
+
+    /**
+     * Method that returns measured channels
+     * @return - copy of the channels set
+     */
+    public Set<MeasurementSample.Channel> getChannels() {
+        return EnumSet.copyOf(channels);
+    }
+
+    /**
+     * Method that sets pauses between reconnection attempts when the connection is lost
+     * @param reconnectPolicy - reconnection policy
+     */
+    public void setReconnectPolicy(ReconnectPolicy reconnectPolicy) {
+        this.reconnectPolicy = reconnectPolicy;
+    }
+
+    /**
+     * Method that sets receiver of connection events. It is called by the sampling thread
+     * @param eventHandler - receiver of event texts. Example - "Connection is restored"
+     */
+    public void setEventHandler(Consumer<String> eventHandler) {
+        this.eventHandler = eventHandler;
+    }
+
+    /**
+     * Method that returns the ring buffer with the last samples
+     * @return - ring buffer
+     */
+    public SampleRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Method that shows if the sampling thread is running
+     * @return - true if running, false otherwise
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Method that returns number of published samples
+     * @return - number of samples
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Method that returns number of deadlines skipped because the previous measurement took too long
+     * @return - number of missed deadlines
+     */
+    public long getMissedCount() {
+        return missedCount;
+    }
+
+    /**
+     * Method that returns number of measurements without valid answer
+     * @return - number of failed measurements
+     */
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Method that returns number of samples per second over the last second
+     * @return - achieved rate, 0 before the first second is over
+     */
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+}
@@ -0,0 +1,100 @@
+package main;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Class which owns many load sessions and controls them together
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class SessionManager {
+
+    private final List<InstrumentSession> sessions = new CopyOnWriteArrayList<>();
+
+    /**
+     * Class constructor
+     */
+    public SessionManager() {
+
+    }
+
+    /**
+     * Method that adds new session. The session is not started
+     * @param name - unique session name. Example - "rack1-load3"
+     * @param host - host name. Example - "10.1.42.3"
+     * @param port - port number. Example - "30000"
+     * @param timeout - timeout parameter in ms. Example - "1000"
+     * @param period - pause between two measurements in ms. Example - "100"
+     * @return - created session
+     */
+    public InstrumentSession add(String name, String host, int port, int timeout, long period) {
+        for (InstrumentSession session : sessions) {
+            if (session.getName().equals(name)) {
+                throw new IllegalArgumentException("Session " + name + " already exists");
+            }
+        }
+        InstrumentSession session = new InstrumentSession(name, host, port, timeout, period);
+        sessions.add(session);
+        return session;
+    }
+
+    /**
+     * Method that starts all sessions. Every session connects on its own virtual thread, so connecting is done in parallel
+     */
+    public void startAll() {
+        for (InstrumentSession session : sessions) {
+            session.start();
+        }
+    }
+
+    /**
+     * Method that stops all sessions and waits until they are disconnected
+     * @throws InterruptedException - if waiting thread is interrupted
+     */
+    public void stopAll() throws InterruptedException {
+        for (InstrumentSession session : sessions) {
+            session.stop();
+        }
+        for (InstrumentSession session : sessions) {
+            session.join();
+        }
+    }
+
+    /**
+     * Method that returns the last measurement of every session
+     * @return - map of session name to the last sample. Sample is null if the session has not measured anything yet
+     */
+    public Map<String, MeasurementSample> pollAll() {
+        Map<String, MeasurementSample> result = new LinkedHashMap<>();
+        for (InstrumentSession session : sessions) {
+            result.put(session.getName(), session.getLatest());
+        }
+        return result;
+    }
+
+    /**
+     * Method that returns all sessions
+     * @return - copy of sessions list
+     */
+    public List<InstrumentSession> getSessions() {
+        return new ArrayList<>(sessions);
+    }
+
+    /**
+     * Method that returns number of sessions connected to their loads
+     * @return - number of connected sessions
+     */
+    public int getConnectedCount() {
+        int count = 0;
+        for (InstrumentSession session : sessions) {
+            if (session.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
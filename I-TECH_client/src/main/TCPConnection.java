@@ -4,6 +4,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 
@@ -12,11 +13,12 @@ import java.net.SocketTimeoutException;
  * @author vazhionsky_ot
  * @version 1.0
  */
-public class TCPConnection {
+public class TCPConnection implements InstrumentConnection {
 
     private Socket socket;
     private PrintWriter out;
     private BufferedReader in;
+    private volatile boolean lost;
 
     private final int PORT;
     private final String HOST;
@@ -38,18 +40,23 @@ public class TCPConnection {
      * Method that trys to connect to server
      * @throws IOException - exception appears if something go wrong with connection
      */
+    @Override
     public void connect() throws IOException {
-            socket = new Socket(HOST, PORT);
+            socket = new Socket();
+            socket.connect(new InetSocketAddress(HOST, PORT), TIMEOUT);
             socket.setSoTimeout(TIMEOUT);
+            socket.setTcpNoDelay(true);
             out = new PrintWriter(socket.getOutputStream(), true);
             in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            lost = false;
     }
 
     /**
      * Method that diconnects client from server
      */
+    @Override
     public void disconnect() {
-        if (socket.isConnected()) {
+        if (socket != null && socket.isConnected() && out != null) {
             try {
                 out.close();
                 in.close();
@@ -64,9 +71,13 @@ public class TCPConnection {
      * Method that write message to server
      * @param message - texst that will be send to server. Exaple - "HELP!"
      */
+    @Override
     public void writeToSocket(String message) {
-        if (socket.isConnected()) {
+        if (isConnected()) {
             out.println(message);
+            if (out.checkError()) {
+                lost = true;
+            }
         }
     }
 
@@ -74,24 +85,44 @@ public class TCPConnection {
      * Method that reads message from server
      * @return message from server. Example - "Help yourself."
      */
+    @Override
     public String readFromSocket() {
         String answer = "NO DATA";
         try {
             answer = in.readLine();
+            if (answer == null) {
+                lost = true;
+            }
         } catch (SocketTimeoutException e) {
             System.out.println("EXCEPTION - SocketTimeoutException found while trying to read from socket.");
         } catch (IOException e) {
+            lost = true;
             System.out.println("EXCEPTION - IOException found while trying to read from socket.");
         }
         return answer;
     }
 
+    /**
+     * Method that drops everything that has been received but not read yet
+     */
+    @Override
+    public void clearInput() {
+        try {
+            while (isConnected() && in.ready()) {
+                in.read();
+            }
+        } catch (IOException e) {
+            System.out.println("EXCEPTION - IOException found while trying to clear input.");
+        }
+    }
+
     /**
      * Method that shows if the connection is still established
-     * @return "true" if connection is established, "false" otherwise
+     * @return "true" if connection is established and was not lost, "false" otherwise
      */
+    @Override
     public boolean isConnected() {
-        return socket.isConnected();
+        return socket != null && socket.isConnected() && !socket.isClosed() && !lost;
     }
 
 }
@@ -0,0 +1,124 @@
+package main;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Class which gives time stamps for log lines and measurement samples. It is thread safe.
+ * The text of the current second is formatted once and kept, so a time stamp within the same second
+ * costs only appending of milliseconds. Monotonic time is counted by System.nanoTime from the moment
+ * the service is created, so sample times never go back when the system clock is corrected
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class TimestampService {
+
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy-HH:mm:ss");
+    private static final TimestampService DEFAULT = new TimestampService(ZoneId.systemDefault());
+
+    /**
+     * formatted second, replaced as a whole when the second changes
+     */
+    private static final class Second {
+        private final long second;
+        private final String text;
+
+        private Second(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private final DateTimeFormatter FORMAT;
+    private final long ORIGIN_NANOS;
+    private final long ORIGIN_MILLIS;
+    private volatile Second cached = new Second(Long.MIN_VALUE, "");
+
+    /**
+     * Class constructor
+     * @param zone - time zone of formatted time stamps. Example - "ZoneId.systemDefault()"
+     */
+    public TimestampService(ZoneId zone) {
+        this.FORMAT = SECOND_FORMAT.withZone(zone);
+        this.ORIGIN_NANOS = System.nanoTime();
+        this.ORIGIN_MILLIS = System.currentTimeMillis();
+    }
+
+    /**
+     * Method that returns service shared by the application, so samples of all loads have the same time origin
+     * @return - service in the system time zone
+     */
+    public static TimestampService getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Method that returns wall clock time
+     * @return - time in ms since epoch
+     */
+    public long getWallTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Method that returns monotonic time since the service is created
+     * @return - time in ns, it never decreases
+     */
+    public long getMonotonicTime() {
+        return System.nanoTime() - ORIGIN_NANOS;
+    }
+
+    /**
+     * Method that returns time of the sample: wall clock time of the service creation plus monotonic time.
+     * It never goes back and it is not shifted by corrections of the system clock during the run
+     * @return - time in ms since epoch
+     */
+    public long getSampleTime() {
+        return ORIGIN_MILLIS + getMonotonicTime() / 1_000_000;
+    }
+
+    /**
+     * Method that returns current date and time in format "dd.MM.yyyy-HH:mm:ss.SSS : "
+     * @return date and time
+     */
+    public String getDateAndTime() {
+        StringBuilder out = new StringBuilder(26);
+        append(getWallTime(), out);
+        return out.append(" : ").toString();
+    }
+
+    /**
+     * Method that appends date and time in format "dd.MM.yyyy-HH:mm:ss.SSS"
+     * @param time - time in ms since epoch
+     * @param out - where the time is appended
+     */
+    public void append(long time, StringBuilder out) {
+        long second = Math.floorDiv(time, 1000);
+        int millis = Math.floorMod(time, 1000);
+        Second current = cached;
+        if (current.second != second) {
+            current = new Second(second, FORMAT.format(Instant.ofEpochSecond(second)));
+            cached = current;
+        }
+        out.append(current.text).append('.');
+        if (millis < 100) {
+            out.append('0');
+        }
+        if (millis < 10) {
+            out.append('0');
+        }
+        out.append(millis);
+    }
+
+    /**
+     * Method that formats date and time in format "dd.MM.yyyy-HH:mm:ss.SSS"
+     * @param time - time in ms since epoch
+     * @return - formatted time
+     */
+    public String format(long time) {
+        StringBuilder out = new StringBuilder(23);
+        append(time, out);
+        return out.toString();
+    }
+}
@@ -1,62 +1,274 @@
 package main;
 
-import java.util.regex.Pattern;
-
 /**
- * Class for validating ip-address, port, timeout, voltage, current, resistance and power values
+ * Class for validating ip-address, port, timeout, voltage, current, resistance and power values.
+ * Every text is checked and parsed by one pass without regular expressions. Setpoint limits are taken
+ * from the load model.
+ * Values are checked by their range, not by the number of digits as the former regular expressions did:
+ * timeout "0999" is rejected because it is less than 1000 ms, setpoint "01200" is accepted as 1200
  * @author vazhinsky_ot
  * @version 1.0
  */
 public class Validation {
 
     /**
-     * variable for pattern ip-address
+     * limits of connection parameters
      */
-    private final String regExpIp4 = "(\\d{1,2}|([01])\\d{2}|2[0-4]\\d|25[0-5])";
-    private final String ip4String = regExpIp4 + "\\." + regExpIp4 + "\\." + regExpIp4 + "\\." + regExpIp4;
-    private final Pattern ip4pattern = Pattern.compile(ip4String);
+    private static final int MAX_PORT = 65535;
+    private static final int MIN_TIMEOUT = 1000;
+    private static final int MAX_TIMEOUT = 9999;
 
     /**
-     * variable for pattern port
+     * the longest accepted number text. Longer texts are not typed by hand and are not sent to the load
      */
-    private final String portString = "\\d{1,5}";
-    private final Pattern portPattern = Pattern.compile(portString);
+    private static final int MAX_NUMBER_LENGTH = 32;
+
+    private final LoadModel model;
 
     /**
-     * variable for pattern timeout
+     * results of invalid texts, created once because they do not depend on the text
      */
-    private final String timeoutString = "\\d{4}";
-    private final Pattern timeoutPattern = Pattern.compile(timeoutString);
+    private final ValidationResult invalidIp4 = ValidationResult.invalid("IP4 should be four numbers from 0 to 255 separated by dots");
+    private final ValidationResult invalidPort = ValidationResult.invalid("Port should be a number from 0 to " + MAX_PORT);
+    private final ValidationResult invalidTimeout = ValidationResult.invalid("Timeout should be a number from " + MIN_TIMEOUT + " to " + MAX_TIMEOUT + " ms");
+    private final ValidationResult invalidVoltage;
+    private final ValidationResult invalidCurrent;
+    private final ValidationResult invalidResistance;
+    private final ValidationResult invalidPower;
 
     /**
-     * variable for pattern voltage
+     * Class constructor. Limits of IT8906A-1200-240 are used
      */
-    private final String voltageString = "[0-9]{1,4}(\\.[0-9]*)?";
-    private final Pattern voltagePattern = Pattern.compile(voltageString);
+    public Validation() {
+        this(LoadModel.IT8906A_1200_240);
+    }
 
     /**
-     * variable for pattern current
+     * Class constructor
+     * @param model - load model which limits are used. Example - "LoadModel.IT8906A_1200_240"
      */
-    private final String currentString = "[0-9]{1,3}(\\.[0-9]*)?";
-    private final Pattern currentPattern = Pattern.compile(currentString);
+    public Validation(LoadModel model) {
+        this.model = model;
+        invalidVoltage = rangeError("Voltage", model.getMinVoltage(), model.getMaxVoltage(), "V");
+        invalidCurrent = rangeError("Current", model.getMinCurrent(), model.getMaxCurrent(), "A");
+        invalidResistance = rangeError("Resistance", model.getMinResistance(), model.getMaxResistance(), "Ohm");
+        invalidPower = rangeError("Power", model.getMinPower(), model.getMaxPower(), "W");
+    }
+
+    private static ValidationResult rangeError(String name, double min, double max, String unit) {
+        StringBuilder reason = new StringBuilder(name).append(" should be a number from ");
+        SCPINumber.format(min, reason);
+        reason.append(" to ");
+        SCPINumber.format(max, reason);
+        return ValidationResult.invalid(reason.append(' ').append(unit).toString());
+    }
 
     /**
-     * variable for pattern resistance
+     * Method that returns load model which limits are used
+     * @return - load model
      */
-    private final String resistanceString = "[0-9]{1,4}(\\.[0-9]*)?";
-    private final Pattern resistancePattern = Pattern.compile(resistanceString);
+    public LoadModel getModel() {
+        return model;
+    }
 
     /**
-     * variable for pattern power
+     * Method that validates ip-address value
+     * @param ipAddress - ip-address format. Example - "127.0.0.1"
+     * @return valid result if ip-address validates, reason otherwise. Value is not used
      */
-    private final String powerString = "[0-9]{1,5}(\\.[0-9]*)?";
-    private final Pattern powerPattern = Pattern.compile(powerString);
+    public ValidationResult validateIP4(String ipAddress) {
+        int length = ipAddress.length();
+        int octets = 0;
+        int i = 0;
+        while (i <= length) {
+            int value = 0;
+            int digits = 0;
+            for (; i < length && digits < 4; i++) {
+                char c = ipAddress.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+            if (digits == 0 || digits > 3 || value > 255) {
+                return invalidIp4;
+            }
+            octets++;
+            if (i == length) {
+                break;
+            }
+            if (ipAddress.charAt(i) != '.' || octets == 4) {
+                return invalidIp4;
+            }
+            i++;
+        }
+        return octets == 4 ? ValidationResult.valid(0) : invalidIp4;
+    }
 
     /**
-     * Class constructor
+     * Method that validates port value
+     * @param port - port format. Should be less or equal 65535. Example - "8800"
+     * @return valid result with port number if port value validates, reason otherwise
      */
-    public Validation() {
+    public ValidationResult validatePort(String port) {
+        int value = parseInteger(port, 5);
+        return value >= 0 && value <= MAX_PORT ? ValidationResult.valid(value) : invalidPort;
+    }
+
+    /**
+     * Method that validates timeout value
+     * @param timeout - timeout format in ms, up to four digits. Should be more or equal 1000 and less or equal 9999.
+     *                Example - "1000"
+     * @return valid result with timeout if timeout value validates, reason otherwise
+     */
+    public ValidationResult validateTimeout(String timeout) {
+        int value = parseInteger(timeout, 4);
+        return value >= MIN_TIMEOUT && value <= MAX_TIMEOUT ? ValidationResult.valid(value) : invalidTimeout;
+    }
+
+    /**
+     * Method that validates voltage value
+     * @param voltage - voltage format in V. Example - "27"
+     * @return valid result with voltage if voltage value validates, reason otherwise
+     */
+    public ValidationResult validateVoltage(String voltage) {
+        return validateNumber(voltage, model.getMinVoltage(), model.getMaxVoltage(), invalidVoltage);
+    }
+
+    /**
+     * Method that validates current value
+     * @param current - current format in A. Example - "10"
+     * @return valid result with current if current value validates, reason otherwise
+     */
+    public ValidationResult validateCurrent(String current) {
+        return validateNumber(current, model.getMinCurrent(), model.getMaxCurrent(), invalidCurrent);
+    }
+
+    /**
+     * Method that validates resistance value
+     * @param resistance - resistance format in Ohm. Example - "75"
+     * @return valid result with resistance if resistance value validates, reason otherwise
+     */
+    public ValidationResult validateResistance(String resistance) {
+        return validateNumber(resistance, model.getMinResistance(), model.getMaxResistance(), invalidResistance);
+    }
 
+    /**
+     * Method that validates power value
+     * @param power - power format in W. Example - "100"
+     * @return valid result with power if power value validates, reason otherwise
+     */
+    public ValidationResult validatePower(String power) {
+        return validateNumber(power, model.getMinPower(), model.getMaxPower(), invalidPower);
+    }
+
+    /**
+     * Method that checks that the value is within limits of the model. It is used for setpoints which are
+     * already numbers, for example steps of the sweep
+     * @param value - voltage in V
+     * @return - true if the voltage can be set, false otherwise
+     */
+    public boolean isVoltageInRange(double value) {
+        return value >= model.getMinVoltage() && value <= model.getMaxVoltage();
+    }
+
+    /**
+     * Method that checks that the value is within limits of the model
+     * @param value - current in A
+     * @return - true if the current can be set, false otherwise
+     */
+    public boolean isCurrentInRange(double value) {
+        return value >= model.getMinCurrent() && value <= model.getMaxCurrent();
+    }
+
+    /**
+     * Method that checks that the value is within limits of the model
+     * @param value - resistance in Ohm
+     * @return - true if the resistance can be set, false otherwise
+     */
+    public boolean isResistanceInRange(double value) {
+        return value >= model.getMinResistance() && value <= model.getMaxResistance();
+    }
+
+    /**
+     * Method that checks that the value is within limits of the model
+     * @param value - power in W
+     * @return - true if the power can be set, false otherwise
+     */
+    public boolean isPowerInRange(double value) {
+        return value >= model.getMinPower() && value <= model.getMaxPower();
+    }
+
+    /**
+     * Method that parses unsigned integer
+     * @param text - digits only. Example - "8800"
+     * @param maxDigits - the largest number of digits
+     * @return - parsed value, -1 if the text is not an integer or it is too long
+     */
+    private static int parseInteger(String text, int maxDigits) {
+        int length = text.length();
+        if (length == 0 || length > maxDigits) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Method that parses unsigned decimal number: digits, then optional point and digits. Example - "12", "12.5", "12."
+     * and checks its range
+     * @param text - number text
+     * @param min - the lowest valid value
+     * @param max - the highest valid value
+     * @param invalid - result returned if the text is invalid
+     * @return - valid result with parsed value or invalid
+     */
+    private static ValidationResult validateNumber(String text, double min, double max, ValidationResult invalid) {
+        int length = text.length();
+        if (length == 0 || length > MAX_NUMBER_LENGTH) {
+            return invalid;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int integerDigits = 0;
+        boolean point = false;
+        boolean exact = true;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!point) {
+                    integerDigits++;
+                }
+                if (mantissa < Long.MAX_VALUE / 10 - 9) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (point) {
+                        exponent--;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else if (c == '.' && !point && integerDigits > 0) {
+                point = true;
+            } else {
+                return invalid;
+            }
+        }
+        if (integerDigits == 0) {
+            return invalid;
+        }
+        double value = exact ? SCPINumber.toDouble(mantissa, exponent) : Double.NaN;
+        if (Double.isNaN(value)) {
+            value = Double.parseDouble(text);
+        }
+        return value >= min && value <= max ? ValidationResult.valid(value) : invalid;
     }
 
     /**
@@ -65,7 +277,7 @@ public class Validation {
      * @return true if ip-address value validates, false otherwise
      */
     public boolean isIP4validate(String ipAddress) {
-        return ip4pattern.matcher(ipAddress).matches();
+        return validateIP4(ipAddress).isValid();
     }
 
     /**
@@ -74,10 +286,7 @@ public class Validation {
      * @return true if port value validates, false otherwise
      */
     public boolean isPortValidate(String port) {
-        if (portPattern.matcher(port).matches()) {
-            return (Integer.parseInt(port) <= 65535);
-        }
-        return false;
+        return validatePort(port).isValid();
     }
 
     /**
@@ -86,7 +295,7 @@ public class Validation {
      * @return true if timeout value validates, false otherwise
      */
     public boolean isTimeoutValidate(String timeout) {
-        return timeoutPattern.matcher(timeout).matches();
+        return validateTimeout(timeout).isValid();
     }
 
     /**
@@ -95,10 +304,7 @@ public class Validation {
      * @return true if voltage value validates, false otherwise
      */
     public boolean isVoltageValidate (String voltage) {
-        if (voltagePattern.matcher(voltage).matches()) {
-            return (Double.parseDouble(voltage) <= 1200 && Double.parseDouble(voltage) >= 0.1);
-        }
-        return false;
+        return validateVoltage(voltage).isValid();
     }
 
     /**
@@ -107,10 +313,7 @@ public class Validation {
      * @return true if current value validates, false otherwise
      */
     public boolean isCurrentValidate (String current) {
-        if (currentPattern.matcher(current).matches()) {
-            return (Double.parseDouble(current) <= 240 && Double.parseDouble(current) >= 0.01);
-        }
-        return false;
+        return validateCurrent(current).isValid();
     }
 
     /**
@@ -119,10 +322,7 @@ public class Validation {
      * @return true if resistance value validates, false otherwise
      */
     public boolean isResistanceValidate (String resistance) {
-        if (resistancePattern.matcher(resistance).matches()) {
-            return (Double.parseDouble(resistance) <= 7500 && Double.parseDouble(resistance) >= 10);
-        }
-        return false;
+        return validateResistance(resistance).isValid();
     }
 
     /**
@@ -131,9 +331,6 @@ public class Validation {
      * @return true if power value validates, false otherwise
      */
     public boolean isPowerValidate (String power) {
-        if (powerPattern.matcher(power).matches()) {
-            return (Double.parseDouble(power) <= 6000 && Double.parseDouble(power) >= 1);
-        }
-        return false;
+        return validatePower(power).isValid();
     }
 }
@@ -0,0 +1,74 @@
+package main;
+
+/**
+ * Class which holds result of the validation: parsed value if the text is valid, reason otherwise
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class ValidationResult {
+
+    private final boolean valid;
+    private final double value;
+    private final String reason;
+
+    private ValidationResult(boolean valid, double value, String reason) {
+        this.valid = valid;
+        this.value = value;
+        this.reason = reason;
+    }
+
+    /**
+     * Method that creates result of the valid text
+     * @param value - parsed value
+     * @return - valid result
+     */
+    public static ValidationResult valid(double value) {
+        return new ValidationResult(true, value, "");
+    }
+
+    /**
+     * Method that creates result of the invalid text
+     * @param reason - why the text is invalid. Example - "Voltage should be from 0.1 to 1200 V"
+     * @return - invalid result
+     */
+    public static ValidationResult invalid(String reason) {
+        return new ValidationResult(false, Double.NaN, reason);
+    }
+
+    /**
+     * Method that shows if the text is valid
+     * @return - true if valid, false otherwise
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * Method that returns parsed value
+     * @return - value, NaN if the text is invalid
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Method that returns parsed value as integer. Example - port or timeout
+     * @return - value, -1 if the text is invalid
+     */
+    public int getIntValue() {
+        return valid ? (int) value : -1;
+    }
+
+    /**
+     * Method that returns why the text is invalid
+     * @return - reason, empty if the text is valid
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return valid ? String.valueOf(value) : reason;
+    }
+}
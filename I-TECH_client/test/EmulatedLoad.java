@@ -0,0 +1,327 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Class which emulates state of one electronic load. All clients connected to the port of the load share it.
+ * The load is connected to the emulated source: open circuit voltage SOURCE_VOLTAGE behind internal resistance
+ * SOURCE_RESISTANCE. When the input is on, voltage and current are calculated from the function of the load:
+ * CC keeps current, CV keeps voltage, CR keeps resistance (I = V / R), CP keeps power.
+ * Over current (if enabled) and over power trip turns the input off and latches the status until "PROT:CLE".
+ * Commands are found by their header in the hash table, so every command costs the same
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class EmulatedLoad {
+
+    /**
+     * command of the table
+     */
+    @FunctionalInterface
+    private interface Command {
+        /**
+         * @param load - load which executes the command
+         * @param argument - text after the header and space, empty for queries
+         * @return answer, null if the command has no answer
+         */
+        String run(EmulatedLoad load, String argument);
+    }
+
+    /**
+     * questionable status codes which are read by the client
+     */
+    public static final int STATUS_OVERCURRENT = 8194;
+    public static final int STATUS_OVERPOWER = 8200;
+
+    private static final Map<String, Command> COMMANDS = new HashMap<>();
+
+    static {
+        COMMANDS.put("*IDN?", (load, argument) -> "ITECH Ltd.,IT8906A-1200-240,EMULATOR,1.0");
+        COMMANDS.put("*OPC?", (load, argument) -> "1");
+        COMMANDS.put("*RST", (load, argument) -> load.reset());
+        COMMANDS.put("*CLS", (load, argument) -> load.clearError());
+        COMMANDS.put("SYST:RWL", (load, argument) -> null);
+        COMMANDS.put("SYST:ERR?", (load, argument) -> load.readError());
+
+        COMMANDS.put("INP", (load, argument) -> load.setInput(argument));
+        COMMANDS.put("INP?", (load, argument) -> load.inputOn ? "1" : "0");
+        COMMANDS.put("FUNC", (load, argument) -> load.setFunction(argument));
+        COMMANDS.put("FUNC?", (load, argument) -> load.function);
+
+        COMMANDS.put("MEAS:VOLT?", (load, argument) -> String.valueOf(load.measure().measuredVoltage));
+        COMMANDS.put("MEAS:CURR?", (load, argument) -> String.valueOf(load.measure().measuredCurrent));
+        COMMANDS.put("MEAS:POW?", (load, argument) -> String.valueOf(load.measure().measuredPower));
+        COMMANDS.put("STAT:QUES:COND?", (load, argument) -> String.valueOf(load.measure().status));
+        COMMANDS.put("PROT:CLE", (load, argument) -> load.clearProtection());
+
+        COMMANDS.put("CURR", (load, argument) -> load.setNumber(argument, value -> load.setupCurrent = value));
+        COMMANDS.put("VOLT", (load, argument) -> load.setNumber(argument, value -> load.setupVoltage = value));
+        COMMANDS.put("RES", (load, argument) -> load.setNumber(argument, value -> load.setupResistance = value));
+        COMMANDS.put("POW", (load, argument) -> load.setNumber(argument, value -> load.setupPower = value));
+        COMMANDS.put("SOUR:CURR?", (load, argument) -> String.valueOf(load.setupCurrent));
+        COMMANDS.put("SOUR:VOLT?", (load, argument) -> String.valueOf(load.setupVoltage));
+        COMMANDS.put("SOUR:RES?", (load, argument) -> String.valueOf(load.setupResistance));
+        COMMANDS.put("SOUR:POW?", (load, argument) -> String.valueOf(load.setupPower));
+
+        COMMANDS.put("CURR:PROT", (load, argument) -> load.setNumber(argument, value -> load.protectionCurrent = value));
+        COMMANDS.put("VOLT:PROT", (load, argument) -> load.setNumber(argument, value -> load.protectionVoltage = value));
+        COMMANDS.put("POW:PROT", (load, argument) -> load.setNumber(argument, value -> load.protectionPower = value));
+        COMMANDS.put("CURR:PROT?", (load, argument) -> String.valueOf(load.protectionCurrent));
+        COMMANDS.put("VOLT:PROT?", (load, argument) -> String.valueOf(load.protectionVoltage));
+        COMMANDS.put("POW:PROT?", (load, argument) -> String.valueOf(load.protectionPower));
+        COMMANDS.put("CURR:PROT:STAT", (load, argument) -> load.setProtectionCurrentState(argument));
+        COMMANDS.put("CURR:PROT:STAT?", (load, argument) -> load.protectionCurrentState ? "1" : "0");
+    }
+
+    /**
+     * emulated source connected to the load and the largest current of the load
+     */
+    private static final double SOURCE_VOLTAGE = 100.0;
+    private static final double SOURCE_RESISTANCE = 0.1;
+    private static final double MAX_CURRENT = 240.0;
+
+    /**
+     * relative noise of measurements and their resolution
+     */
+    private static final double NOISE = 0.001;
+    private static final double SCALE = 1000;
+
+    private final Random random = new Random();
+    private final StringBuilder answer = new StringBuilder(128);
+
+    // Preset parameters
+    private double protectionCurrent;
+    private double protectionVoltage;
+    private double protectionPower;
+    private double setupCurrent;
+    private double setupVoltage;
+    private double setupResistance;
+    private double setupPower;
+    private boolean inputOn;
+    private boolean protectionCurrentState;
+    private String function;
+
+    // Calculated values. They are calculated once per line, so values of one line belong to one moment
+    private boolean measured;
+    private double measuredVoltage;
+    private double measuredCurrent;
+    private double measuredPower;
+    private int status;
+
+    private String lastError = "0,\"No error\"";
+    private long commandCount;
+
+    /**
+     * Class constructor
+     */
+    public EmulatedLoad() {
+        reset();
+    }
+
+    /**
+     * Method that executes one line received from the client
+     * @param input - line without line terminator. Compound commands are separated by ";". Example - "MEAS:VOLT?;:MEAS:CURR?"
+     * @return answers joined by ";" in the same order, null if no command of the line has an answer
+     */
+    public synchronized String execute(String input) {
+        answer.setLength(0);
+        measured = false;
+        int length = input.length();
+        int from = 0;
+        while (from <= length) {
+            int end = input.indexOf(';', from);
+            if (end < 0) {
+                end = length;
+            }
+            String result = process(input, from, end);
+            if (result != null) {
+                if (answer.length() > 0) answer.append(';');
+                answer.append(result);
+            }
+            from = end + 1;
+        }
+        return answer.length() > 0 ? answer.toString() : null;
+    }
+
+    /**
+     * Method that executes one command of the line
+     * @param input - line
+     * @param from - first character of the command
+     * @param to - character after the command
+     * @return answer of the command, null if the command has no answer
+     */
+    private String process(String input, int from, int to) {
+        while (from < to && (input.charAt(from) == ':' || input.charAt(from) == ' ')) {
+            from++;
+        }
+        if (from == to) {
+            return null;
+        }
+        commandCount++;
+        int space = input.indexOf(' ', from);
+        String header;
+        String argument;
+        if (space < 0 || space >= to) {
+            header = input.substring(from, to);
+            argument = "";
+        } else {
+            header = input.substring(from, space);
+            argument = input.substring(space + 1, to).trim();
+        }
+        Command command = COMMANDS.get(header);
+        if (command == null) {
+            lastError = "-113,\"Undefined header\"";
+            return null;
+        }
+        return command.run(this, argument);
+    }
+
+    /**
+     * Method that calculates voltage, current and power of the load connected to the source
+     * and trips protections. It is done once per line
+     * @return - this load
+     */
+    private EmulatedLoad measure() {
+        if (measured) {
+            return this;
+        }
+        measured = true;
+        double current = 0;
+        if (inputOn) {
+            switch (function) {
+                case "CURR":
+                    current = setupCurrent;
+                    break;
+                case "VOLT":
+                    current = setupVoltage >= SOURCE_VOLTAGE ? 0 : (SOURCE_VOLTAGE - setupVoltage) / SOURCE_RESISTANCE;
+                    break;
+                case "RES":
+                    current = SOURCE_VOLTAGE / (SOURCE_RESISTANCE + setupResistance);
+                    break;
+                case "POW":
+                    // V * I = P and V = Vs - I * Rs, the lower current of two solutions
+                    double discriminant = SOURCE_VOLTAGE * SOURCE_VOLTAGE - 4 * SOURCE_RESISTANCE * setupPower;
+                    current = (SOURCE_VOLTAGE - Math.sqrt(Math.max(0, discriminant))) / (2 * SOURCE_RESISTANCE);
+                    break;
+            }
+            current = Math.min(current, MAX_CURRENT);
+        }
+        double voltage = SOURCE_VOLTAGE - current * SOURCE_RESISTANCE;
+        if (inputOn && protectionCurrentState && current > protectionCurrent) {
+            trip(STATUS_OVERCURRENT);
+        } else if (inputOn && voltage * current > protectionPower) {
+            trip(STATUS_OVERPOWER);
+        }
+        if (!inputOn) {
+            current = 0;
+            voltage = SOURCE_VOLTAGE;
+        }
+        measuredVoltage = addNoise(voltage);
+        measuredCurrent = addNoise(current);
+        measuredPower = Math.round(measuredVoltage * measuredCurrent * SCALE) / SCALE;
+        return this;
+    }
+
+    private void trip(int code) {
+        inputOn = false;
+        status = code;
+    }
+
+    private double addNoise(double value) {
+        return Math.round(value * (1 + NOISE * (random.nextDouble() - 0.5)) * SCALE) / SCALE;
+    }
+
+    private String setInput(String argument) {
+        if (argument.equals("1") || argument.equals("ON")) {
+            if (status == 0) {
+                inputOn = true;
+            }
+        } else if (argument.equals("0") || argument.equals("OFF")) {
+            inputOn = false;
+        } else {
+            lastError = "-224,\"Illegal parameter value\"";
+        }
+        measured = false;
+        return null;
+    }
+
+    private String setFunction(String argument) {
+        switch (argument) {
+            case "CURR":
+            case "VOLT":
+            case "RES":
+            case "POW":
+                function = argument;
+                break;
+            default:
+                lastError = "-224,\"Illegal parameter value\"";
+        }
+        measured = false;
+        return null;
+    }
+
+    private String setProtectionCurrentState(String argument) {
+        protectionCurrentState = argument.equals("1") || argument.equals("ON");
+        measured = false;
+        return null;
+    }
+
+    /**
+     * receiver of the parsed number
+     */
+    @FunctionalInterface
+    private interface Setter {
+        void set(double value);
+    }
+
+    private String setNumber(String argument, Setter setter) {
+        try {
+            setter.set(Double.parseDouble(argument));
+            measured = false;
+        } catch (NumberFormatException e) {
+            lastError = "-120,\"Numeric data error\"";
+        }
+        return null;
+    }
+
+    private String clearProtection() {
+        status = 0;
+        measured = false;
+        return null;
+    }
+
+    private String clearError() {
+        lastError = "0,\"No error\"";
+        return null;
+    }
+
+    private String readError() {
+        String error = lastError;
+        lastError = "0,\"No error\"";
+        return error;
+    }
+
+    private String reset() {
+        protectionCurrent = 240.0;
+        protectionVoltage = 1200.0;
+        protectionPower = 6000.0;
+        setupCurrent = 1.0;
+        setupVoltage = 1.0;
+        setupResistance = 10.0;
+        setupPower = 1.0;
+        inputOn = false;
+        protectionCurrentState = false;
+        function = "CURR";
+        status = 0;
+        measured = false;
+        return null;
+    }
+
+    /**
+     * Method that returns number of executed commands
+     * @return - number of commands
+     */
+    public synchronized long getCommandCount() {
+        return commandCount;
+    }
+}
@@ -0,0 +1,111 @@
+import main.IT8906A_1200_240;
+import main.TCPConnection;
+import org.junit.jupiter.api.Assertions;
+
+import java.io.IOException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Class for tests which need an emulated load: starts EmulatorServer with one load on a free port
+ * of the loopback interface and connects clients to it. Closing the fixture stops the server
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class EmulatorFixture implements AutoCloseable {
+
+    private static final String HOST = "127.0.0.1";
+
+    private final EmulatorServer server;
+    private final int port;
+
+    /**
+     * Class constructor. Starts the server with the load on a free port
+     * @param latency - delay of every answer in ms. Example - "2"
+     * @param jitter - the largest random addition to the delay in ms. Example - "1"
+     * @throws IOException - if the port can not be opened
+     */
+    public EmulatorFixture(long latency, long jitter) throws IOException {
+        this(latency, jitter, 0);
+    }
+
+    /**
+     * Class constructor. Starts the server with the load on the given port
+     * @param latency - delay of every answer in ms. Example - "2"
+     * @param jitter - the largest random addition to the delay in ms. Example - "1"
+     * @param port - port number, 0 - any free port. Example - "4000"
+     * @throws IOException - if the port can not be opened
+     */
+    public EmulatorFixture(long latency, long jitter, int port) throws IOException {
+        this.server = new EmulatorServer(latency, jitter);
+        this.port = server.addLoad(port);
+        server.start();
+    }
+
+    /**
+     * Method that returns the server
+     * @return - started server
+     */
+    public EmulatorServer getServer() {
+        return server;
+    }
+
+    /**
+     * Method that returns port of the load
+     * @return - port number
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Method that returns the emulated load
+     * @return - emulated load
+     */
+    public EmulatedLoad getLoad() {
+        return server.getLoad(port);
+    }
+
+    /**
+     * Method that creates connection to the load, it is not connected
+     * @param timeout - read timeout in ms. Example - "1000"
+     * @return - connection
+     */
+    public TCPConnection newConnection(int timeout) {
+        return new TCPConnection(HOST, port, timeout);
+    }
+
+    /**
+     * Method that creates the driver and connects it to the load
+     * @param timeout - read timeout in ms. Example - "1000"
+     * @return - connected driver
+     * @throws IOException - if connection is failed
+     */
+    public IT8906A_1200_240 connect(int timeout) throws IOException {
+        IT8906A_1200_240 load = new IT8906A_1200_240();
+        load.setConnection(newConnection(timeout));
+        load.connect();
+        return load;
+    }
+
+    /**
+     * Method that waits until the condition is met and fails the test if it is not met in time
+     * @param condition - condition checked every 10 ms
+     * @param timeout - time in ms. Example - "5000"
+     * @throws InterruptedException - if the thread is interrupted
+     */
+    public static void await(BooleanSupplier condition, long timeout) throws InterruptedException {
+        long end = System.currentTimeMillis() + timeout;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.currentTimeMillis() < end, "condition is not met in " + timeout + " ms");
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * Method that stops the server and closes its clients
+     */
+    @Override
+    public void close() {
+        server.stop();
+    }
+}
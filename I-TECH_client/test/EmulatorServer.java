@@ -0,0 +1,394 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Class for serving emulated loads to many clients by one selector thread.
+ * Every load listens on its own port, any number of clients can connect to the port and share the load.
+ * Commands are executed at once, answers are sent after latency plus random jitter. Answers of one client
+ * keep the order of its queries
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class EmulatorServer {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    /**
+     * bytes waiting for the socket of one client. The client is not read while it has more, like a load
+     * which stops reading when its output is full
+     */
+    private static final int MAX_OUTPUT = 1 << 20;
+
+    private final Selector selector;
+    private final long LATENCY;
+    private final long JITTER;
+    private final Random random = new Random();
+    private final PriorityQueue<DelayedAnswer> delayed = new PriorityQueue<>();
+    private final Map<Integer, EmulatedLoad> loads = new ConcurrentHashMap<>();
+    private long answerSequence;
+
+    /**
+     * number of the next answers which are held and time in ns when they are sent
+     */
+    private int heldAnswers;
+    private long heldUntil;
+
+    /**
+     * number of accepted clients and number of the first client which is still answered
+     */
+    private volatile long acceptedCount;
+    private volatile long answeredFrom;
+
+    private Thread thread;
+    private volatile boolean running;
+    private volatile int clientCount;
+
+    /**
+     * answer which is sent when its time comes
+     */
+    private static final class DelayedAnswer implements Comparable<DelayedAnswer> {
+        private final long due;
+        private final long sequence;
+        private final Client client;
+        private final byte[] data;
+
+        private DelayedAnswer(long due, long sequence, Client client, byte[] data) {
+            this.due = due;
+            this.sequence = sequence;
+            this.client = client;
+            this.data = data;
+        }
+
+        @Override
+        public int compareTo(DelayedAnswer other) {
+            int result = Long.compare(due, other.due);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * connected client: its load, received bytes which are not a whole line yet and bytes waiting for the socket
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final EmulatedLoad load;
+        private final long number;
+        private final ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+        private ByteBuffer out = ByteBuffer.allocate(BUFFER_SIZE);
+        private long lastDue;
+        private boolean closed;
+
+        private Client(SocketChannel channel, EmulatedLoad load, long number) {
+            this.channel = channel;
+            this.load = load;
+            this.number = number;
+        }
+    }
+
+    /**
+     * Class constructor
+     * @param latency - delay of every answer in ms. Example - "2"
+     * @param jitter - the largest random addition to the delay in ms. Example - "1"
+     * @throws IOException - if selector can not be opened
+     */
+    public EmulatorServer(long latency, long jitter) throws IOException {
+        if (latency < 0 || jitter < 0) {
+            throw new IllegalArgumentException("Latency and jitter should not be negative");
+        }
+        this.selector = Selector.open();
+        this.LATENCY = TimeUnit.MILLISECONDS.toNanos(latency);
+        this.JITTER = TimeUnit.MILLISECONDS.toNanos(jitter);
+    }
+
+    /**
+     * Method that opens port of the new load. It should be called before start()
+     * @param port - port number, 0 - any free port. Example - "4000"
+     * @return - port number of the load
+     * @throws IOException - if the port can not be opened
+     */
+    public int addLoad(int port) throws IOException {
+        EmulatedLoad load = new EmulatedLoad();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT, load);
+        int localPort = server.socket().getLocalPort();
+        loads.put(localPort, load);
+        return localPort;
+    }
+
+    /**
+     * Method that returns emulated load of the port
+     * @param port - port number returned by addLoad(). Example - "4000"
+     * @return - emulated load, null if there is no load on the port
+     */
+    public EmulatedLoad getLoad(int port) {
+        return loads.get(port);
+    }
+
+    /**
+     * Method that starts the selector thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "emulator-server");
+        thread.start();
+    }
+
+    /**
+     * Method that stops the selector thread and closes all ports and clients
+     */
+    public void stop() {
+        running = false;
+        selector.wakeup();
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Method that returns number of connected clients
+     * @return - number of clients
+     */
+    public int getClientCount() {
+        return clientCount;
+    }
+
+    /**
+     * Method that holds the next answers of all clients for the time from now, so they come after the client
+     * has stopped waiting. Later answers of the client come after them
+     * @param count - number of answers. Example - "1"
+     * @param time - time in ms. Example - "500"
+     */
+    public synchronized void holdAnswers(int count, long time) {
+        heldAnswers = count;
+        heldUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(time);
+    }
+
+    /**
+     * Method that stops answering all connected clients without closing their sockets, like a link which has
+     * silently gone down. Their commands are read and dropped. Clients connected later are served as usual
+     */
+    public void ignoreConnectedClients() {
+        answeredFrom = acceptedCount;
+    }
+
+    /**
+     * Method that returns the time of the next answer if it is held
+     * @return - time in ns, 0 if the answer is not held
+     */
+    private synchronized long takeHeldTime() {
+        if (heldAnswers == 0) {
+            return 0;
+        }
+        heldAnswers--;
+        return heldUntil;
+    }
+
+    /**
+     * Method of the selector thread
+     */
+    private void run() {
+        try {
+            while (running) {
+                long timeout = sendDueAnswers();
+                if (timeout < 0) {
+                    selector.select();
+                } else if (timeout == 0) {
+                    selector.selectNow();
+                } else {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout)));
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(key);
+                        continue;
+                    }
+                    Client client = (Client) key.attachment();
+                    if (key.isReadable()) {
+                        read(key, client);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        write(key, client);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException e) {
+                    System.out.println("EXCEPTION: " + e.getMessage());
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("EXCEPTION: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept(SelectionKey key) throws IOException {
+        SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.register(selector, SelectionKey.OP_READ, new Client(channel, (EmulatedLoad) key.attachment(), acceptedCount));
+        acceptedCount++;
+        clientCount++;
+    }
+
+    /**
+     * Method that reads available bytes and executes every whole line
+     */
+    private void read(SelectionKey key, Client client) {
+        int read;
+        try {
+            read = client.channel.read(client.in);
+        } catch (IOException e) {
+            read = -1;
+        }
+        if (read < 0) {
+            close(key, client);
+            return;
+        }
+        ByteBuffer in = client.in;
+        if (client.number < answeredFrom) {
+            in.clear();
+            return;
+        }
+        in.flip();
+        int start = 0;
+        for (int i = 0; i < in.limit(); i++) {
+            if (in.get(i) == '\n') {
+                int end = i > start && in.get(i - 1) == '\r' ? i - 1 : i;
+                String line = new String(in.array(), start, end - start, StandardCharsets.US_ASCII);
+                start = i + 1;
+                String answer = client.load.execute(line);
+                if (answer != null) {
+                    answer(key, client, answer);
+                }
+            }
+        }
+        in.position(start);
+        in.compact();
+        if (!in.hasRemaining()) {
+            // the line is longer than the buffer, it can not be a command of the load
+            in.clear();
+        }
+    }
+
+    /**
+     * Method that sends answer at once or queues it for its time
+     */
+    private void answer(SelectionKey key, Client client, String answer) {
+        byte[] data = (answer + "\n").getBytes(StandardCharsets.US_ASCII);
+        long now = System.nanoTime();
+        long delay = LATENCY + (JITTER > 0 ? (long) (random.nextDouble() * JITTER) : 0);
+        long held = takeHeldTime();
+        if (delay == 0 && held == 0 && client.lastDue <= now) {
+            queueOutput(key, client, data);
+            return;
+        }
+        long due = Math.max(Math.max(now + delay, held), client.lastDue);
+        client.lastDue = due;
+        delayed.add(new DelayedAnswer(due, answerSequence++, client, data));
+    }
+
+    /**
+     * Method that moves answers whose time has come to their clients
+     * @return - time in ns until the next answer, -1 if there are no delayed answers
+     */
+    private long sendDueAnswers() {
+        long now = System.nanoTime();
+        DelayedAnswer next;
+        while ((next = delayed.peek()) != null && next.due <= now) {
+            delayed.poll();
+            Client client = next.client;
+            if (!client.closed && client.number >= answeredFrom) {
+                queueOutput(client.channel.keyFor(selector), client, next.data);
+            }
+        }
+        return next == null ? -1 : next.due - now;
+    }
+
+    private void queueOutput(SelectionKey key, Client client, byte[] data) {
+        if (client.out.remaining() < data.length) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(client.out.capacity() * 2, client.out.position() + data.length));
+            client.out.flip();
+            bigger.put(client.out);
+            client.out = bigger;
+        }
+        client.out.put(data);
+        write(key, client);
+    }
+
+    /**
+     * Method that writes queued bytes and waits for OP_WRITE if the socket does not take all of them
+     */
+    private void write(SelectionKey key, Client client) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        ByteBuffer out = client.out;
+        out.flip();
+        try {
+            client.channel.write(out);
+        } catch (IOException e) {
+            out.clear();
+            close(key, client);
+            return;
+        }
+        out.compact();
+        int ops = out.position() < MAX_OUTPUT ? SelectionKey.OP_READ : 0;
+        if (out.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        key.interestOps(ops);
+    }
+
+    private void close(SelectionKey key, Client client) {
+        client.closed = true;
+        key.cancel();
+        try {
+            client.channel.close();
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+        }
+        clientCount--;
+    }
+}
@@ -0,0 +1,358 @@
+import main.AsyncCommander;
+import main.IT8906A_1200_240;
+import main.LatencyHistogram;
+import main.MeasurementSample;
+import main.ReconnectPolicy;
+import main.TCPConnection;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class for load testing of the client. It drives many sessions against emulated loads and reports
+ * commands per second, latency percentiles and errors. Every session has its own IT8906A_1200_240 driver
+ * and TCPConnection, so the same code as in the application is measured. Sessions are spread over the loads
+ * evenly and share them, as several clients share one real load.
+ * Operations of the mix:
+ * POLL - voltage, current, power and status by one compound query (4 commands),
+ * SWEEP - the next current setpoint and its read back (2 commands),
+ * PROTECTION - status query, protection is cleared if it has tripped (1 or 2 commands),
+ * PIPELINE - the same values as POLL by four queries sent at once through AsyncCommander (4 commands)
+ * @author vazhinsky_ot
+ * @version 1.0
+ */
+public class LoadGenerator {
+
+    /**
+     * operation of the command mix
+     */
+    private enum Operation {
+        POLL(4),
+        SWEEP(2),
+        PROTECTION(1),
+        PIPELINE(4);
+
+        private final int commands;
+
+        Operation(int commands) {
+            this.commands = commands;
+        }
+    }
+
+    private static final String LOCAL_HOST = "127.0.0.1";
+    private static final int TIMEOUT = 2000;
+    private static final int WARMUP_SECONDS = 2;
+    private static final Set<MeasurementSample.Channel> STATUS = EnumSet.of(MeasurementSample.Channel.STATUS);
+    private static final String[] PIPELINE_QUERIES = {"MEAS:VOLT?", "MEAS:CURR?", "MEAS:POW?", "STAT:QUES:COND?"};
+
+    /**
+     * sweep of the current setpoint: from SWEEP_START A by SWEEP_STEP A, SWEEP_STEPS steps
+     */
+    private static final double SWEEP_START = 1.0;
+    private static final double SWEEP_STEP = 0.5;
+    private static final int SWEEP_STEPS = 19;
+
+    private final String HOST;
+    private final int PORT;
+    private final int LOADS;
+    private final int[] WEIGHTS;
+    private final int TOTAL_WEIGHT;
+
+    private final LatencyHistogram total = new LatencyHistogram();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final AtomicLong[] errors = new AtomicLong[Operation.values().length];
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong connectionErrors = new AtomicLong();
+
+    private volatile long measureFrom;
+    private volatile long measureTo;
+
+    /**
+     * Class constructor
+     * @param host - host of the loads. Example - "127.0.0.1"
+     * @param port - port of the first load, other loads listen on port + 1, ... Example - "5000"
+     * @param loads - number of loads. Example - "2"
+     * @param weights - weights of POLL, SWEEP, PROTECTION and PIPELINE operations. Example - "{80, 15, 5, 0}"
+     */
+    public LoadGenerator(String host, int port, int loads, int[] weights) {
+        if (weights.length != Operation.values().length) {
+            throw new IllegalArgumentException("Mix should have " + Operation.values().length + " weights");
+        }
+        int sum = 0;
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Weights should not be negative");
+            }
+            sum += weight;
+        }
+        if (sum == 0) {
+            throw new IllegalArgumentException("At least one weight should be positive");
+        }
+        this.HOST = host;
+        this.PORT = port;
+        this.LOADS = loads;
+        this.WEIGHTS = weights.clone();
+        this.TOTAL_WEIGHT = sum;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Method that runs sessions, waits for the end of the run and prints the report
+     * @param sessions - number of sessions. Example - "100"
+     * @param seconds - measured time in s, it follows WARMUP_SECONDS of warmup. Example - "10"
+     * @throws InterruptedException - if the thread is interrupted while sessions run
+     */
+    public void run(int sessions, int seconds) throws InterruptedException {
+        long now = System.nanoTime();
+        measureFrom = now + TimeUnit.SECONDS.toNanos(WARMUP_SECONDS);
+        measureTo = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        List<Thread> threads = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            int port = PORT + i % LOADS;
+            threads.add(Thread.ofVirtual().name("load-session-" + i).start(() -> runSession(port)));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        report(sessions, seconds);
+    }
+
+    /**
+     * Method of one session: connects, then executes operations of the mix until the end of the run
+     * @param port - port of the load
+     */
+    private void runSession(int port) {
+        IT8906A_1200_240 load = new IT8906A_1200_240();
+        TCPConnection connection = new TCPConnection(HOST, port, TIMEOUT);
+        load.setConnection(connection);
+        try {
+            load.connect();
+        } catch (IOException e) {
+            connectionErrors.incrementAndGet();
+            System.out.println("EXCEPTION - " + e.getMessage());
+            return;
+        }
+        // the driver and the commander share the connection, the driver is used only when no query is in flight.
+        // The commander has its own reader thread, so it is created only if the mix has pipelines
+        AsyncCommander commander = WEIGHTS[Operation.PIPELINE.ordinal()] > 0 ? new AsyncCommander(connection, TIMEOUT) : null;
+        if (commander != null) {
+            commander.start();
+        }
+        ReconnectPolicy policy = ReconnectPolicy.getDefault();
+        MeasurementSample sample = new MeasurementSample();
+        int step = ThreadLocalRandom.current().nextInt(SWEEP_STEPS);
+        long now;
+        while ((now = System.nanoTime()) < measureTo) {
+            Operation operation = nextOperation();
+            boolean done;
+            int sent = operation.commands;
+            switch (operation) {
+                case POLL:
+                    done = load.getMeasurement(sample);
+                    break;
+                case SWEEP:
+                    step = (step + 1) % SWEEP_STEPS;
+                    load.setCurrent(SWEEP_START + step * SWEEP_STEP);
+                    done = !Double.isNaN(load.readSetupCurrent());
+                    break;
+                case PIPELINE:
+                    done = pipeline(commander);
+                    if (!done && !restart(commander)) {
+                        load.disconnect();
+                    }
+                    break;
+                default:
+                    done = load.getMeasurement(sample, STATUS);
+                    if (done && sample.getStatus() != 0) {
+                        load.resetProtection();
+                        sent++;
+                    }
+                    break;
+            }
+            long latency = System.nanoTime() - now;
+            if (now >= measureFrom) {
+                if (done) {
+                    latencies[operation.ordinal()].record(latency);
+                    total.record(latency);
+                    commands.addAndGet(sent);
+                } else {
+                    errors[operation.ordinal()].incrementAndGet();
+                }
+            }
+            if (!load.isDeviceConnected()) {
+                if (commander != null && !stop(commander)) {
+                    return;
+                }
+                if (!load.reconnect(policy)) {
+                    connectionErrors.incrementAndGet();
+                    return;
+                }
+                if (commander != null) {
+                    commander.start();
+                }
+            }
+        }
+        if (commander != null) {
+            stop(commander);
+        }
+        load.disconnect();
+    }
+
+    /**
+     * Method that stops the commander and waits for its reader thread, which may still wait for an answer
+     * @param commander - commander of the session
+     * @return - true if the reader thread is finished, false if the session thread is interrupted
+     */
+    private static boolean stop(AsyncCommander commander) {
+        commander.stop();
+        try {
+            commander.join();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Method that restarts the commander after a failed pipeline. Late answers would be taken by the driver,
+     * so the order is restored before the driver uses the connection again
+     * @param commander - commander of the session
+     * @return - true if the commander is started again, false if the connection should be connected again
+     */
+    private static boolean restart(AsyncCommander commander) {
+        if (!stop(commander) || !commander.restoreOrder()) {
+            return false;
+        }
+        commander.start();
+        return true;
+    }
+
+    /**
+     * Method that sends the queries of one poll at once and waits for all answers
+     * @param commander - started commander of the session
+     * @return - true if all queries are answered, false otherwise
+     */
+    private static boolean pipeline(AsyncCommander commander) {
+        CompletableFuture<?>[] answers = new CompletableFuture<?>[PIPELINE_QUERIES.length];
+        for (int i = 0; i < PIPELINE_QUERIES.length; i++) {
+            answers[i] = commander.query(PIPELINE_QUERIES[i]);
+        }
+        try {
+            CompletableFuture.allOf(answers).get(2L * TIMEOUT, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Method that chooses the next operation according to weights of the mix
+     * @return - operation
+     */
+    private Operation nextOperation() {
+        int choice = ThreadLocalRandom.current().nextInt(TOTAL_WEIGHT);
+        for (Operation operation : Operation.values()) {
+            choice -= WEIGHTS[operation.ordinal()];
+            if (choice < 0) {
+                return operation;
+            }
+        }
+        return Operation.POLL;
+    }
+
+    /**
+     * Method that prints results of the measured time
+     * @param sessions - number of sessions
+     * @param seconds - measured time in s
+     */
+    private void report(int sessions, int seconds) {
+        long errorCount = connectionErrors.get();
+        for (AtomicLong error : errors) {
+            errorCount += error.get();
+        }
+        System.out.println("Sessions - " + sessions + ", loads - " + LOADS + ", measured time - " + seconds + " s");
+        System.out.printf("Operations/s - %.0f, commands/s - %.0f, errors - %d (connection - %d)%n",
+                (double) total.getCount() / seconds, (double) commands.get() / seconds, errorCount, connectionErrors.get());
+        System.out.println(line("ALL", total, errorCount - connectionErrors.get()));
+        for (Operation operation : Operation.values()) {
+            if (WEIGHTS[operation.ordinal()] > 0) {
+                System.out.println(line(operation.name(), latencies[operation.ordinal()], errors[operation.ordinal()].get()));
+            }
+        }
+    }
+
+    /**
+     * Method that formats latencies of one operation in µs
+     * @param name - operation name
+     * @param histogram - latencies of the operation
+     * @param errorCount - failed operations
+     * @return - report line
+     */
+    private static String line(String name, LatencyHistogram histogram, long errorCount) {
+        return String.format("%-10s count %9d  p50 %8.1f  p99 %8.1f  p99.9 %8.1f  max %8.1f us  errors %d",
+                name, histogram.getCount(), histogram.getPercentile(50) / 1000.0, histogram.getPercentile(99) / 1000.0,
+                histogram.getPercentile(99.9) / 1000.0, histogram.getMax() / 1000.0, errorCount);
+    }
+
+    /**
+     * Method that starts emulated loads in this JVM, unless host is given, and runs the load test
+     * @param args - number of sessions (default 10), number of loads (default 1), measured time in s (default 10),
+     *             mix of POLL:SWEEP:PROTECTION:PIPELINE weights, missing weights are 0 (default 80:15:5:0), latency of the emulated answer in ms (default 0),
+     *             the largest random jitter in ms (default 0), port of the first load (default 5000)
+     *             and host of already running loads (default - emulated loads are started in this JVM)
+     */
+    public static void main(String[] args) {
+
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int loads = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        String[] mix = (args.length > 3 ? args[3] : "80:15:5:0").split(":");
+        long latency = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        long jitter = args.length > 5 ? Long.parseLong(args[5]) : 0;
+        int port = args.length > 6 ? Integer.parseInt(args[6]) : 5000;
+        String host = args.length > 7 ? args[7] : null;
+
+        int[] weights = new int[Math.max(mix.length, Operation.values().length)];
+        for (int i = 0; i < mix.length; i++) {
+            weights[i] = Integer.parseInt(mix[i]);
+        }
+
+        EmulatorServer server = null;
+        try {
+            if (host == null) {
+                server = new EmulatorServer(latency, jitter);
+                for (int i = 0; i < loads; i++) {
+                    server.addLoad(port + i);
+                }
+                server.start();
+            }
+            new LoadGenerator(host == null ? LOCAL_HOST : host, port, loads, weights).run(sessions, seconds);
+        } catch (IOException e) {
+            System.out.println("EXCEPTION: " + e.getMessage());
+            System.exit(500);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+
+    }
+}
@@ -0,0 +1,119 @@
+import main.AsyncCommander;
+import main.TCPConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+public class TestAsyncCommander {
+
+    @Test
+    public void testPipelining() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(50, 0);
+        TCPConnection connection = emulator.newConnection(1000);
+        connection.connect();
+        AsyncCommander commander = new AsyncCommander(connection, 1000);
+        commander.start();
+        try {
+            commander.send("CURR 5");
+            long start = System.nanoTime();
+            List<CompletableFuture<String>> answers = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                answers.add(commander.query(i % 2 == 0 ? "SOUR:CURR?" : "INP?"));
+            }
+            Assertions.assertTrue(commander.getInFlight() > 1);
+            for (int i = 0; i < 10; i++) {
+                Assertions.assertEquals(i % 2 == 0 ? "5.0" : "0", answers.get(i).get(1, TimeUnit.SECONDS));
+            }
+            // ten answers of 50 ms each come in about one latency, not in ten
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(300));
+            Assertions.assertEquals(0, commander.getInFlight());
+        } finally {
+            commander.stop();
+            connection.disconnect();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testLateAnswerIsNotGivenToTheNextQuery() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        TCPConnection connection = emulator.newConnection(200);
+        connection.connect();
+        AsyncCommander commander = new AsyncCommander(connection, 200);
+        commander.start();
+        try {
+            commander.send("CURR 5");
+            // both answers come after the timeout: both queries fail and the late answers are skipped
+            emulator.getServer().holdAnswers(1, 500);
+            CompletableFuture<String> current = commander.query("SOUR:CURR?");
+            CompletableFuture<String> input = commander.query("INP?");
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> current.get(2, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof TimeoutException);
+            e = Assertions.assertThrows(ExecutionException.class, () -> input.get(2, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof TimeoutException);
+            Assertions.assertEquals("0", commander.query("INP?").get(2, TimeUnit.SECONDS));
+            Assertions.assertEquals("5.0", commander.query("SOUR:CURR?").get(2, TimeUnit.SECONDS));
+        } finally {
+            commander.stop();
+            connection.disconnect();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testQueryDoesNotWaitForTheFence() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        TCPConnection connection = emulator.newConnection(200);
+        connection.connect();
+        AsyncCommander commander = new AsyncCommander(connection, 200);
+        commander.start();
+        try {
+            // the query is not answered in time, the fence after it is answered at 400 ms
+            emulator.getServer().holdAnswers(2, 400);
+            CompletableFuture<String> late = commander.query("INP?");
+            Thread.sleep(250);
+            long start = System.nanoTime();
+            commander.send("CURR 7");
+            CompletableFuture<String> current = commander.query("SOUR:CURR?");
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50));
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> late.get(2, TimeUnit.SECONDS));
+            Assertions.assertTrue(e.getCause() instanceof TimeoutException);
+            Assertions.assertEquals("7.0", current.get(2, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, commander.getInFlight());
+        } finally {
+            commander.stop();
+            connection.disconnect();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testOrderIsRestoredAfterStop() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        TCPConnection connection = emulator.newConnection(500);
+        connection.connect();
+        AsyncCommander commander = new AsyncCommander(connection, 500);
+        commander.start();
+        try {
+            // the answer comes after the commander is stopped, the blocking query should not take it
+            emulator.getServer().holdAnswers(1, 200);
+            CompletableFuture<String> cancelled = commander.query("INP?");
+            commander.stop();
+            commander.join();
+            Assertions.assertTrue(cancelled.isCompletedExceptionally());
+            Assertions.assertTrue(commander.restoreOrder());
+            connection.writeToSocket("CURR:PROT?");
+            Assertions.assertEquals("240.0", connection.readFromSocket());
+        } finally {
+            commander.stop();
+            connection.disconnect();
+            emulator.close();
+        }
+    }
+}
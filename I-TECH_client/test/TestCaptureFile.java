@@ -0,0 +1,172 @@
+import main.CaptureFile;
+import main.MeasurementSample;
+import main.SampleRingBuffer;
+import main.MeasurementRecorder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class TestCaptureFile {
+
+    private static final int COUNT = 50_000;
+
+    /**
+     * discharge at 100 samples per second with jitter of time, noise of measurements, rare gaps and protection trips
+     */
+    private static final long[] times = new long[COUNT];
+    private static final double[][] values = new double[3][COUNT];
+    private static final int[] statuses = new int[COUNT];
+
+    static {
+        Random random = new Random(42);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < COUNT; i++) {
+            time += 10 + (random.nextInt(20) == 0 ? random.nextInt(3) - 1 : 0) + (i % 10_000 == 9_999 ? 60_000 : 0);
+            times[i] = time;
+            values[0][i] = Math.round((48.0 - i * 0.0001 + random.nextGaussian() * 0.002) * 1000) / 1000.0;
+            values[1][i] = i < 30_000 ? 20.0 : 10.0;
+            values[2][i] = i % 7 == 0 ? Double.NaN : -0.0;
+            statuses[i] = i >= 40_000 && i < 40_050 ? 8194 : 0;
+        }
+    }
+
+    private static Path write() throws IOException {
+        Path file = Files.createTempFile("capture", ".cap");
+        try (CaptureFile.Writer writer = new CaptureFile.Writer(file)) {
+            for (int i = 0; i < COUNT; i++) {
+                writer.accept(times[i], values[0][i], values[1][i], values[2][i], statuses[i]);
+            }
+            Assertions.assertEquals(COUNT, writer.getSampleCount());
+        }
+        return file;
+    }
+
+    private static void delete(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path each : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(each);
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        Path file = write();
+        try {
+            Assertions.assertTrue(Files.size(file) < COUNT * 36L / 4, "size " + Files.size(file));
+            try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+                Assertions.assertEquals((COUNT + CaptureFile.CHUNK_SAMPLES - 1) / CaptureFile.CHUNK_SAMPLES, reader.getChunks().size());
+                int[] index = {0};
+                long count = reader.read((time, voltage, current, power, status) -> {
+                    int i = index[0]++;
+                    Assertions.assertEquals(times[i], time);
+                    Assertions.assertEquals(Double.doubleToRawLongBits(values[0][i]), Double.doubleToRawLongBits(voltage));
+                    Assertions.assertEquals(values[1][i], current);
+                    Assertions.assertEquals(Double.doubleToRawLongBits(values[2][i]), Double.doubleToRawLongBits(power));
+                    Assertions.assertEquals(statuses[i], status);
+                });
+                Assertions.assertEquals(COUNT, count);
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    @Test
+    public void testChunkHeaders() throws Exception {
+        Path file = write();
+        try {
+            try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+                CaptureFile.Chunk first = reader.getChunks().get(0);
+                Assertions.assertEquals(CaptureFile.CHUNK_SAMPLES, first.getCount());
+                Assertions.assertEquals(times[0], first.getFirstTime());
+                Assertions.assertEquals(times[CaptureFile.CHUNK_SAMPLES - 1], first.getLastTime());
+                Assertions.assertEquals(20.0, first.getMax(MeasurementSample.Channel.CURRENT));
+                Assertions.assertEquals(-0.0, first.getMin(MeasurementSample.Channel.POWER));
+                Assertions.assertThrows(IllegalArgumentException.class, () -> first.getMin(MeasurementSample.Channel.STATUS));
+
+                // only chunks with protection trips are decoded, only the status is decoded
+                List<Integer> tripped = new ArrayList<>();
+                long count = reader.read(Long.MIN_VALUE, Long.MAX_VALUE, chunk -> chunk.getStatusMask() != 0,
+                        EnumSet.of(MeasurementSample.Channel.STATUS), (time, voltage, current, power, status) -> {
+                            Assertions.assertTrue(Double.isNaN(voltage));
+                            if (status != 0) {
+                                tripped.add(status);
+                            }
+                        });
+                Assertions.assertEquals(CaptureFile.CHUNK_SAMPLES, count);
+                Assertions.assertEquals(50, tripped.size());
+
+                // time range inside one chunk
+                long from = times[20_000];
+                long to = times[20_099];
+                long[] last = {0};
+                Assertions.assertEquals(100, reader.read(from, to, chunk -> true, EnumSet.allOf(MeasurementSample.Channel.class),
+                        (time, voltage, current, power, status) -> {
+                            Assertions.assertTrue(time > last[0]);
+                            last[0] = time;
+                        }));
+                Assertions.assertEquals(to, last[0]);
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    @Test
+    public void testDamagedChunk() throws Exception {
+        Path file = write();
+        try {
+            try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), 8 + 96 + 10);
+                }
+                Assertions.assertThrows(IOException.class, () -> reader.read((time, voltage, current, power, status) -> { }));
+            }
+            // the torn last chunk is ignored
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 1);
+            }
+            try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+                Assertions.assertEquals(COUNT / CaptureFile.CHUNK_SAMPLES, reader.getChunks().size());
+            }
+        } finally {
+            delete(file);
+        }
+    }
+
+    @Test
+    public void testConvert() throws Exception {
+        Path directory = Files.createTempDirectory("recorder");
+        try {
+            SampleRingBuffer buffer = new SampleRingBuffer(1 << 16);
+            MeasurementRecorder recorder = new MeasurementRecorder(buffer, directory, 64 + 1000 * 36, Long.MAX_VALUE);
+            recorder.start();
+            for (int i = 0; i < 5000; i++) {
+                buffer.add(times[i], values[0][i], values[1][i], values[2][i], statuses[i]);
+            }
+            recorder.close();
+            Path file = directory.resolve("all.cap");
+            Assertions.assertEquals(5000, CaptureFile.convert(directory, file));
+            try (CaptureFile.Reader reader = new CaptureFile.Reader(file)) {
+                int[] index = {0};
+                reader.read((time, voltage, current, power, status) -> Assertions.assertEquals(times[index[0]++], time));
+                Assertions.assertEquals(5000, index[0]);
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestEmulatedLoad {
+
+    private double number(String answer) {
+        return Double.parseDouble(answer);
+    }
+
+    @Test
+    public void testProtectionDoesNotChangeSetpoint() {
+        EmulatedLoad load = new EmulatedLoad();
+        load.execute("CURR 10");
+        load.execute("CURR:PROT 20");
+        load.execute("VOLT:PROT 500");
+        Assertions.assertEquals("10.0;20.0", load.execute("SOUR:CURR?;:CURR:PROT?"));
+        Assertions.assertEquals("1.0;500.0", load.execute("SOUR:VOLT?;:VOLT:PROT?"));
+    }
+
+    @Test
+    public void testCompoundCommands() {
+        EmulatedLoad load = new EmulatedLoad();
+        Assertions.assertNull(load.execute("CURR 5;:FUNC RES;:RES 50"));
+        Assertions.assertEquals("5.0;RES;50.0;0", load.execute("SOUR:CURR?;:FUNC?;:SOUR:RES?;:INP?"));
+        Assertions.assertEquals("1", load.execute("*OPC?"));
+        Assertions.assertEquals(8, load.getCommandCount());
+    }
+
+    @Test
+    public void testFunctions() {
+        EmulatedLoad load = new EmulatedLoad();
+        Assertions.assertEquals(0, number(load.execute("MEAS:CURR?")));
+        load.execute("FUNC CURR;:CURR 20;:INP 1");
+        Assertions.assertEquals(20, number(load.execute("MEAS:CURR?")), 0.1);
+        load.execute("FUNC RES;:RES 9.9");
+        String[] values = load.execute("MEAS:VOLT?;:MEAS:CURR?").split(";");
+        Assertions.assertEquals(10, number(values[1]), 0.1);
+        Assertions.assertEquals(number(values[0]) / 9.9, number(values[1]), 0.1);
+        load.execute("FUNC VOLT;:VOLT 99");
+        Assertions.assertEquals(99, number(load.execute("MEAS:VOLT?")), 0.1);
+        load.execute("FUNC POW;:POW 1000");
+        Assertions.assertEquals(1000, number(load.execute("MEAS:POW?")), 5);
+    }
+
+    @Test
+    public void testProtectionTrip() {
+        EmulatedLoad load = new EmulatedLoad();
+        load.execute("CURR:PROT 10;:CURR:PROT:STAT 1;:CURR 20;:INP 1");
+        Assertions.assertEquals("8194;0;0.0", load.execute("STAT:QUES:COND?;:INP?;:MEAS:CURR?"));
+        load.execute("INP 1");
+        Assertions.assertEquals("0", load.execute("INP?"));
+        load.execute("PROT:CLE;:CURR 5;:INP 1");
+        Assertions.assertEquals("0;1", load.execute("STAT:QUES:COND?;:INP?"));
+        load.execute("POW:PROT 100;:CURR 2");
+        Assertions.assertEquals("8200", load.execute("STAT:QUES:COND?"));
+    }
+
+    @Test
+    public void testUnknownCommand() {
+        EmulatedLoad load = new EmulatedLoad();
+        Assertions.assertNull(load.execute("CURR:PROTX 1"));
+        Assertions.assertEquals("-113,\"Undefined header\"", load.execute("SYST:ERR?"));
+        Assertions.assertEquals("0,\"No error\"", load.execute("SYST:ERR?"));
+    }
+}
@@ -0,0 +1,42 @@
+import main.EventLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class TestEventLog {
+
+    @Test
+    public void testRepeatsAreCollapsed() {
+        EventLog log = new EventLog(10, 100);
+        for (int i = 0; i < 1000; i++) {
+            log.add(0, "t" + i + " : ", "Connection is lost.");
+        }
+        log.add(0, "t : ", "Connection is restored.");
+        List<String> lines = log.getLines();
+        Assertions.assertEquals(2, lines.size());
+        Assertions.assertEquals("t999 : Connection is lost. (x 1000)", lines.get(0));
+        Assertions.assertEquals("t : Connection is restored.", lines.get(1));
+    }
+
+    @Test
+    public void testOldestLinesAreRemoved() {
+        EventLog log = new EventLog(3, 100);
+        for (int i = 0; i < 5; i++) {
+            log.add(0, "", "line " + i);
+        }
+        Assertions.assertEquals(List.of("line 2", "line 3", "line 4"), log.getLines());
+        Assertions.assertEquals("line 2\nline 3\nline 4\n", log.getText());
+    }
+
+    @Test
+    public void testLinesPerSecondLimit() {
+        EventLog log = new EventLog(100, 2);
+        for (int i = 0; i < 5; i++) {
+            log.add(1000, "", "line " + i);
+        }
+        Assertions.assertEquals(3, log.getDroppedCount());
+        log.add(2000, "", "next second");
+        Assertions.assertEquals(List.of("line 0", "line 1", "3 messages dropped", "next second"), log.getLines());
+    }
+}
@@ -0,0 +1,29 @@
+import main.InstrumentSession;
+import main.ReconnectPolicy;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestInstrumentSession {
+
+    @Test
+    public void testSessionRecoversFromDeadLink() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        EmulatorServer server = emulator.getServer();
+        InstrumentSession session = new InstrumentSession("dead-link", "127.0.0.1", emulator.getPort(), 200, 10);
+        session.setReconnectPolicy(new ReconnectPolicy(10, 100, 0, 0));
+        session.start();
+        try {
+            EmulatorFixture.await(() -> session.getSampleCount() > 5, 5000);
+            // the load stops answering without closing the socket
+            server.ignoreConnectedClients();
+            long samples = session.getSampleCount();
+            EmulatorFixture.await(() -> session.getSampleCount() > samples + 5, 5000);
+            Assertions.assertTrue(session.isConnected());
+            Assertions.assertEquals(1, server.getClientCount());
+        } finally {
+            session.stop();
+            session.join();
+            emulator.close();
+        }
+    }
+}
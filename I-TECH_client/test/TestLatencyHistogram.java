@@ -0,0 +1,75 @@
+import main.LatencyHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestLatencyHistogram {
+
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+        Assertions.assertEquals(0, histogram.getMean());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        Assertions.assertEquals(100, histogram.getCount());
+        Assertions.assertEquals(50, histogram.getPercentile(50));
+        Assertions.assertEquals(99, histogram.getPercentile(99));
+        Assertions.assertEquals(100, histogram.getPercentile(100));
+        Assertions.assertEquals(50.5, histogram.getMean());
+    }
+
+    @Test
+    public void testRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 100_000; i++) {
+            histogram.record(i * 1000);
+        }
+        Assertions.assertEquals(50_000_000, histogram.getPercentile(50), 50_000_000 / 64.0);
+        Assertions.assertEquals(99_000_000, histogram.getPercentile(99), 99_000_000 / 64.0);
+        Assertions.assertEquals(99_900_000, histogram.getPercentile(99.9), 99_900_000 / 64.0);
+        Assertions.assertTrue(histogram.getPercentile(50) >= 50_000_000);
+        Assertions.assertEquals(100_000_000, histogram.getMax());
+    }
+
+    @Test
+    public void testAddAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(10);
+        second.record(1_000_000);
+        second.record(-5);
+        first.add(second);
+        Assertions.assertEquals(3, first.getCount());
+        Assertions.assertEquals(1_000_000, first.getMax());
+        Assertions.assertEquals(0, first.getPercentile(0));
+        first.reset();
+        Assertions.assertEquals(0, first.getCount());
+        Assertions.assertEquals(0, first.getMax());
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assertions.assertEquals(40_000, histogram.getCount());
+        Assertions.assertEquals(9999, histogram.getMax());
+    }
+}
@@ -0,0 +1,71 @@
+import main.LoadPlan;
+import main.LoadState;
+import main.Validation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class TestLoadPlan {
+
+    private final Validation validation = new Validation();
+
+    @Test
+    public void testValidPlan() {
+        LoadPlan plan = LoadPlan.compile(Arrays.asList(
+                "# burn in",
+                "connect 127.0.0.1 30000 2000",
+                "mode cv",
+                "PROTECT current 20   # A",
+                "current 10.5",
+                "on",
+                "dwell 500",
+                "sample 10 2000",
+                "off",
+                "",
+                "disconnect"), validation);
+        Assertions.assertTrue(plan.isValid(), plan.getErrors().toString());
+        List<LoadPlan.Step> steps = plan.getSteps();
+        Assertions.assertEquals(9, steps.size());
+        Assertions.assertEquals(LoadPlan.Instruction.CONNECT, steps.get(0).getInstruction());
+        Assertions.assertEquals("127.0.0.1", steps.get(0).getHost());
+        Assertions.assertEquals(30000, steps.get(0).getPort());
+        Assertions.assertEquals(2000, steps.get(0).getValue());
+        Assertions.assertEquals(LoadState.Function.CV, steps.get(1).getFunction());
+        Assertions.assertEquals(LoadPlan.Instruction.PROTECT_CURRENT, steps.get(2).getInstruction());
+        Assertions.assertEquals(10.5, steps.get(3).getValue());
+        Assertions.assertEquals(500, steps.get(5).getDuration());
+        Assertions.assertEquals(10, steps.get(6).getValue());
+        Assertions.assertEquals(2000, steps.get(6).getDuration());
+        Assertions.assertEquals(11, steps.get(8).getLine());
+    }
+
+    @Test
+    public void testErrorsAreCollected() {
+        LoadPlan plan = LoadPlan.compile(Arrays.asList(
+                "on",
+                "connect 127.0.0.300 30000",
+                "connect 127.0.0.1 30000",
+                "current 500",
+                "mode CP",
+                "dwell -1",
+                "sample 0 100",
+                "jump 5",
+                "connect 127.0.0.1 30001"), validation);
+        Assertions.assertFalse(plan.isValid());
+        List<String> errors = plan.getErrors();
+        Assertions.assertEquals(8, errors.size());
+        Assertions.assertTrue(errors.get(0).startsWith("Line 1: Load should be connected first"));
+        Assertions.assertTrue(errors.get(1).startsWith("Line 2: IP4"));
+        Assertions.assertTrue(errors.get(2).startsWith("Line 4: Current"));
+        Assertions.assertTrue(errors.get(7).startsWith("Line 9: Load is already connected"));
+    }
+
+    @Test
+    public void testEmptyPlan() {
+        LoadPlan plan = LoadPlan.compile(Arrays.asList("# nothing", " "), validation);
+        Assertions.assertFalse(plan.isValid());
+        Assertions.assertEquals(1, plan.getErrors().size());
+    }
+}
@@ -0,0 +1,145 @@
+import main.IT8906A_1200_240;
+import main.InstrumentConnection;
+import main.LoadState;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TestLoadState {
+
+    /**
+     * connection which records written commands and answers with the given lines, "NO DATA" when they are over
+     */
+    private static final class ScriptedConnection implements InstrumentConnection {
+        private final List<String> written = new ArrayList<>();
+        private final ArrayDeque<String> answers = new ArrayDeque<>();
+        private boolean connected;
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public void writeToSocket(String message) {
+            written.add(message);
+        }
+
+        @Override
+        public String readFromSocket() {
+            return answers.isEmpty() ? "NO DATA" : answers.poll();
+        }
+
+        @Override
+        public void clearInput() {
+
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
+
+    private final ScriptedConnection connection = new ScriptedConnection();
+    private final IT8906A_1200_240 load = new IT8906A_1200_240();
+
+    private void connect() throws Exception {
+        load.setConnection(connection);
+        load.connect();
+        connection.written.clear();
+    }
+
+    @Test
+    public void testUnchangedSetpointIsNotSent() throws Exception {
+        connect();
+        // the function is set with the setpoint, so it is suppressed too
+        load.setCurrent(5);
+        load.setCurrent(5);
+        load.setCurrent("5.0");
+        load.setCurrent(6);
+        Assertions.assertEquals(Arrays.asList("FUNC CURR", "CURR 5", "CURR 6"), connection.written);
+        Assertions.assertEquals(5, load.getSuppressedCount());
+    }
+
+    @Test
+    public void testFreshValueExpires() throws Exception {
+        LoadState state = new LoadState();
+        Assertions.assertTrue(Double.isNaN(state.getFresh(LoadState.Value.SETUP_CURRENT, 1000)));
+        state.set(LoadState.Value.SETUP_CURRENT, 5);
+        Assertions.assertEquals(5, state.getFresh(LoadState.Value.SETUP_CURRENT, 1000));
+        Thread.sleep(60);
+        Assertions.assertTrue(Double.isNaN(state.getFresh(LoadState.Value.SETUP_CURRENT, 50)));
+        Assertions.assertEquals(5, state.get(LoadState.Value.SETUP_CURRENT));
+
+        // the driver asks the load again when the cached value is too old
+        connect();
+        load.setCacheTtl(50);
+        load.setCurrent(5);
+        Assertions.assertEquals(5, load.readSetupCurrent());
+        Assertions.assertEquals(1, load.getCachedReadCount());
+        Thread.sleep(60);
+        connection.answers.add("7.0");
+        Assertions.assertEquals(7, load.readSetupCurrent());
+        Assertions.assertEquals(Arrays.asList("FUNC CURR", "CURR 5", "SOUR:CURR?"), connection.written);
+        Assertions.assertEquals(7, load.getState().getSetupCurrent());
+    }
+
+    @Test
+    public void testBootstrap() throws Exception {
+        connect();
+        connection.answers.add("1.5;5.0;100;20.0;300;1;CURR;0");
+        LoadState state = load.bootstrap();
+        Assertions.assertNotNull(state);
+        Assertions.assertEquals(1.5, state.getSetupVoltage());
+        Assertions.assertEquals(5, state.getSetupCurrent());
+        Assertions.assertEquals(100, state.getSetupResistance());
+        Assertions.assertEquals(20, state.getProtectionCurrent());
+        Assertions.assertEquals(300, state.getProtectionPower());
+        Assertions.assertTrue(state.isProtectionCurrentEnabled());
+        Assertions.assertEquals(LoadState.Function.CC, state.getFunction());
+        Assertions.assertEquals(Boolean.FALSE, state.getInput());
+        // the known values are not sent again
+        load.setCurrent(5);
+        load.setFunctionCC();
+        Assertions.assertEquals(1, connection.written.size());
+    }
+
+    @Test
+    public void testBrokenBootstrapDoesNotChangeState() throws Exception {
+        connect();
+        // both attempts get a short answer, each one is followed by the answer of the fence
+        connection.answers.addAll(Arrays.asList("1.5;5.0;100", "1;ITECH Ltd.,IT8906A-1200-240,SCRIPT,1.0",
+                "1.5;5.0;100;20.0;300;2;CURR;0", "1;ITECH Ltd.,IT8906A-1200-240,SCRIPT,1.0"));
+        Assertions.assertNull(load.bootstrap());
+        Assertions.assertEquals(2, load.getResyncCount());
+        Assertions.assertTrue(Double.isNaN(load.getState().getSetupVoltage()));
+        Assertions.assertNull(load.getState().getFunction());
+        Assertions.assertTrue(load.isDeviceConnected());
+    }
+
+    @Test
+    public void testCachedTextIsFormattedAsReadText() throws Exception {
+        connect();
+        load.setCacheTtl(1000);
+        // the load answers "5.0", the shadow state keeps the number 5
+        connection.answers.add("5.0");
+        Assertions.assertEquals("5", load.getSetupCurrent());
+        Assertions.assertEquals("5", load.getSetupCurrent());
+        Assertions.assertEquals(1, load.getCachedReadCount());
+        Assertions.assertEquals(Arrays.asList("SOUR:CURR?"), connection.written);
+        // without the cache the answer of the load is formatted the same way
+        load.setCacheTtl(0);
+        connection.answers.add("5.000");
+        Assertions.assertEquals("5", load.getSetupCurrent());
+    }
+}
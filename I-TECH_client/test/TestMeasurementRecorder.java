@@ -0,0 +1,140 @@
+import main.MeasurementRecorder;
+import main.SampleRingBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TestMeasurementRecorder {
+
+    private static final int RECORD_SIZE = MeasurementRecorder.RECORD_SIZE;
+
+    private static long record(Path directory, long maxFileSize, long maxFileDuration, long from, int count) throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(1 << 16);
+        MeasurementRecorder recorder = new MeasurementRecorder(buffer, directory, maxFileSize, maxFileDuration);
+        recorder.start();
+        for (int i = 0; i < count; i++) {
+            // the test adds samples much faster than the sampler, so it waits for the recorder every half of the buffer
+            while (i % 32768 == 0 && recorder.getRecordedCount() < i) {
+                Thread.sleep(1);
+            }
+            long time = from + i;
+            buffer.add(time, time * 0.5, time * 0.25, Double.NaN, (int) (time % 3));
+        }
+        recorder.close();
+        Assertions.assertEquals(0, recorder.getLostCount());
+        Assertions.assertEquals("", recorder.getLastError());
+        return recorder.getRecordedCount();
+    }
+
+    private static List<Long> readAll(Path directory) throws Exception {
+        List<Long> times = new ArrayList<>();
+        for (MeasurementRecorder.FileEntry entry : MeasurementRecorder.readIndex(directory)) {
+            long count = MeasurementRecorder.readFile(directory.resolve(entry.getFileName()),
+                    (time, voltage, current, power, status) -> {
+                        Assertions.assertEquals(time * 0.5, voltage);
+                        Assertions.assertEquals(time * 0.25, current);
+                        Assertions.assertTrue(Double.isNaN(power));
+                        Assertions.assertEquals(time % 3, status);
+                        times.add(time);
+                    });
+            Assertions.assertEquals(entry.getCount(), count);
+        }
+        return times;
+    }
+
+    private static void delete(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static void assertSequence(List<Long> times, long from, int count) {
+        Assertions.assertEquals(count, times.size());
+        for (int i = 0; i < count; i++) {
+            Assertions.assertEquals(from + i, (long) times.get(i));
+        }
+    }
+
+    @Test
+    public void testRotationBySize() throws Exception {
+        Path directory = Files.createTempDirectory("recorder");
+        try {
+            Assertions.assertEquals(250_000, record(directory, 64 + 100_000L * RECORD_SIZE, Long.MAX_VALUE, 1000, 250_000));
+            List<MeasurementRecorder.FileEntry> entries = MeasurementRecorder.readIndex(directory);
+            Assertions.assertEquals(3, entries.size());
+            Assertions.assertEquals(100_000, entries.get(0).getCount());
+            Assertions.assertEquals(1000, entries.get(0).getFirstTime());
+            Assertions.assertEquals(100_999, entries.get(0).getLastTime());
+            Assertions.assertEquals(50_000, entries.get(2).getCount());
+            Assertions.assertEquals("samples-000003.bin", entries.get(2).getFileName());
+            assertSequence(readAll(directory), 1000, 250_000);
+            // the second region of a full file is not mapped beyond the limit, the last file is cut after its records
+            Assertions.assertEquals(64 + 100_000L * RECORD_SIZE, Files.size(directory.resolve("samples-000001.bin")));
+            Assertions.assertEquals(64 + 100_000L * RECORD_SIZE, Files.size(directory.resolve("samples-000002.bin")));
+            Assertions.assertEquals(64 + 50_000L * RECORD_SIZE, Files.size(directory.resolve("samples-000003.bin")));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRotationByTimeAndRestart() throws Exception {
+        Path directory = Files.createTempDirectory("recorder");
+        try {
+            record(directory, 1L << 30, 1000, 1, 2500);
+            record(directory, 1L << 30, 1000, 2501, 500);
+            List<MeasurementRecorder.FileEntry> entries = MeasurementRecorder.readIndex(directory);
+            Assertions.assertEquals(4, entries.size());
+            Assertions.assertEquals(1000, entries.get(0).getCount());
+            Assertions.assertEquals(500, entries.get(2).getCount());
+            Assertions.assertEquals(4, entries.get(3).getSequence());
+            assertSequence(readAll(directory), 1, 3000);
+            for (MeasurementRecorder.FileEntry entry : entries) {
+                Assertions.assertEquals(64 + entry.getCount() * RECORD_SIZE, Files.size(directory.resolve(entry.getFileName())));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void testRecovery() throws Exception {
+        Path directory = Files.createTempDirectory("recorder");
+        try {
+            record(directory, 1L << 30, Long.MAX_VALUE, 1, 5000);
+            // the recorder crashed: records of the file are not committed, the mapped region is not cut
+            // and the index entry is torn
+            try (FileChannel file = FileChannel.open(directory.resolve("samples-000001.bin"), StandardOpenOption.WRITE)) {
+                file.write(ByteBuffer.allocate(8), 16);
+                file.write(ByteBuffer.allocate(100 * RECORD_SIZE), file.size());
+            }
+            try (FileChannel index = FileChannel.open(directory.resolve("index.bin"), StandardOpenOption.WRITE)) {
+                index.truncate(20);
+            }
+            Assertions.assertEquals(0, MeasurementRecorder.readIndex(directory).size());
+            Assertions.assertEquals(0, MeasurementRecorder.readFile(directory.resolve("samples-000001.bin"), (t, v, c, p, s) -> { }));
+
+            record(directory, 1L << 30, Long.MAX_VALUE, 5001, 10);
+            List<MeasurementRecorder.FileEntry> entries = MeasurementRecorder.readIndex(directory);
+            Assertions.assertEquals(2, entries.size());
+            Assertions.assertEquals(1, entries.get(0).getSequence());
+            Assertions.assertEquals(5000, entries.get(0).getCount());
+            Assertions.assertEquals(5000, entries.get(0).getLastTime());
+            Assertions.assertEquals(64 + 5000L * RECORD_SIZE, Files.size(directory.resolve("samples-000001.bin")));
+            assertSequence(readAll(directory), 1, 5010);
+        } finally {
+            delete(directory);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+import main.MeasurementServer;
+import main.SampleRingBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+public class TestMeasurementServer {
+
+    private static HttpURLConnection open(MeasurementServer server, String path) throws Exception {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://127.0.0.1:" + server.getPort() + path).toURL().openConnection();
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    @Test
+    public void testBindAddress() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(16);
+        MeasurementServer local = new MeasurementServer(buffer, 0);
+        Assertions.assertTrue(local.getAddress().isLoopbackAddress());
+        local.stop();
+        MeasurementServer all = new MeasurementServer(buffer, InetAddress.getByName("0.0.0.0"), 0);
+        Assertions.assertTrue(all.getAddress().isAnyLocalAddress());
+        all.stop();
+    }
+
+    @Test
+    public void testSnapshots() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(16);
+        MeasurementServer server = new MeasurementServer(buffer, 0);
+        server.start();
+        try {
+            Assertions.assertEquals(204, open(server, "/snapshot").getResponseCode());
+            buffer.add(1000, 12.5, 2.0, 25.0, 0);
+            buffer.add(2000, 99.5, 10.0, Double.NaN, 8194);
+
+            HttpURLConnection json = open(server, "/snapshot");
+            Assertions.assertEquals(200, json.getResponseCode());
+            Assertions.assertEquals("application/json", json.getContentType());
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(json.getInputStream(), StandardCharsets.US_ASCII))) {
+                Assertions.assertEquals("{\"time\":2000,\"voltage\":99.5,\"current\":10.0,\"power\":null,\"status\":8194}", in.readLine());
+            }
+
+            HttpURLConnection binary = open(server, "/snapshot.bin");
+            Assertions.assertEquals(200, binary.getResponseCode());
+            Assertions.assertEquals(36, binary.getContentLength());
+            try (DataInputStream in = new DataInputStream(binary.getInputStream())) {
+                Assertions.assertEquals(2000, in.readLong());
+                Assertions.assertEquals(99.5, in.readDouble());
+                Assertions.assertEquals(10.0, in.readDouble());
+                Assertions.assertTrue(Double.isNaN(in.readDouble()));
+                Assertions.assertEquals(8194, in.readInt());
+            }
+
+            Assertions.assertEquals(404, open(server, "/snapshot/x").getResponseCode());
+            HttpURLConnection post = open(server, "/snapshot");
+            post.setRequestMethod("POST");
+            Assertions.assertEquals(405, post.getResponseCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        SampleRingBuffer buffer = new SampleRingBuffer(16);
+        MeasurementServer server = new MeasurementServer(buffer, 0);
+        server.start();
+        try {
+            HttpURLConnection stream = open(server, "/stream");
+            Assertions.assertEquals(200, stream.getResponseCode());
+            Assertions.assertEquals("text/event-stream", stream.getContentType());
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(stream.getInputStream(), StandardCharsets.US_ASCII))) {
+                Assertions.assertEquals(": keep-alive", in.readLine());
+                Assertions.assertEquals("", in.readLine());
+                Assertions.assertEquals(1, server.getClientCount());
+                for (int i = 1; i <= 3; i++) {
+                    buffer.add(i, i, 0.5, 0.5 * i, 0);
+                }
+                for (int i = 1; i <= 3; i++) {
+                    String expected = "data: {\"time\":" + i + ",\"voltage\":" + (double) i + ",\"current\":0.5,\"power\":"
+                            + 0.5 * i + ",\"status\":0}";
+                    Assertions.assertEquals(expected, in.readLine());
+                    Assertions.assertEquals("", in.readLine());
+                }
+            }
+            Assertions.assertEquals(0, server.getDroppedCount());
+        } finally {
+            server.stop();
+        }
+    }
+}
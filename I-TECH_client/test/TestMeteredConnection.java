@@ -0,0 +1,174 @@
+import main.CommandStatistics;
+import main.InstrumentConnection;
+import main.MeteredConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+public class TestMeteredConnection {
+
+    /**
+     * connection which answers queries from the list, "NO DATA" when the list is empty
+     */
+    private static final class ScriptedConnection implements InstrumentConnection {
+        private final Deque<String> answers = new ArrayDeque<>();
+        private boolean connected = true;
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public void writeToSocket(String message) {
+
+        }
+
+        @Override
+        public String readFromSocket() {
+            if (!connected) {
+                return null;
+            }
+            return answers.isEmpty() ? "NO DATA" : answers.poll();
+        }
+
+        @Override
+        public void clearInput() {
+
+        }
+
+        @Override
+        public boolean isConnected() {
+            return connected;
+        }
+    }
+
+    private static CommandStatistics find(List<CommandStatistics> commands, String header) {
+        for (CommandStatistics statistics : commands) {
+            if (statistics.getCommand().equals(header)) {
+                return statistics;
+            }
+        }
+        Assertions.fail("no statistics of " + header);
+        return null;
+    }
+
+    @Test
+    public void testCountsByHeader() {
+        ScriptedConnection scripted = new ScriptedConnection();
+        MeteredConnection metered = new MeteredConnection(scripted);
+        scripted.answers.add("10.5");
+        scripted.answers.add("12.25");
+        metered.write(new StringBuilder("CURR 10.5"));
+        metered.writeToSocket("CURR 12");
+        metered.writeToSocket("MEAS:VOLT?");
+        Assertions.assertEquals("10.5", metered.readFromSocket());
+        metered.write("MEAS:VOLT?");
+        Assertions.assertEquals(5, metered.readLine().remaining());
+
+        List<CommandStatistics> commands = metered.getCommands();
+        Assertions.assertEquals(2, commands.size());
+        CommandStatistics current = find(commands, "CURR");
+        Assertions.assertEquals(2, current.getCount());
+        Assertions.assertEquals(10 + 8, current.getBytesOut());
+        Assertions.assertEquals(0, current.getAnswerCount());
+        CommandStatistics voltage = find(commands, "MEAS:VOLT?");
+        Assertions.assertEquals(2, voltage.getCount());
+        Assertions.assertEquals(2, voltage.getAnswerCount());
+        Assertions.assertEquals(5 + 6, voltage.getBytesIn());
+        Assertions.assertEquals(4, metered.getCommandCount());
+        Assertions.assertEquals(2, metered.getLatency().getCount());
+    }
+
+    @Test
+    public void testPipelinedAnswersAreCountedToTheirQueries() {
+        ScriptedConnection scripted = new ScriptedConnection();
+        MeteredConnection metered = new MeteredConnection(scripted);
+        scripted.answers.add("240.5");
+        scripted.answers.add("12.25");
+        metered.writeToSocket("MEAS:VOLT?");
+        metered.writeToSocket("CURR 5");
+        metered.writeToSocket("MEAS:CURR?");
+        metered.writeToSocket("MEAS:POW?");
+        Assertions.assertEquals("240.5", metered.readFromSocket());
+        Assertions.assertEquals("12.25", metered.readFromSocket());
+        Assertions.assertEquals("NO DATA", metered.readFromSocket());
+
+        List<CommandStatistics> commands = metered.getCommands();
+        CommandStatistics voltage = find(commands, "MEAS:VOLT?");
+        Assertions.assertEquals(1, voltage.getAnswerCount());
+        Assertions.assertEquals(6, voltage.getBytesIn());
+        CommandStatistics current = find(commands, "MEAS:CURR?");
+        Assertions.assertEquals(1, current.getAnswerCount());
+        Assertions.assertEquals(6, current.getBytesIn());
+        Assertions.assertEquals(0, find(commands, "CURR").getAnswerCount());
+        CommandStatistics power = find(commands, "MEAS:POW?");
+        Assertions.assertEquals(0, power.getAnswerCount());
+        Assertions.assertEquals(1, power.getTimeoutCount());
+        Assertions.assertEquals(2, metered.getLatency().getCount());
+    }
+
+    @Test
+    public void testTimeoutAndLost() {
+        ScriptedConnection scripted = new ScriptedConnection();
+        MeteredConnection metered = new MeteredConnection(scripted);
+        metered.writeToSocket("SOUR:CURR?");
+        Assertions.assertEquals("NO DATA", metered.readFromSocket());
+        Assertions.assertEquals(1, metered.getTimeoutCount());
+        scripted.disconnect();
+        metered.writeToSocket("SOUR:CURR?");
+        Assertions.assertNull(metered.readLine());
+        Assertions.assertEquals(1, metered.getTimeoutCount());
+        Assertions.assertEquals(1, metered.getLostCount());
+        Assertions.assertEquals(0, metered.getLatency().getCount());
+        metered.resetStatistics();
+        Assertions.assertEquals(0, metered.getCommandCount());
+        Assertions.assertEquals(0, metered.getLostCount());
+    }
+
+    @Test
+    public void testTooManyCommandTypes() {
+        MeteredConnection metered = new MeteredConnection(new ScriptedConnection());
+        for (int i = 0; i < 100; i++) {
+            metered.writeToSocket("CMD" + i + " 1");
+        }
+        List<CommandStatistics> commands = metered.getCommands();
+        Assertions.assertEquals(65, commands.size());
+        Assertions.assertEquals(36, find(commands, "OTHER").getCount());
+        Assertions.assertEquals(100, metered.getCommandCount());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        ScriptedConnection scripted = new ScriptedConnection();
+        MeteredConnection metered = new MeteredConnection(scripted);
+        scripted.answers.add("1");
+        metered.writeToSocket("*OPC?");
+        metered.readFromSocket();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("itech.client:type=InstrumentSession,name=test");
+        server.registerMBean(metered, name);
+        try {
+            Assertions.assertEquals(1L, server.getAttribute(name, "CommandCount"));
+            Assertions.assertEquals(true, server.getAttribute(name, "Connected"));
+            CompositeData[] commands = (CompositeData[]) server.getAttribute(name, "Commands");
+            Assertions.assertEquals(1, commands.length);
+            Assertions.assertEquals("*OPC?", commands[0].get("command"));
+            Assertions.assertEquals(1L, commands[0].get("answerCount"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import main.NIOConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class TestNIOConnection {
+
+    @Test
+    public void testLines() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            NIOConnection connection = new NIOConnection("127.0.0.1", server.getLocalPort(), 200);
+            connection.connect();
+            try (Socket socket = server.accept()) {
+                OutputStream out = socket.getOutputStream();
+                out.write("1.5\r\n2.5\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                Assertions.assertEquals("1.5", connection.readFromSocket());
+                Assertions.assertEquals("2.5", connection.readFromSocket());
+                Assertions.assertEquals("NO DATA", connection.readFromSocket());
+                Assertions.assertTrue(connection.isConnected());
+            }
+            Assertions.assertNull(connection.readFromSocket());
+            Assertions.assertFalse(connection.isConnected());
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testLongLineIsDroppedWithItsTail() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            NIOConnection connection = new NIOConnection("127.0.0.1", server.getLocalPort(), 1000);
+            connection.connect();
+            try (Socket socket = server.accept()) {
+                OutputStream out = socket.getOutputStream();
+                out.write("x".repeat(5000).getBytes(StandardCharsets.US_ASCII));
+                out.write("\n1.5\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+                Assertions.assertEquals("1.5", connection.readFromSocket());
+            }
+            connection.disconnect();
+        }
+    }
+
+    @Test
+    public void testSecondConnectClosesFirstChannel() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            NIOConnection connection = new NIOConnection("127.0.0.1", server.getLocalPort(), 1000);
+            connection.connect();
+            try (Socket first = server.accept()) {
+                connection.connect();
+                try (Socket second = server.accept()) {
+                    first.setSoTimeout(1000);
+                    Assertions.assertEquals(-1, first.getInputStream().read());
+                    connection.writeToSocket("*IDN?");
+                    second.setSoTimeout(1000);
+                    Assertions.assertEquals('*', second.getInputStream().read());
+                }
+            }
+            connection.disconnect();
+        }
+    }
+}
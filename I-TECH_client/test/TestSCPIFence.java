@@ -0,0 +1,68 @@
+import main.IT8906A_1200_240;
+import main.ReconnectPolicy;
+import main.SCPIFence;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSCPIFence {
+
+    private static IT8906A_1200_240 connect(EmulatorFixture emulator, int timeout) throws Exception {
+        IT8906A_1200_240 load = emulator.connect(timeout);
+        load.setCurrent(5);
+        load.setDeviceOn();
+        Assertions.assertEquals(5, load.readSetupCurrent());
+        return load;
+    }
+
+    @Test
+    public void testFenceAnswer() {
+        Assertions.assertTrue(SCPIFence.isFenceAnswer("1;ITECH Ltd.,IT8906A-1200-240,EMULATOR,1.0"));
+        Assertions.assertFalse(SCPIFence.isFenceAnswer("1"));
+        Assertions.assertFalse(SCPIFence.isFenceAnswer("1;2.5;50.0;0"));
+    }
+
+    @Test
+    public void testLateAnswerIsSkipped() throws Exception {
+        try (EmulatorFixture emulator = new EmulatorFixture(0, 0)) {
+            IT8906A_1200_240 load = connect(emulator, 300);
+            // "1" of INP? comes after the timeout, it should not be taken for the answer of the fence
+            emulator.getServer().holdAnswers(1, 500);
+            Assertions.assertTrue(load.isDeviceOn());
+            Assertions.assertEquals(1, load.getResyncCount());
+            Assertions.assertEquals(5, load.readSetupCurrent());
+            Assertions.assertEquals("5", load.getSetupCurrent());
+            load.disconnect();
+        }
+    }
+
+    @Test
+    public void testLateFenceIsSkipped() throws Exception {
+        try (EmulatorFixture emulator = new EmulatorFixture(0, 0)) {
+            IT8906A_1200_240 load = connect(emulator, 300);
+            // both INP? and the fence come late, the next query sends one more fence and skips the late one.
+            // Two timeouts in a row would close the connection by default
+            load.setTimeoutLimit(3);
+            emulator.getServer().holdAnswers(2, 800);
+            Assertions.assertFalse(load.isDeviceOn());
+            Assertions.assertTrue(load.isDeviceConnected());
+            Assertions.assertEquals(5, load.readSetupCurrent());
+            Assertions.assertTrue(load.isDeviceOn());
+            Assertions.assertEquals("5", load.getSetupCurrent());
+            load.disconnect();
+        }
+    }
+
+    @Test
+    public void testDeadLinkIsClosed() throws Exception {
+        try (EmulatorFixture emulator = new EmulatorFixture(0, 0)) {
+            IT8906A_1200_240 load = connect(emulator, 200);
+            // the socket stays open, but nothing comes back: the query and the fence time out
+            emulator.getServer().ignoreConnectedClients();
+            Assertions.assertNull(load.getSetupCurrent());
+            Assertions.assertFalse(load.isDeviceConnected());
+            Assertions.assertTrue(load.reconnect(new ReconnectPolicy(10, 100, 0, 3)));
+            Assertions.assertEquals(5, load.readSetupCurrent());
+            load.disconnect();
+        }
+    }
+}
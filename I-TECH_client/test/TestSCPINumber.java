@@ -0,0 +1,70 @@
+import main.SCPINumber;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public class TestSCPINumber {
+
+    private double parseBytes(String text) {
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        return SCPINumber.parse(buffer, 0, buffer.limit());
+    }
+
+    private String format(double value) {
+        StringBuilder out = new StringBuilder();
+        SCPINumber.format(value, out);
+        return out.toString();
+    }
+
+    @Test
+    public void testParseNR1NR2NR3() {
+        Assertions.assertEquals(12.0, SCPINumber.parse("12", 0, 2));
+        Assertions.assertEquals(12.5, SCPINumber.parse("12.5", 0, 4));
+        Assertions.assertEquals(-0.25, SCPINumber.parse("-0.25", 0, 5));
+        Assertions.assertEquals(12.5, SCPINumber.parse("1.25E+1", 0, 7));
+        Assertions.assertEquals(0.00125, SCPINumber.parse("1.25e-3", 0, 7));
+        Assertions.assertEquals(1200.0, SCPINumber.parse(" 1200 ", 0, 6));
+        Assertions.assertEquals(5.004, parseBytes("5.004"));
+        Assertions.assertEquals(9.91E37, parseBytes("9.91E+37"));
+    }
+
+    @Test
+    public void testParseMatchesDouble() {
+        String[] values = {"0.1", "0.3", "1.017", "239.999", "1234.5678", "0.000001", "6000", "7.5E-5", "123456789012345678"};
+        for (String value : values) {
+            Assertions.assertEquals(Double.parseDouble(value), SCPINumber.parse(value, 0, value.length()));
+            Assertions.assertEquals(Double.parseDouble(value), parseBytes(value));
+        }
+    }
+
+    @Test
+    public void testParseInvalid() {
+        Assertions.assertTrue(Double.isNaN(SCPINumber.parse("", 0, 0)));
+        Assertions.assertTrue(Double.isNaN(SCPINumber.parse("a", 0, 1)));
+        Assertions.assertTrue(Double.isNaN(parseBytes("1.2.3")));
+        Assertions.assertTrue(Double.isNaN(parseBytes("1E")));
+        Assertions.assertTrue(Double.isNaN(parseBytes("1;2")));
+        Assertions.assertTrue(Double.isNaN(parseBytes("NO DATA")));
+    }
+
+    @Test
+    public void testParseInt() {
+        ByteBuffer buffer = ByteBuffer.wrap("8194".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertEquals(8194, SCPINumber.parseInt(buffer, 0, 4, -1));
+        buffer = ByteBuffer.wrap("81.4".getBytes(StandardCharsets.US_ASCII));
+        Assertions.assertEquals(-1, SCPINumber.parseInt(buffer, 0, 4, -1));
+    }
+
+    @Test
+    public void testFormat() {
+        Assertions.assertEquals("240", format(240));
+        Assertions.assertEquals("10.5", format(10.5));
+        Assertions.assertEquals("0.01", format(0.01));
+        Assertions.assertEquals("0.000001", format(0.000001));
+        Assertions.assertEquals("-1.25", format(-1.25));
+        Assertions.assertEquals("0.1", format(0.1));
+        Assertions.assertEquals("7500", format(7499.9999999));
+    }
+}
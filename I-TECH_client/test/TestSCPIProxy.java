@@ -0,0 +1,147 @@
+import main.IT8906A_1200_240;
+import main.MeasurementSample;
+import main.SCPIProxy;
+import main.TCPConnection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+public class TestSCPIProxy {
+
+    @Test
+    public void testClientsShareTheLoad() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        SCPIProxy proxy = new SCPIProxy();
+        int port = proxy.addLoad(0, emulator.newConnection(1000));
+        proxy.start();
+        try {
+            IT8906A_1200_240 first = new IT8906A_1200_240();
+            first.setConnection(new TCPConnection("127.0.0.1", port, 1000));
+            first.connect();
+            IT8906A_1200_240 second = new IT8906A_1200_240();
+            second.setConnection(new TCPConnection("127.0.0.1", port, 1000));
+            second.connect();
+
+            first.setCurrent(12.5);
+            Assertions.assertEquals(12.5, first.readSetupCurrent());
+            Assertions.assertEquals(12.5, second.readSetupCurrent());
+            // the answer to its own query means the write of the client has reached the load
+            second.setCurrent(7);
+            Assertions.assertEquals(7, second.readSetupCurrent());
+            Assertions.assertEquals(7, first.readSetupCurrent());
+            MeasurementSample sample = new MeasurementSample();
+            Assertions.assertTrue(first.getMeasurement(sample));
+            Assertions.assertEquals(0, sample.getStatus());
+            first.disconnect();
+            second.disconnect();
+            Assertions.assertTrue(emulator.getLoad().getCommandCount() > 0);
+        } finally {
+            proxy.stop();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testSameQueriesAreCoalesced() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(100, 0);
+        SCPIProxy proxy = new SCPIProxy();
+        int port = proxy.addLoad(0, emulator.newConnection(2000));
+        proxy.start();
+        try (Socket a = new Socket("127.0.0.1", port); Socket b = new Socket("127.0.0.1", port)) {
+            PrintWriter outA = new PrintWriter(a.getOutputStream(), true);
+            PrintWriter outB = new PrintWriter(b.getOutputStream(), true);
+            BufferedReader inA = new BufferedReader(new InputStreamReader(a.getInputStream(), StandardCharsets.US_ASCII));
+            BufferedReader inB = new BufferedReader(new InputStreamReader(b.getInputStream(), StandardCharsets.US_ASCII));
+            // the first query keeps the load busy, the same queries of both clients wait behind it
+            outA.println("*IDN?");
+            outA.println("INP?");
+            outA.println("CURR:PROT?");
+            outB.println("INP?");
+            outB.println("CURR:PROT?");
+            Assertions.assertTrue(inA.readLine().startsWith("ITECH"));
+            Assertions.assertEquals("0", inA.readLine());
+            Assertions.assertEquals("240.0", inA.readLine());
+            Assertions.assertEquals("0", inB.readLine());
+            Assertions.assertEquals("240.0", inB.readLine());
+            Assertions.assertEquals(2, proxy.getCoalescedCount());
+
+            // a write ends coalescing: the query after it is sent again and sees the write
+            outA.println("INP?");
+            outB.println("CURR:PROT 20");
+            outB.println("CURR:PROT?");
+            Assertions.assertEquals("0", inA.readLine());
+            Assertions.assertEquals("20.0", inB.readLine());
+            Assertions.assertEquals(2, proxy.getCoalescedCount());
+
+            // the compound line with a write is a write too: the query after it is not joined to the waiting one
+            outB.println("CURR:PROT?");
+            Thread.sleep(30);
+            outA.println("CURR:PROT 30;*OPC?");
+            outA.println("CURR:PROT?");
+            Assertions.assertEquals("20.0", inB.readLine());
+            Assertions.assertEquals("1", inA.readLine());
+            Assertions.assertEquals("30.0", inA.readLine());
+            Assertions.assertEquals(2, proxy.getCoalescedCount());
+        } finally {
+            proxy.stop();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testLateAnswerIsNotGivenToTheNextQuery() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        SCPIProxy proxy = new SCPIProxy();
+        int port = proxy.addLoad(0, emulator.newConnection(300));
+        proxy.start();
+        try (Socket a = new Socket("127.0.0.1", port)) {
+            PrintWriter out = new PrintWriter(a.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(a.getInputStream(), StandardCharsets.US_ASCII));
+            out.println("INP 1");
+            out.println("INP?");
+            Assertions.assertEquals("1", in.readLine());
+            // "1" of INP? comes after the timeout of the proxy, the query is not answered and the next one gets its own answer
+            emulator.getServer().holdAnswers(1, 500);
+            out.println("INP?");
+            out.println("CURR:PROT?");
+            Assertions.assertEquals("240.0", in.readLine());
+        } finally {
+            proxy.stop();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testPipelinedQueriesLongerThanBufferAreAllAnswered() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(0, 0);
+        SCPIProxy proxy = new SCPIProxy();
+        int port = proxy.addLoad(0, emulator.newConnection(1000));
+        proxy.start();
+        try (Socket a = new Socket("127.0.0.1", port)) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(a.getInputStream(), StandardCharsets.US_ASCII));
+            // about 13 KB in one write: more queries than MAX_PENDING and more bytes than the buffer of the client
+            StringBuilder lines = new StringBuilder();
+            for (int step = 1; step <= 3; step++) {
+                lines.append("CURR ").append(step).append('\n');
+                for (int i = 0; i < 400; i++) {
+                    lines.append("SOUR:CURR?\n");
+                }
+            }
+            a.getOutputStream().write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            a.getOutputStream().flush();
+            for (int step = 1; step <= 3; step++) {
+                for (int i = 0; i < 400; i++) {
+                    Assertions.assertEquals(step + ".0", in.readLine());
+                }
+            }
+        } finally {
+            proxy.stop();
+            emulator.close();
+        }
+    }
+}
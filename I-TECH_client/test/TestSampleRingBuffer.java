@@ -0,0 +1,82 @@
+import main.MeasurementSample;
+import main.SampleRingBuffer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSampleRingBuffer {
+
+    @Test
+    public void testReadInOrder() {
+        SampleRingBuffer buffer = new SampleRingBuffer(10);
+        Assertions.assertEquals(16, buffer.getCapacity());
+        SampleRingBuffer.Reader reader = buffer.newReader();
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, i + 0.1, i + 0.2, i + 0.3, i);
+        }
+        long[] expected = {0};
+        int count = reader.poll((time, voltage, current, power, status) -> {
+            Assertions.assertEquals(expected[0], time);
+            Assertions.assertEquals(time + 0.1, voltage);
+            Assertions.assertEquals(time, status);
+            expected[0]++;
+        }, 100);
+        Assertions.assertEquals(5, count);
+        Assertions.assertEquals(0, reader.poll((time, voltage, current, power, status) -> Assertions.fail("no more samples"), 100));
+        Assertions.assertEquals(0, reader.getLost());
+    }
+
+    @Test
+    public void testSlowReaderLosesOldest() {
+        SampleRingBuffer buffer = new SampleRingBuffer(8);
+        SampleRingBuffer.Reader reader = buffer.newReader();
+        for (int i = 0; i < 20; i++) {
+            buffer.add(i, i, i, i, 0);
+        }
+        long[] first = {-1};
+        int count = reader.poll((time, voltage, current, power, status) -> {
+            if (first[0] < 0) first[0] = time;
+        }, 100);
+        Assertions.assertEquals(7, count);
+        Assertions.assertEquals(13, first[0]);
+        Assertions.assertEquals(13, reader.getLost());
+    }
+
+    @Test
+    public void testLatest() {
+        SampleRingBuffer buffer = new SampleRingBuffer(4);
+        MeasurementSample sample = new MeasurementSample();
+        Assertions.assertFalse(buffer.getLatest(sample));
+        buffer.add(1, 2, 3, 4, 0);
+        buffer.add(5, 6, 7, 8, 8194);
+        Assertions.assertTrue(buffer.getLatest(sample));
+        Assertions.assertEquals(5, sample.getTime());
+        Assertions.assertEquals(8194, sample.getStatus());
+    }
+
+    @Test
+    public void testConcurrentReaderSeesConsistentSamples() throws InterruptedException {
+        SampleRingBuffer buffer = new SampleRingBuffer(64);
+        SampleRingBuffer.Reader reader = buffer.newReader();
+        int total = 2_000_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < total; i++) {
+                buffer.add(i, i * 2.0, i * 3.0, i * 4.0, i);
+            }
+        });
+        long[] last = {-1};
+        long[] read = {0};
+        writer.start();
+        while (writer.isAlive() || reader.getBacklog() > 0) {
+            reader.poll((time, voltage, current, power, status) -> {
+                Assertions.assertTrue(time > last[0]);
+                Assertions.assertEquals(time * 2.0, voltage);
+                Assertions.assertEquals(time * 4.0, power);
+                Assertions.assertEquals((int) time, status);
+                last[0] = time;
+                read[0]++;
+            }, 1000);
+        }
+        writer.join();
+        Assertions.assertEquals(total, read[0] + reader.getLost());
+    }
+}
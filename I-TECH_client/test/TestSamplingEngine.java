@@ -0,0 +1,76 @@
+import main.IT8906A_1200_240;
+import main.SamplingEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestSamplingEngine {
+
+    @Test
+    public void testScheduleIsNotShiftedByMeasurement() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(8, 0);
+        IT8906A_1200_240 load = emulator.connect(1000);
+        try {
+            // every measurement takes 8 ms of the 20 ms period, pause after it would give about 36 samples per second
+            SamplingEngine engine = new SamplingEngine(load, 50, 256);
+            engine.start();
+            Thread.sleep(1500);
+            engine.stop();
+            engine.join();
+            Assertions.assertEquals(0, engine.getMissedCount());
+            Assertions.assertEquals(0, engine.getFailedCount());
+            Assertions.assertTrue(engine.getAchievedRate() > 45 && engine.getAchievedRate() < 55,
+                    "achieved rate " + engine.getAchievedRate());
+        } finally {
+            load.disconnect();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testSlowMeasurementMissesDeadlines() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(30, 0);
+        IT8906A_1200_240 load = emulator.connect(1000);
+        try {
+            // the measurement takes 30 ms of the 20 ms period: skipped deadlines are missed, not made up later
+            SamplingEngine engine = new SamplingEngine(load, 50, 256);
+            long start = System.nanoTime();
+            engine.start();
+            Thread.sleep(1000);
+            engine.stop();
+            engine.join();
+            long deadlines = (System.nanoTime() - start) / 20_000_000L;
+            long samples = engine.getSampleCount();
+            long missed = engine.getMissedCount();
+            Assertions.assertTrue(missed > 5, "missed " + missed);
+            Assertions.assertTrue(samples < 40, "samples " + samples);
+            Assertions.assertTrue(Math.abs(samples + missed - deadlines) <= 5,
+                    "samples " + samples + ", missed " + missed + ", deadlines " + deadlines);
+        } finally {
+            load.disconnect();
+            emulator.close();
+        }
+    }
+
+    @Test
+    public void testRestartWaitsForOldThread() throws Exception {
+        EmulatorFixture emulator = new EmulatorFixture(200, 0);
+        IT8906A_1200_240 load = emulator.connect(1000);
+        try {
+            SamplingEngine engine = new SamplingEngine(load, 10, 256);
+            engine.start();
+            Thread.sleep(50);
+            // the measurement in progress is not finished yet
+            engine.stop();
+            Assertions.assertThrows(IllegalStateException.class, engine::start);
+            engine.join();
+            engine.start();
+            Assertions.assertTrue(engine.isRunning());
+            engine.stop();
+            engine.join();
+            Assertions.assertFalse(engine.isRunning());
+        } finally {
+            load.disconnect();
+            emulator.close();
+        }
+    }
+}
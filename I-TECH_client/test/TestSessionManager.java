@@ -0,0 +1,65 @@
+import main.InstrumentSession;
+import main.MeasurementSample;
+import main.ReconnectPolicy;
+import main.SessionManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class TestSessionManager {
+
+    private static final int LOADS = 20;
+
+    @Test
+    public void testAllSessionsPoll() throws Exception {
+        List<EmulatorFixture> emulators = new ArrayList<>();
+        SessionManager manager = new SessionManager();
+        try {
+            for (int i = 0; i < LOADS; i++) {
+                EmulatorFixture emulator = new EmulatorFixture(1, 1);
+                emulators.add(emulator);
+                manager.add("load" + i, "127.0.0.1", emulator.getPort(), 1000, 10);
+            }
+            // the last load is switched on after the sessions are started. Its port is taken from a load
+            // which is switched off at once, so connections are refused until the port is opened again
+            EmulatorFixture stopped = new EmulatorFixture(1, 1);
+            stopped.close();
+            int latePort = stopped.getPort();
+            InstrumentSession late = manager.add("late", "127.0.0.1", latePort, 1000, 10);
+            late.setReconnectPolicy(new ReconnectPolicy(20, 100, 0, 0));
+            manager.startAll();
+
+            EmulatorFixture.await(() -> manager.getConnectedCount() == LOADS, 5000);
+            Thread.sleep(200);
+            Assertions.assertTrue(late.isRunning());
+            Assertions.assertFalse(late.isConnected());
+            Assertions.assertNull(late.getLatest());
+
+            emulators.add(new EmulatorFixture(1, 1, latePort));
+
+            EmulatorFixture.await(() -> manager.getConnectedCount() == LOADS + 1, 5000);
+            EmulatorFixture.await(() -> {
+                for (InstrumentSession session : manager.getSessions()) {
+                    if (session.getSampleCount() < 5) {
+                        return false;
+                    }
+                }
+                return true;
+            }, 5000);
+            Map<String, MeasurementSample> latest = manager.pollAll();
+            Assertions.assertEquals(LOADS + 1, latest.size());
+            for (MeasurementSample sample : latest.values()) {
+                Assertions.assertNotNull(sample);
+            }
+        } finally {
+            manager.stopAll();
+            for (EmulatorFixture emulator : emulators) {
+                emulator.close();
+            }
+        }
+        Assertions.assertEquals(0, manager.getConnectedCount());
+    }
+}
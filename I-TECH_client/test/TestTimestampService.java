@@ -0,0 +1,30 @@
+import main.TimestampService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+
+public class TestTimestampService {
+
+    TimestampService timestamps = new TimestampService(ZoneOffset.UTC);
+
+    @Test
+    public void testFormat() {
+        Assertions.assertEquals("01.01.1970-00:00:00.000", timestamps.format(0));
+        Assertions.assertEquals("18.10.2026-15:04:05.007", timestamps.format(1792335845007L));
+        Assertions.assertEquals("18.10.2026-15:04:05.070", timestamps.format(1792335845070L));
+        Assertions.assertEquals("18.10.2026-15:04:06.700", timestamps.format(1792335846700L));
+        Assertions.assertEquals("31.12.1969-23:59:59.999", timestamps.format(-1));
+    }
+
+    @Test
+    public void testSampleTimeDoesNotGoBack() {
+        long previous = timestamps.getSampleTime();
+        Assertions.assertTrue(Math.abs(previous - System.currentTimeMillis()) < 1000);
+        for (int i = 0; i < 100000; i++) {
+            long time = timestamps.getSampleTime();
+            Assertions.assertTrue(time >= previous);
+            previous = time;
+        }
+    }
+}
@@ -1,4 +1,6 @@
+import main.LoadModel;
 import main.Validation;
+import main.ValidationResult;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -81,4 +83,54 @@ public class TestValidation {
         Assertions.assertFalse(v.isResistanceValidate("a"));
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testParsedValues() {
+        Assertions.assertEquals(27.5, v.validateVoltage("27.5").getValue());
+        Assertions.assertEquals(12.0, v.validateCurrent("12.").getValue());
+        Assertions.assertEquals(0.01, v.validateCurrent("0.01").getValue());
+        Assertions.assertEquals(75.0, v.validateResistance("0075").getValue());
+        Assertions.assertEquals(8800, v.validatePort("8800").getIntValue());
+        Assertions.assertEquals(0, v.validatePort("000").getIntValue());
+        Assertions.assertEquals(1000, v.validateTimeout("1000").getIntValue());
+    }
+
+    @Test
+    public void testFailureReasons() {
+        ValidationResult result = v.validateVoltage("1200.1");
+        Assertions.assertFalse(result.isValid());
+        Assertions.assertTrue(Double.isNaN(result.getValue()));
+        Assertions.assertEquals("Voltage should be a number from 0.1 to 1200 V", result.getReason());
+        Assertions.assertEquals(-1, v.validateTimeout("0999").getIntValue());
+        Assertions.assertFalse(v.validateCurrent(".5").isValid());
+        Assertions.assertFalse(v.validateCurrent("1.2.3").isValid());
+        Assertions.assertFalse(v.validateCurrent("1e2").isValid());
+        Assertions.assertFalse(v.validateCurrent("").isValid());
+        Assertions.assertFalse(v.validateIP4("1.2.3.4.").isValid());
+        Assertions.assertFalse(v.validateIP4("1..3.4").isValid());
+        Assertions.assertFalse(v.validateIP4("1.2.3.256").isValid());
+        Assertions.assertTrue(v.validateIP4("010.001.0.99").isValid());
+    }
+
+    @Test
+    public void testRangeInsteadOfDigits() {
+        // four digits are not enough, the value should be at least 1000 ms
+        Assertions.assertFalse(v.isTimeoutValidate("0999"));
+        Assertions.assertFalse(v.isTimeoutValidate("0000"));
+        // leading zeros do not count as digits of the value
+        Assertions.assertTrue(v.isVoltageValidate("01200"));
+        Assertions.assertEquals(1200.0, v.validateVoltage("01200").getValue());
+        Assertions.assertTrue(v.isCurrentValidate("0240.0"));
+        Assertions.assertFalse(v.isVoltageValidate("01200.1"));
+    }
+
+    @Test
+    public void testModelLimits() {
+        Validation small = new Validation(new LoadModel("test", 0.1, 150, 0.01, 30, 1, 1000, 1, 300));
+        Assertions.assertTrue(small.isVoltageValidate("150"));
+        Assertions.assertFalse(small.isVoltageValidate("151"));
+        Assertions.assertFalse(small.isCurrentValidate("31"));
+        Assertions.assertTrue(small.isResistanceValidate("1"));
+        Assertions.assertTrue(small.isPowerInRange(300));
+        Assertions.assertFalse(small.isPowerInRange(300.5));
+    }
+}